@@ -0,0 +1,44 @@
+package net.visualcoding.ts3serverquery.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, reporting the bytes allocated
+ * per operation. This is the equivalent of passing {@code -prof gc} to the
+ * JMH runner; any other JMH option, such as a benchmark filter, may be
+ * passed as well.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public final class AllocationProfile {
+
+    /**
+     * Not instantiable.
+     */
+    private AllocationProfile() {
+    }
+
+    /**
+     * Runs the benchmarks with the GC profiler.
+     *
+     * @param args JMH command line options
+     * @throws RunnerException if a benchmark failed
+     * @throws CommandLineOptionException if the options are invalid
+     */
+    public static void main(String[] args)
+            throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,262 @@
+package net.visualcoding.ts3serverquery.benchmarks;
+
+import java.util.Random;
+
+import net.visualcoding.ts3serverquery.TS3Map;
+
+/**
+ * Generates realistic Teamspeak 3 Server Query responses for benchmarks.
+ * The responses are generated from a fixed seed, so every run measures the
+ * same input.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public final class Corpus {
+
+    /** Seed of the generated responses. */
+    private static final long SEED = 0x7533L;
+
+    /** Nicknames, including characters that need escaping. */
+    private static final String[] NICKNAMES = {
+        "Alice", "Bob the Builder", "x|Sniper|x", "Zoë", "night/owl",
+        "Mr. Robot", "[AFK] Carl", "Dave\\Dave", "Eve", "Ünïcödé Ñame"
+    };
+
+    /** Away messages, including characters that need escaping. */
+    private static final String[] AWAY = {
+        "brb", "getting coffee | back soon", "sleeping", "dinner, 20 min"
+    };
+
+    /** Characters of unique ids. */
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            + "abcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    /**
+     * Not instantiable.
+     */
+    private Corpus() {
+    }
+
+    /**
+     * Returns the data line of a {@code clientlist -uid -away -voice
+     * -groups} response.
+     *
+     * @param rows number of clients
+     * @return the data line of the response
+     */
+    public static String clientList(int rows) {
+        Random random = new Random(SEED);
+        StringBuilder builder = new StringBuilder(rows * 400);
+
+        for(int i = 0; i < rows; i++) {
+            boolean away = random.nextInt(5) == 0;
+
+            TS3Map map = new TS3Map();
+            map.add("clid", i + 1);
+            map.add("cid", random.nextInt(200) + 1);
+            map.add("client_database_id", random.nextInt(100000) + 1);
+            map.add("client_nickname",
+                    NICKNAMES[random.nextInt(NICKNAMES.length)] + i);
+            map.add("client_type", random.nextInt(20) == 0 ? 1 : 0);
+            map.add("client_away", away ? 1 : 0);
+            map.add("client_away_message",
+                    away ? AWAY[random.nextInt(AWAY.length)] : "");
+            map.add("client_flag_talking", random.nextInt(10) == 0 ? 1 : 0);
+            map.add("client_input_muted", random.nextInt(4) == 0 ? 1 : 0);
+            map.add("client_output_muted", random.nextInt(8) == 0 ? 1 : 0);
+            map.add("client_input_hardware", 1);
+            map.add("client_output_hardware", 1);
+            map.add("client_talk_power", random.nextInt(76));
+            map.add("client_is_talker", 0);
+            map.add("client_is_priority_speaker", 0);
+            map.add("client_is_recording", 0);
+            map.add("client_is_channel_commander", 0);
+            map.add("client_unique_identifier", uid(random));
+            map.add("client_servergroups", groups(random));
+
+            if(i > 0) builder.append('|');
+            builder.append(map.toString());
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the data line of a {@code channellist} response.
+     *
+     * @param rows number of channels
+     * @return the data line of the response
+     */
+    public static String channelList(int rows) {
+        Random random = new Random(SEED);
+        StringBuilder builder = new StringBuilder(rows * 150);
+
+        for(int i = 0; i < rows; i++) {
+            TS3Map map = new TS3Map();
+            map.add("cid", i + 1);
+            map.add("pid", i < 10 ? 0 : random.nextInt(i) + 1);
+            map.add("channel_order", i);
+            map.add("channel_name", "Channel " + i + " | "
+                    + NICKNAMES[random.nextInt(NICKNAMES.length)] + "'s room");
+            map.add("total_clients", random.nextInt(30));
+            map.add("channel_needed_subscribe_power", random.nextInt(2) * 25);
+
+            if(i > 0) builder.append('|');
+            builder.append(map.toString());
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the data line of a {@code serverinfo} response, which is a
+     * single wide item.
+     *
+     * @return the data line of the response
+     */
+    public static String serverInfo() {
+        Random random = new Random(SEED);
+
+        TS3Map map = new TS3Map();
+        map.add("virtualserver_unique_identifier", uid(random));
+        map.add("virtualserver_name", "Benchmark Server | EU West");
+        map.add("virtualserver_welcomemessage", "Welcome to the server! "
+                + "Please read the rules at https://example.com/rules");
+        map.add("virtualserver_platform", "Linux");
+        map.add("virtualserver_version", "3.13.7 [Build: 1655727713]");
+        map.add("virtualserver_maxclients", 512);
+        map.add("virtualserver_password", "");
+        map.add("virtualserver_clientsonline", 431);
+        map.add("virtualserver_channelsonline", 212);
+        map.add("virtualserver_created", 1262304000);
+        map.add("virtualserver_uptime", random.nextInt(10000000));
+        map.add("virtualserver_codec_encryption_mode", 0);
+        map.add("virtualserver_hostmessage", "");
+        map.add("virtualserver_hostmessage_mode", 0);
+        map.add("virtualserver_filebase", "files/virtualserver_1");
+        map.add("virtualserver_default_server_group", 8);
+        map.add("virtualserver_default_channel_group", 8);
+        map.add("virtualserver_flag_password", 0);
+        map.add("virtualserver_default_channel_admin_group", 5);
+        map.add("virtualserver_max_download_total_bandwidth", -1);
+        map.add("virtualserver_max_upload_total_bandwidth", -1);
+        map.add("virtualserver_hostbanner_url", "");
+        map.add("virtualserver_hostbanner_gfx_url", "");
+        map.add("virtualserver_hostbanner_gfx_interval", 0);
+        map.add("virtualserver_complain_autoban_count", 5);
+        map.add("virtualserver_complain_autoban_time", 1200);
+        map.add("virtualserver_complain_remove_time", 3600);
+        map.add("virtualserver_min_clients_in_channel_before_forced_silence",
+                100);
+        map.add("virtualserver_priority_speaker_dimm_modificator", "-18.0000");
+        map.add("virtualserver_id", 1);
+        map.add("virtualserver_antiflood_points_tick_reduce", 5);
+        map.add("virtualserver_antiflood_points_needed_command_block", 150);
+        map.add("virtualserver_antiflood_points_needed_ip_block", 250);
+        map.add("virtualserver_client_connections", random.nextInt(100000));
+        map.add("virtualserver_query_client_connections",
+                random.nextInt(100000));
+        map.add("virtualserver_hostbutton_tooltip", "");
+        map.add("virtualserver_hostbutton_url", "");
+        map.add("virtualserver_hostbutton_gfx_url", "");
+        map.add("virtualserver_queryclientsonline", 3);
+        map.add("virtualserver_download_quota", -1);
+        map.add("virtualserver_upload_quota", -1);
+        map.add("virtualserver_month_bytes_downloaded",
+                random.nextInt(Integer.MAX_VALUE));
+        map.add("virtualserver_month_bytes_uploaded",
+                random.nextInt(Integer.MAX_VALUE));
+        map.add("virtualserver_port", 9987);
+        map.add("virtualserver_autostart", 1);
+        map.add("virtualserver_machine_id", "");
+        map.add("virtualserver_needed_identity_security_level", 8);
+        map.add("virtualserver_log_client", 0);
+        map.add("virtualserver_log_query", 0);
+        map.add("virtualserver_log_channel", 0);
+        map.add("virtualserver_log_permissions", 1);
+        map.add("virtualserver_log_server", 0);
+        map.add("virtualserver_log_filetransfer", 0);
+        map.add("virtualserver_min_client_version", 1445512488);
+        map.add("virtualserver_name_phonetic", "");
+        map.add("virtualserver_icon_id", 0);
+        map.add("virtualserver_reserved_slots", 0);
+        map.add("virtualserver_total_packetloss_speech", "0.0000");
+        map.add("virtualserver_total_ping", "23.5467");
+        map.add("virtualserver_ip", "0.0.0.0, ::");
+        map.add("virtualserver_weblist_enabled", 1);
+        map.add("virtualserver_status", "online");
+
+        return map.toString();
+    }
+
+    /**
+     * Returns the lines of a successful response with the specified data
+     * line.
+     *
+     * @param data data line of the response
+     * @return the lines of the response
+     */
+    public static String[] response(String data) {
+        return new String[] { data, "error id=0 msg=ok" };
+    }
+
+    /**
+     * Returns the escaped values of a response, for escaping benchmarks.
+     *
+     * @param rows number of values
+     * @return the unescaped values
+     */
+    public static String[] values(int rows) {
+        Random random = new Random(SEED);
+        String[] values = new String[rows];
+
+        for(int i = 0; i < rows; i++) {
+            switch(random.nextInt(3)) {
+                case 0:
+                    values[i] = NICKNAMES[random.nextInt(NICKNAMES.length)];
+                    break;
+                case 1:
+                    values[i] = AWAY[random.nextInt(AWAY.length)];
+                    break;
+                default:
+                    values[i] = uid(random);
+                    break;
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Returns a random unique id, as the base64 of a 20 byte hash.
+     * @param random source of randomness
+     * @return a random unique id
+     */
+    private static String uid(Random random) {
+        char[] chars = new char[28];
+        for(int i = 0; i < 27; i++) {
+            chars[i] = BASE64.charAt(random.nextInt(BASE64.length()));
+        }
+        chars[27] = '=';
+
+        return new String(chars);
+    }
+
+    /**
+     * Returns a random comma separated list of server groups.
+     * @param random source of randomness
+     * @return a random list of server groups
+     */
+    private static String groups(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int count = random.nextInt(3) + 1;
+
+        for(int i = 0; i < count; i++) {
+            if(i > 0) builder.append(',');
+            builder.append(random.nextInt(40) + 6);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,233 @@
+package net.visualcoding.ts3serverquery.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.visualcoding.ts3serverquery.TS3EventListener;
+import net.visualcoding.ts3serverquery.TS3Histogram;
+import net.visualcoding.ts3serverquery.TS3ServerQueryClient;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+
+/**
+ * Measures the throughput and latency of {@code TS3ServerQueryClient} over
+ * loopback against a {@link FakeQueryServer}. Two phases are run:
+ * <ol>
+ *   <li>Every connection executes the command in a loop for the duration,
+ *       measuring commands per second and the latency percentiles of
+ *       {@code execute}.</li>
+ *   <li>The server sends a storm of text messages to a client registered for
+ *       notifications, measuring the latency from the server to the
+ *       listener.</li>
+ * </ol>
+ * Options are passed as {@code name=value} arguments; run without arguments
+ * for the defaults:
+ * <pre>
+ * java -cp target/benchmarks.jar \
+ *     net.visualcoding.ts3serverquery.benchmarks.EndToEndBenchmark \
+ *     connections=4 seconds=10 command=whoami latency=0 clients=1000 \
+ *     events=50000 rate=5000
+ * </pre>
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public final class EndToEndBenchmark {
+
+    /**
+     * Not instantiable.
+     */
+    private EndToEndBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args options as {@code name=value} arguments
+     * @throws Exception if the benchmark failed
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = option(args, "connections", 4);
+        int seconds = option(args, "seconds", 10);
+        int latency = option(args, "latency", 0);
+        int clients = option(args, "clients", 1000);
+        int events = option(args, "events", 50000);
+        int rate = option(args, "rate", 5000);
+        String command = option(args, "command", "whoami");
+
+        FakeQueryServer server = new FakeQueryServer(clients);
+        server.setLatency(latency);
+        server.start();
+
+        try {
+            commands(server, connections, seconds, command);
+            events(server, events, rate);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Executes the command in a loop from every connection, and prints the
+     * throughput and latency.
+     *
+     * @param server      server to connect to
+     * @param connections number of connections
+     * @param seconds     duration of the phase
+     * @param command     command to execute
+     * @throws Exception if a command failed
+     */
+    private static void commands(FakeQueryServer server, int connections,
+            int seconds, final String command) throws Exception {
+        final TS3Histogram histogram = new TS3Histogram();
+        final AtomicLong failures = new AtomicLong();
+        final long end = System.nanoTime() + seconds * 1000000000L;
+        final long warmup = System.nanoTime() + 1000000000L;
+
+        List<TS3ServerQueryClient> clients =
+                new ArrayList<TS3ServerQueryClient>();
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for(int i = 0; i < connections; i++) {
+            final TS3ServerQueryClient client = new TS3ServerQueryClient(
+                    "127.0.0.1", server.getPort());
+            client.connect();
+            client.execute("login serveradmin password");
+            clients.add(client);
+
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        long now;
+                        while((now = System.nanoTime()) < end) {
+                            if(client.execute(command).hasError()) {
+                                failures.incrementAndGet();
+                            }
+
+                            // Leave out the first second as warm up
+                            if(now > warmup) {
+                                histogram.record(System.nanoTime() - now);
+                            }
+                        }
+                    } catch(Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+        }
+
+        long start = System.nanoTime();
+        for(Thread thread : threads) thread.start();
+        for(Thread thread : threads) thread.join();
+        long elapsed = System.nanoTime() - Math.max(start, warmup);
+
+        for(TS3ServerQueryClient client : clients) client.disconnect();
+
+        System.out.printf("%s over %d connections: %.0f commands/s, "
+                + "%d failures%n", command, connections,
+                histogram.getCount() * 1e9 / elapsed, failures.get());
+        print("execute", histogram);
+    }
+
+    /**
+     * Sends a storm of notifications to a registered client, and prints the
+     * latency from the server to the listener.
+     *
+     * @param server server to connect to
+     * @param events number of notifications
+     * @param rate   notifications per second
+     * @throws Exception if the client could not register
+     */
+    private static void events(FakeQueryServer server, int events, int rate)
+            throws Exception {
+        final TS3Histogram histogram = new TS3Histogram();
+        final CountDownLatch received = new CountDownLatch(events);
+
+        TS3ServerQueryClient client = new TS3ServerQueryClient("127.0.0.1",
+                server.getPort());
+        client.addEventListener(new TS3EventListener() {
+            public void onClientMoved(TS3ClientMovedEvent event) {
+            }
+
+            public void onClientConnected(TS3ClientConnectedEvent event) {
+            }
+
+            public void onClientDisconnected(TS3ClientDisconnectedEvent event) {
+            }
+
+            public void onMessage(TS3MessageEvent event) {
+                histogram.record(System.nanoTime()
+                        - Long.parseLong(event.getMessage()));
+                received.countDown();
+            }
+        });
+        client.connect();
+        client.execute("login serveradmin password");
+        client.registerNotifications(false);
+
+        long start = System.nanoTime();
+        server.storm(events, rate);
+        boolean complete = received.await(60, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        client.disconnect();
+
+        System.out.printf("%d events at %d/s: %.0f events/s delivered%s%n",
+                events, rate, histogram.getCount() * 1e9 / elapsed,
+                complete ? "" : " (incomplete)");
+        print("event to listener", histogram);
+    }
+
+    /**
+     * Prints the percentiles of a latency histogram.
+     *
+     * @param name      name of the measured latency
+     * @param histogram histogram of the latency
+     */
+    private static void print(String name, TS3Histogram histogram) {
+        System.out.printf("  %s latency: p50 %.1f us, p99 %.1f us, "
+                + "p99.9 %.1f us, max %.1f us%n", name,
+                histogram.getValueAtPercentile(50) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3,
+                histogram.getValueAtPercentile(99.9) / 1e3,
+                histogram.getMax() / 1e3);
+    }
+
+    /**
+     * Returns the value of an integer option.
+     *
+     * @param args         options as {@code name=value} arguments
+     * @param name         name of the option
+     * @param defaultValue value if the option is absent
+     * @return the value of the option
+     */
+    private static int option(String[] args, String name, int defaultValue) {
+        return Integer.parseInt(option(args, name,
+                Integer.toString(defaultValue)));
+    }
+
+    /**
+     * Returns the value of an option.
+     *
+     * @param args         options as {@code name=value} arguments
+     * @param name         name of the option
+     * @param defaultValue value if the option is absent
+     * @return the value of the option
+     */
+    private static String option(String[] args, String name,
+            String defaultValue) {
+        for(String arg : args) {
+            if(arg.startsWith(name + "=")) {
+                return arg.substring(name.length() + 1);
+            }
+        }
+
+        return defaultValue;
+    }
+}
@@ -0,0 +1,520 @@
+package net.visualcoding.ts3serverquery.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.visualcoding.ts3serverquery.TS3Map;
+
+/**
+ * Scriptable fake Teamspeak 3 Server Query server for load testing. Unlike
+ * the test dummy, it serves any number of query connections from a single
+ * selector thread, answers commands through handlers that may be replaced
+ * per command, delays every response by a configurable latency, and
+ * broadcasts notification storms to the connections that registered for
+ * them.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class FakeQueryServer implements Runnable {
+
+    /** Line ending of the TS3 Server Query. */
+    private static final String LINE_ENDING = "\n\r";
+
+    /** Charset of the TS3 Server Query. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Response of successful commands. */
+    private static final String OK = "error id=0 msg=ok";
+
+    /** Selector of the server and its connections. */
+    private final Selector selector;
+
+    /** Listening channel. */
+    private final ServerSocketChannel server;
+
+    /** Handlers mapped by command name. */
+    private final Map<String, Handler> handlers =
+            new ConcurrentHashMap<String, Handler>();
+
+    /** Open connections. */
+    private final List<Connection> connections = new ArrayList<Connection>();
+
+    /** Responses waiting for their latency to elapse. */
+    private final PriorityQueue<Delayed> delayed = new PriorityQueue<Delayed>();
+
+    /** Tasks submitted by other threads, run by the selector thread. */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /** Latency added to every response, in nanoseconds. */
+    private volatile long latency = 0;
+
+    /** Number of commands answered. */
+    private volatile long commands = 0;
+
+    /** Order of delayed responses with the same due time. */
+    private long sequence = 0;
+
+    /** Whether or not the server is running. */
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a server listening on an ephemeral loopback port, which
+     * lists the specified number of simulated clients.
+     *
+     * @param clients number of simulated clients listed by
+     *                {@code clientlist}
+     * @throws IOException if the server could not listen
+     */
+    public FakeQueryServer(int clients) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        final String clientList = Corpus.clientList(clients);
+        final String channelList = Corpus.channelList(
+                Math.max(clients / 10, 1));
+        final String serverInfo = Corpus.serverInfo();
+
+        Handler ok = new Handler() {
+            public String[] handle(String arguments) {
+                return new String[] { OK };
+            }
+        };
+
+        on("login", ok);
+        on("use", ok);
+        on("quit", ok);
+        on("clientmove", ok);
+        on("sendtextmessage", ok);
+        on("version", new Handler() {
+            public String[] handle(String arguments) {
+                return new String[] {
+                    "version=3.13.7 build=1655727713 platform=Linux", OK
+                };
+            }
+        });
+        on("whoami", new Handler() {
+            public String[] handle(String arguments) {
+                return new String[] {
+                    "virtualserver_status=online virtualserver_id=1 "
+                        + "virtualserver_port=9987 client_id=1 "
+                        + "client_channel_id=1 client_nickname=serveradmin "
+                        + "client_database_id=1 client_login_name=serveradmin",
+                    OK
+                };
+            }
+        });
+        on("clientlist", response(clientList));
+        on("channellist", response(channelList));
+        on("serverinfo", response(serverInfo));
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Sets the handler answering a command, replacing the previous one.
+     *
+     * @param command name of the command
+     * @param handler handler answering the command
+     */
+    public void on(String command, Handler handler) {
+        handlers.put(command, handler);
+    }
+
+    /**
+     * Sets the latency added to every response.
+     * @param micros latency in microseconds
+     */
+    public void setLatency(long micros) {
+        latency = micros * 1000L;
+    }
+
+    /**
+     * Returns the number of commands answered.
+     * @return the number of commands answered
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * Starts the selector thread.
+     * @return the selector thread
+     */
+    public Thread start() {
+        Thread thread = new Thread(this, "FakeQueryServer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Stops the server and closes every connection.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Sends a notification to every connection registered for the specified
+     * event.
+     *
+     * @param event        registered event, such as {@code textserver}
+     * @param notification notification line
+     */
+    public void notify(final String event, final String notification) {
+        tasks.add(new Runnable() {
+            public void run() {
+                for(Connection connection : connections) {
+                    if(connection.events.contains(event)) {
+                        connection.send(notification);
+                    }
+                }
+            }
+        });
+        selector.wakeup();
+    }
+
+    /**
+     * Broadcasts server text messages at the specified rate, blocking until
+     * every message was submitted. The message of each notification is the
+     * {@link System#nanoTime()} it was submitted at, so that listeners in the
+     * same process can measure the event latency.
+     *
+     * @param count number of notifications
+     * @param rate  notifications per second
+     * @throws InterruptedException if interrupted while pacing
+     */
+    public void storm(int count, int rate) throws InterruptedException {
+        long interval = 1000000000L / Math.max(rate, 1);
+        long start = System.nanoTime();
+
+        for(int i = 0; i < count; i++) {
+            long wait = start + i * interval - System.nanoTime();
+            if(wait > 0) {
+                Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+            }
+
+            notify("textserver", "notifytextmessage targetmode=3 msg="
+                    + System.nanoTime() + " invokerid=1 invokername=storm "
+                    + "invokeruid=storm=");
+        }
+    }
+
+    /**
+     * Runs the selector loop until stopped.
+     */
+    public void run() {
+        try {
+            while(running) {
+                long timeout = 0;
+                if(!delayed.isEmpty()) {
+                    long wait = delayed.peek().due - System.nanoTime();
+                    timeout = Math.max(wait / 1000000L, 1);
+                }
+
+                selector.select(timeout);
+
+                Runnable task;
+                while((task = tasks.poll()) != null) task.run();
+
+                long now = System.nanoTime();
+                while(!delayed.isEmpty() && delayed.peek().due <= now) {
+                    Delayed response = delayed.poll();
+                    for(String line : response.lines) {
+                        response.connection.send(line);
+                    }
+                }
+
+                Iterator<SelectionKey> keys =
+                        selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if(!key.isValid()) continue;
+                        if(key.isAcceptable()) accept();
+                        if(key.isValid() && key.isReadable()) {
+                            ((Connection) key.attachment()).read();
+                        }
+                        if(key.isValid() && key.isWritable()) {
+                            ((Connection) key.attachment()).write();
+                        }
+                    } catch(IOException e) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+            }
+        } catch(IOException e) {
+            e.printStackTrace();
+        }
+
+        for(Connection connection : new ArrayList<Connection>(connections)) {
+            connection.close();
+        }
+
+        try {
+            server.close();
+            selector.close();
+        } catch(IOException e) {
+            // Ignore
+        }
+    }
+
+    /**
+     * Accepts a pending connection and greets it.
+     * @throws IOException if the connection could not be accepted
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if(channel == null) return;
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ,
+                connection);
+        connections.add(connection);
+
+        connection.send("TS3");
+        connection.send("Welcome to the fake TeamSpeak 3 ServerQuery "
+                + "interface.");
+    }
+
+    /**
+     * Answers a command line received from a connection.
+     *
+     * @param connection connection that sent the command
+     * @param line       command line
+     */
+    private void dispatch(Connection connection, String line) {
+        int space = line.indexOf(' ');
+        String name = space < 0 ? line : line.substring(0, space);
+        String arguments = space < 0 ? "" : line.substring(space + 1);
+        String[] lines;
+
+        if(name.equals("servernotifyregister")) {
+            String event = new TS3Map(arguments).get("event");
+            if(event != null) connection.events.add(event);
+            lines = new String[] { OK };
+        } else {
+            Handler handler = handlers.get(name);
+            lines = handler == null
+                    ? new String[] { "error id=256 msg=command\\snot\\sfound" }
+                    : handler.handle(arguments);
+        }
+
+        commands++;
+
+        if(latency <= 0) {
+            for(String response : lines) connection.send(response);
+        } else {
+            delayed.add(new Delayed(System.nanoTime() + latency, sequence++,
+                    connection, lines));
+        }
+    }
+
+    /**
+     * Returns a handler answering with a fixed data line.
+     * @param data data line of the response
+     * @return the handler
+     */
+    private static Handler response(final String data) {
+        return new Handler() {
+            public String[] handle(String arguments) {
+                return new String[] { data, OK };
+            }
+        };
+    }
+
+    /**
+     * Answers a command.
+     */
+    public static interface Handler {
+
+        /**
+         * Returns the lines of the response to a command, the last one
+         * being the error line.
+         *
+         * @param arguments arguments of the command
+         * @return the lines of the response
+         */
+        public String[] handle(String arguments);
+
+    }
+
+    /**
+     * A query connection.
+     */
+    private class Connection {
+        /** Channel of the connection. */
+        private final SocketChannel channel;
+
+        /** Selection key of the channel. */
+        private SelectionKey key;
+
+        /** Bytes received but not yet split into lines. */
+        private ByteBuffer in = ByteBuffer.allocate(8192);
+
+        /** Buffers waiting to be written. */
+        private final Queue<ByteBuffer> out = new ArrayDeque<ByteBuffer>();
+
+        /** Events registered by the connection. */
+        private final Set<String> events = new HashSet<String>();
+
+        /**
+         * Constructs a connection.
+         * @param channel channel of the connection
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the available bytes and answers every complete line.
+         * @throws IOException if the connection was closed
+         */
+        void read() throws IOException {
+            if(channel.read(in) < 0) throw new IOException("Closed");
+
+            in.flip();
+            int start = 0;
+            for(int i = 0; i < in.limit(); i++) {
+                if(in.get(i) != '\n') continue;
+
+                String line = new String(in.array(), start, i - start, UTF8)
+                        .replace("\r", "");
+                start = i + 1;
+                if(!line.isEmpty()) dispatch(this, line);
+            }
+
+            in.position(start);
+            in.compact();
+
+            // Grow for lines longer than the buffer
+            if(!in.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                grown.put(in);
+                in = grown;
+            }
+        }
+
+        /**
+         * Queues a line to be written.
+         * @param line line to write
+         */
+        void send(String line) {
+            if(!key.isValid()) return;
+
+            out.add(ByteBuffer.wrap((line + LINE_ENDING).getBytes(UTF8)));
+            try {
+                write();
+            } catch(IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Writes the queued buffers until the socket buffer is full.
+         * @throws IOException if the connection was closed
+         */
+        void write() throws IOException {
+            ByteBuffer buffer;
+            while((buffer = out.peek()) != null) {
+                channel.write(buffer);
+                if(buffer.hasRemaining()) break;
+                out.poll();
+            }
+
+            key.interestOps(out.isEmpty() ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Closes the connection.
+         */
+        void close() {
+            connections.remove(this);
+            key.cancel();
+            try {
+                channel.close();
+            } catch(IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * A response waiting for its latency to elapse.
+     */
+    private static class Delayed implements Comparable<Delayed> {
+        /** Time the response is due, in nanoseconds. */
+        private final long due;
+
+        /** Order of responses with the same due time. */
+        private final long sequence;
+
+        /** Connection to send the response to. */
+        private final Connection connection;
+
+        /** Lines of the response. */
+        private final String[] lines;
+
+        /**
+         * Constructs a delayed response.
+         *
+         * @param due        time the response is due, in nanoseconds
+         * @param sequence   order of responses with the same due time
+         * @param connection connection to send the response to
+         * @param lines      lines of the response
+         */
+        Delayed(long due, long sequence, Connection connection,
+                String[] lines) {
+            this.due = due;
+            this.sequence = sequence;
+            this.connection = connection;
+            this.lines = lines;
+        }
+
+        /**
+         * Orders responses by due time, then by arrival.
+         * @param other response to compare to
+         * @return the order of this response relative to the other
+         */
+        public int compareTo(Delayed other) {
+            if(due != other.due) return due < other.due ? -1 : 1;
+            return sequence < other.sequence ? -1
+                    : sequence == other.sequence ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package net.visualcoding.ts3serverquery.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.visualcoding.ts3serverquery.TS3Map;
+
+/**
+ * Benchmarks parsing, serializing and escaping of {@link TS3Map}.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TS3MapBenchmark {
+
+    /** Number of items of the response. */
+    @Param({ "10", "1000", "10000" })
+    public int rows;
+
+    /** Command whose response is benchmarked. */
+    @Param({ "clientlist", "channellist" })
+    public String command;
+
+    /** Items of the response, as sent by the server. */
+    private String[] items;
+
+    /** Parsed items of the response. */
+    private List<TS3Map> maps;
+
+    /** Unescaped values. */
+    private String[] values;
+
+    /** Escaped values. */
+    private String[] escaped;
+
+    /**
+     * Generates the corpus.
+     */
+    @Setup
+    public void setUp() {
+        String data = command.equals("clientlist") ? Corpus.clientList(rows)
+                : Corpus.channelList(rows);
+
+        items = data.split("\\|");
+        maps = new ArrayList<TS3Map>(items.length);
+        for(String item : items) maps.add(new TS3Map(item));
+
+        values = Corpus.values(rows);
+        escaped = new String[rows];
+        for(int i = 0; i < rows; i++) escaped[i] = TS3Map.escape(values[i]);
+    }
+
+    /**
+     * Parses every item of the response.
+     * @param blackhole consumer of the parsed items
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for(String item : items) blackhole.consume(new TS3Map(item));
+    }
+
+    /**
+     * Serializes every item of the response.
+     * @param blackhole consumer of the serialized items
+     */
+    @Benchmark
+    public void serialize(Blackhole blackhole) {
+        for(TS3Map map : maps) blackhole.consume(map.toString());
+    }
+
+    /**
+     * Escapes realistic values.
+     * @param blackhole consumer of the escaped values
+     */
+    @Benchmark
+    public void escape(Blackhole blackhole) {
+        for(String value : values) blackhole.consume(TS3Map.escape(value));
+    }
+
+    /**
+     * Unescapes realistic values.
+     * @param blackhole consumer of the unescaped values
+     */
+    @Benchmark
+    public void unescape(Blackhole blackhole) {
+        for(String value : escaped) blackhole.consume(TS3Map.unescape(value));
+    }
+}
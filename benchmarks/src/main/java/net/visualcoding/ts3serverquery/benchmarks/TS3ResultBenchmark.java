@@ -0,0 +1,81 @@
+package net.visualcoding.ts3serverquery.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.visualcoding.ts3serverquery.TS3Result;
+import net.visualcoding.ts3serverquery.TS3Table;
+
+/**
+ * Benchmarks the construction of results from raw responses, comparing
+ * {@link TS3Result} with the columnar {@link TS3Table}.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TS3ResultBenchmark {
+
+    /** Number of items of the response. */
+    @Param({ "10", "1000", "10000" })
+    public int rows;
+
+    /** Command whose response is benchmarked. */
+    @Param({ "clientlist", "channellist", "serverinfo" })
+    public String command;
+
+    /** Lines of the response. */
+    private String[] response;
+
+    /**
+     * Generates the corpus. The {@code serverinfo} response always has a
+     * single item.
+     */
+    @Setup
+    public void setUp() {
+        String data;
+        if(command.equals("clientlist")) {
+            data = Corpus.clientList(rows);
+        } else if(command.equals("channellist")) {
+            data = Corpus.channelList(rows);
+        } else {
+            data = Corpus.serverInfo();
+        }
+
+        response = Corpus.response(data);
+    }
+
+    /**
+     * Constructs a result from the response.
+     * @return the result
+     */
+    @Benchmark
+    public TS3Result result() {
+        return new TS3Result(response);
+    }
+
+    /**
+     * Constructs a columnar table from the response.
+     * @return the table
+     */
+    @Benchmark
+    public TS3Table table() {
+        return new TS3Table(response);
+    }
+}
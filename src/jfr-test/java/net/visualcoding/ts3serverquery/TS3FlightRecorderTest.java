@@ -0,0 +1,41 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3FlightRecorder
+ */
+public class TS3FlightRecorderTest {
+
+    @Test
+    public void testCommandCompleted() throws Exception {
+        TS3FlightRecorder recorder = new TS3FlightRecorder();
+        File file = File.createTempFile("ts3", ".jfr");
+
+        Recording recording = new Recording();
+        recording.enable("net.visualcoding.ts3serverquery.CommandCompleted");
+        recording.start();
+        recorder.commandCompleted("clientlist", 1000, 250000, 11, 4096, 0);
+        recording.stop();
+        recording.dump(file.toPath());
+        recording.close();
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(
+                file.toPath());
+        file.delete();
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("clientlist", event.getString("verb"));
+        assertEquals(250000, event.getDuration("roundTrip").toNanos());
+        assertEquals(4096, event.getLong("bytesIn"));
+    }
+}
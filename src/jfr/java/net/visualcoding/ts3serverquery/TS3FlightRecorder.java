@@ -0,0 +1,317 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Metrics emitting JDK Flight Recorder events, so that a standard recording
+ * shows where the time of a client goes: on the wire, parsing responses,
+ * waiting in the event queue, or in a slow listener. Events are only built
+ * when enabled in the recording, so the overhead is negligible otherwise.
+ * <p>
+ * This class requires JDK 11 or later, and is only compiled when the build
+ * runs on such a JDK.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3FlightRecorder implements TS3Metrics {
+
+    /**
+     * Emits a command sent event.
+     *
+     * @param verb     name of the command
+     * @param bytesOut number of bytes of the command
+     */
+    public void commandSent(String verb, long bytesOut) {
+        CommandSent event = new CommandSent();
+        if(!event.isEnabled()) return;
+
+        event.verb = verb;
+        event.bytesOut = bytesOut;
+        event.commit();
+    }
+
+    /**
+     * Emits a command completed event.
+     *
+     * @param verb      name of the command
+     * @param queueWait time spent waiting for the command mutex
+     * @param roundTrip time between sending and receiving the response
+     * @param bytesOut  number of bytes of the command
+     * @param bytesIn   number of characters of the response
+     * @param errorCode error id of the response
+     */
+    public void commandCompleted(String verb, long queueWait, long roundTrip,
+            long bytesOut, long bytesIn, int errorCode) {
+        CommandCompleted event = new CommandCompleted();
+        if(!event.isEnabled()) return;
+
+        event.verb = verb;
+        event.queueWait = queueWait;
+        event.roundTrip = roundTrip;
+        event.bytesOut = bytesOut;
+        event.bytesIn = bytesIn;
+        event.errorId = errorCode;
+        event.commit();
+    }
+
+    /**
+     * Emits a response parsed event.
+     *
+     * @param verb     name of the command
+     * @param lines    number of lines of the response
+     * @param duration time spent parsing, in nanoseconds
+     */
+    public void responseParsed(String verb, int lines, long duration) {
+        ResponseParsed event = new ResponseParsed();
+        if(!event.isEnabled()) return;
+
+        event.verb = verb;
+        event.lines = lines;
+        event.parseTime = duration;
+        event.commit();
+    }
+
+    /**
+     * Emits a response queued event.
+     * @param depth number of commands still waiting for a response
+     */
+    public void responseQueued(int depth) {
+        ResponseQueued event = new ResponseQueued();
+        if(!event.isEnabled()) return;
+
+        event.depth = depth;
+        event.commit();
+    }
+
+    /**
+     * Emits an event queued event.
+     * @param depth number of queued events
+     */
+    public void eventQueued(int depth) {
+        EventQueued event = new EventQueued();
+        if(!event.isEnabled()) return;
+
+        event.depth = depth;
+        event.commit();
+    }
+
+    /**
+     * Emits an event dropped event.
+     */
+    public void eventDropped() {
+        EventDropped event = new EventDropped();
+        if(event.isEnabled()) event.commit();
+    }
+
+    /**
+     * Emits an event dispatched event.
+     *
+     * @param dispatched dispatched event
+     * @param queueWait  time the event spent in the queue, in nanoseconds
+     * @param duration   time spent in the listeners, in nanoseconds
+     */
+    public void eventDispatched(TS3Event dispatched, long queueWait,
+            long duration) {
+        EventDispatched event = new EventDispatched();
+        if(!event.isEnabled()) return;
+
+        event.eventType = dispatched.getClass().getSimpleName();
+        event.clientId = dispatched.getClientId();
+        event.queueWait = queueWait;
+        event.dispatchTime = duration;
+        event.commit();
+    }
+
+    /**
+     * Emits a listener invoked event.
+     *
+     * @param listener listener that handled the event
+     * @param handled  handled event
+     * @param duration time spent in the listener, in nanoseconds
+     */
+    public void listenerInvoked(TS3EventListener listener, TS3Event handled,
+            long duration) {
+        ListenerInvoked event = new ListenerInvoked();
+        if(!event.isEnabled()) return;
+
+        event.listener = listener.getClass();
+        event.eventType = handled.getClass().getSimpleName();
+        event.listenerTime = duration;
+        event.commit();
+    }
+
+    /**
+     * A command was sent.
+     */
+    @Name("net.visualcoding.ts3serverquery.CommandSent")
+    @Label("Command Sent")
+    @Category({ "TS3ServerQuery", "Commands" })
+    @StackTrace(false)
+    static class CommandSent extends Event {
+        /** Name of the command. */
+        @Label("Verb")
+        String verb;
+
+        /** Number of bytes of the command. */
+        @Label("Bytes Out")
+        @DataAmount
+        long bytesOut;
+    }
+
+    /**
+     * A command received its response.
+     */
+    @Name("net.visualcoding.ts3serverquery.CommandCompleted")
+    @Label("Command Completed")
+    @Category({ "TS3ServerQuery", "Commands" })
+    @StackTrace(false)
+    static class CommandCompleted extends Event {
+        /** Name of the command. */
+        @Label("Verb")
+        String verb;
+
+        /** Time spent waiting for the command mutex. */
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+
+        /** Time between sending the command and receiving its response. */
+        @Label("Round Trip")
+        @Timespan(Timespan.NANOSECONDS)
+        long roundTrip;
+
+        /** Number of bytes of the command. */
+        @Label("Bytes Out")
+        @DataAmount
+        long bytesOut;
+
+        /** Number of characters of the response. */
+        @Label("Bytes In")
+        @DataAmount
+        long bytesIn;
+
+        /** Error id of the response. */
+        @Label("Error Id")
+        int errorId;
+    }
+
+    /**
+     * A response was parsed.
+     */
+    @Name("net.visualcoding.ts3serverquery.ResponseParsed")
+    @Label("Response Parsed")
+    @Category({ "TS3ServerQuery", "Commands" })
+    @StackTrace(false)
+    static class ResponseParsed extends Event {
+        /** Name of the command. */
+        @Label("Verb")
+        String verb;
+
+        /** Number of lines of the response. */
+        @Label("Lines")
+        int lines;
+
+        /** Time spent parsing the response. */
+        @Label("Parse Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long parseTime;
+    }
+
+    /**
+     * A response was handed over. Disabled by default, since command
+     * completions already cover every response.
+     */
+    @Name("net.visualcoding.ts3serverquery.ResponseQueued")
+    @Label("Response Queued")
+    @Category({ "TS3ServerQuery", "Queues" })
+    @Enabled(false)
+    @StackTrace(false)
+    static class ResponseQueued extends Event {
+        /** Number of commands still waiting for a response. */
+        @Label("Depth")
+        int depth;
+    }
+
+    /**
+     * An event was queued for the event thread.
+     */
+    @Name("net.visualcoding.ts3serverquery.EventQueued")
+    @Label("Event Queued")
+    @Category({ "TS3ServerQuery", "Queues" })
+    @StackTrace(false)
+    static class EventQueued extends Event {
+        /** Number of queued events. */
+        @Label("Depth")
+        int depth;
+    }
+
+    /**
+     * An event was dropped because the event queue was full.
+     */
+    @Name("net.visualcoding.ts3serverquery.EventDropped")
+    @Label("Event Dropped")
+    @Description("An event was dropped because the event queue was full")
+    @Category({ "TS3ServerQuery", "Queues" })
+    static class EventDropped extends Event {
+    }
+
+    /**
+     * An event was dispatched to every listener.
+     */
+    @Name("net.visualcoding.ts3serverquery.EventDispatched")
+    @Label("Event Dispatched")
+    @Category({ "TS3ServerQuery", "Events" })
+    @StackTrace(false)
+    static class EventDispatched extends Event {
+        /** Class of the event. */
+        @Label("Event Type")
+        String eventType;
+
+        /** Id of the client that triggered the event. */
+        @Label("Client Id")
+        int clientId;
+
+        /** Time the event spent in the queue. */
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+
+        /** Time spent in the listeners. */
+        @Label("Dispatch Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long dispatchTime;
+    }
+
+    /**
+     * A listener handled an event.
+     */
+    @Name("net.visualcoding.ts3serverquery.ListenerInvoked")
+    @Label("Listener Invoked")
+    @Category({ "TS3ServerQuery", "Events" })
+    @StackTrace(false)
+    static class ListenerInvoked extends Event {
+        /** Class of the listener. */
+        @Label("Listener")
+        Class<?> listener;
+
+        /** Class of the event. */
+        @Label("Event Type")
+        String eventType;
+
+        /** Time spent in the listener. */
+        @Label("Listener Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long listenerTime;
+    }
+}
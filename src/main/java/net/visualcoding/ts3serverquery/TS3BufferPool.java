@@ -0,0 +1,135 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of socket buffers shared across connections. Every connection takes
+ * a read buffer for its {@link TS3LineReader} and a write buffer for its
+ * {@link TS3CommandEncoder}, and returns them once disconnected, so that
+ * clients reconnecting or a fleet of clients do not allocate new buffers
+ * for every connection.
+ * <p>
+ * Buffer sizes are fixed when the pool is constructed. Buffers of other
+ * sizes are not taken back.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3BufferPool {
+
+    /** Default size of the read and write buffers. */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** Default number of pooled buffers of each kind. */
+    public static final int DEFAULT_POOLED_BUFFERS = 16;
+
+    /** Pool shared by the clients that were not given one. */
+    private static final TS3BufferPool SHARED = new TS3BufferPool();
+
+    /** Size of the read buffers. */
+    private final int readBufferSize;
+
+    /** Size of the write buffers. */
+    private final int writeBufferSize;
+
+    /** Pooled read buffers. */
+    private final BlockingQueue<byte[]> readBuffers;
+
+    /** Pooled write buffers. */
+    private final BlockingQueue<byte[]> writeBuffers;
+
+    /**
+     * Constructs a pool of {@value #DEFAULT_POOLED_BUFFERS} buffers of each
+     * kind, all of {@value #DEFAULT_BUFFER_SIZE} bytes.
+     */
+    public TS3BufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_SIZE,
+                DEFAULT_POOLED_BUFFERS);
+    }
+
+    /**
+     * Constructs a pool with the specified buffer sizes.
+     *
+     * @param readBufferSize  size of the read buffers
+     * @param writeBufferSize size of the write buffers, at least {@value
+     *                        TS3CommandEncoder#MIN_BUFFER_SIZE}
+     * @param pooledBuffers   number of pooled buffers of each kind
+     */
+    public TS3BufferPool(int readBufferSize, int writeBufferSize,
+            int pooledBuffers) {
+        if(readBufferSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Read buffer size must be positive");
+        }
+
+        if(writeBufferSize < TS3CommandEncoder.MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException(
+                    "Write buffer size must be at least "
+                    + TS3CommandEncoder.MIN_BUFFER_SIZE);
+        }
+
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
+        readBuffers = new ArrayBlockingQueue<byte[]>(pooledBuffers);
+        writeBuffers = new ArrayBlockingQueue<byte[]>(pooledBuffers);
+    }
+
+    /**
+     * Returns the pool shared by the clients that were not given one.
+     * @return the shared pool
+     */
+    public static TS3BufferPool getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the size of the read buffers.
+     * @return the size of the read buffers
+     */
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    /**
+     * Returns the size of the write buffers.
+     * @return the size of the write buffers
+     */
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    /**
+     * Returns a pooled read buffer, or a new one if none is available.
+     * @return a read buffer
+     */
+    public byte[] acquireReadBuffer() {
+        byte[] buffer = readBuffers.poll();
+        return buffer == null ? new byte[readBufferSize] : buffer;
+    }
+
+    /**
+     * Returns a pooled write buffer, or a new one if none is available.
+     * @return a write buffer
+     */
+    public byte[] acquireWriteBuffer() {
+        byte[] buffer = writeBuffers.poll();
+        return buffer == null ? new byte[writeBufferSize] : buffer;
+    }
+
+    /**
+     * Returns a read buffer to the pool. The buffer must no longer be used.
+     * @param buffer read buffer to return
+     */
+    public void releaseReadBuffer(byte[] buffer) {
+        if(buffer.length == readBufferSize) readBuffers.offer(buffer);
+    }
+
+    /**
+     * Returns a write buffer to the pool. The buffer must no longer be used.
+     * @param buffer write buffer to return
+     */
+    public void releaseWriteBuffer(byte[] buffer) {
+        if(buffer.length == writeBufferSize) writeBuffers.offer(buffer);
+    }
+}
@@ -0,0 +1,148 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.IOException;
+
+/**
+ * A command that can be sent to the TS3 Server Query. A command knows how to
+ * encode itself into a {@link TS3CommandEncoder}, which lets frequently used
+ * commands write pre-encoded fragments instead of building strings.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ * @see TS3Commands
+ * @see TS3CommandTemplate
+ */
+abstract public class TS3Command {
+
+    /**
+     * Returns the name of this command, such as {@code clientlist}.
+     * @return the name of this command
+     */
+    abstract public String getName();
+
+    /**
+     * Encodes this command, without the line ending, into the specified
+     * encoder.
+     *
+     * @param encoder encoder to write this command to
+     * @throws IOException
+     */
+    abstract public void encode(TS3CommandEncoder encoder) throws IOException;
+
+    /**
+     * Returns the command line of this command, as it is sent to the server.
+     * @return the command line of this command
+     */
+    abstract public String toString();
+
+    /**
+     * Returns a command sending the specified command line as is.
+     *
+     * @param line command line to send
+     * @return a command sending the specified command line
+     */
+    public static TS3Command raw(String line) {
+        return new RawCommand(line);
+    }
+
+    /**
+     * Returns a command with the specified name and arguments.
+     *
+     * @param name      name of the command
+     * @param arguments arguments to pass to the command, may be {@code null}
+     * @return a command with the specified name and arguments
+     */
+    public static TS3Command of(String name, TS3Map arguments) {
+        return new MapCommand(name, arguments);
+    }
+
+    /**
+     * Command sent as a raw command line.
+     */
+    private static class RawCommand extends TS3Command {
+        /** Command line. */
+        private String line;
+
+        /**
+         * Constructs a command sending the specified line.
+         * @param line command line to send
+         */
+        public RawCommand(String line) {
+            this.line = line;
+        }
+
+        /**
+         * Returns the first word of the command line.
+         * @return the name of this command
+         */
+        public String getName() {
+            int space = line.indexOf(' ');
+            return space == -1 ? line : line.substring(0, space);
+        }
+
+        /**
+         * Writes the command line as is.
+         * @param encoder encoder to write this command to
+         * @throws IOException
+         */
+        public void encode(TS3CommandEncoder encoder) throws IOException {
+            encoder.writeRaw(line);
+        }
+
+        /**
+         * Returns the command line.
+         * @return the command line
+         */
+        public String toString() {
+            return line;
+        }
+    }
+
+    /**
+     * Command built from a name and a map of arguments.
+     */
+    private static class MapCommand extends TS3Command {
+        /** Name of the command. */
+        private String name;
+
+        /** Arguments of the command. */
+        private TS3Map arguments;
+
+        /**
+         * Constructs a command with the specified name and arguments.
+         * @param name      name of the command
+         * @param arguments arguments of the command, may be {@code null}
+         */
+        public MapCommand(String name, TS3Map arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        /**
+         * Returns the name of the command.
+         * @return the name of this command
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Writes the name followed by the escaped arguments.
+         * @param encoder encoder to write this command to
+         * @throws IOException
+         */
+        public void encode(TS3CommandEncoder encoder) throws IOException {
+            encoder.writeRaw(name);
+            if(arguments != null) encoder.writeMap(arguments);
+        }
+
+        /**
+         * Returns the command line.
+         * @return the command line
+         */
+        public String toString() {
+            if(arguments == null || arguments.isEmpty()) return name;
+            return name + " " + arguments.toString();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes TS3 Server Query commands straight into a reusable UTF-8 buffer.
+ * Command names, keys, and escaped values are written to the buffer without
+ * building any intermediate strings, and the buffer is only written to the
+ * underlying stream when it is full or when {@link #flush()} is called. This
+ * allows several pipelined commands to be sent with a single flush.
+ * <p>
+ * This class is not thread-safe; the server query client only uses it while
+ * holding its command mutex.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3CommandEncoder {
+
+    /** Default size of the buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** Minimum size of the buffer, large enough to hold any integer. */
+    public static final int MIN_BUFFER_SIZE = 16;
+
+    /** Line ending of the TS3 Server Query. */
+    private static final byte[] LINE_ENDING = { '\n', '\r' };
+
+    /** Stream to write the encoded commands to. */
+    private OutputStream out;
+
+    /** Buffer holding the encoded commands that were not yet written. */
+    private ByteBuffer buffer;
+
+    /** Number of bytes drained from the buffer to the stream. */
+    private long drained = 0;
+
+    /**
+     * Constructs an encoder writing to the specified stream with a buffer of
+     * {@value #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param out stream to write the encoded commands to
+     */
+    public TS3CommandEncoder(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs an encoder writing to the specified stream with a buffer of
+     * {@code size} bytes.
+     *
+     * @param out  stream to write the encoded commands to
+     * @param size size of the buffer, at least {@value #MIN_BUFFER_SIZE}
+     */
+    public TS3CommandEncoder(OutputStream out, int size) {
+        if(size < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least "
+                    + MIN_BUFFER_SIZE);
+        }
+
+        this.out = out;
+        this.buffer = ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Constructs an encoder writing to the specified stream through the
+     * specified buffer, such as one taken from a {@link TS3BufferPool}.
+     *
+     * @param out    stream to write the encoded commands to
+     * @param buffer buffer, at least {@value #MIN_BUFFER_SIZE} bytes long
+     */
+    public TS3CommandEncoder(OutputStream out, byte[] buffer) {
+        if(buffer.length < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least "
+                    + MIN_BUFFER_SIZE);
+        }
+
+        this.out = out;
+        this.buffer = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Returns the array backing the buffer of this encoder, so that it can
+     * be returned to its pool once the encoder is no longer used.
+     *
+     * @return the array backing the buffer
+     */
+    public byte[] getBuffer() {
+        return buffer.array();
+    }
+
+    /**
+     * Writes the specified text as is, such as a command name or a raw
+     * command line.
+     *
+     * @param text text to write
+     * @throws IOException
+     */
+    public void writeRaw(String text) throws IOException {
+        encode(text, false);
+    }
+
+    /**
+     * Writes the specified value escaped with the TS3 Server Query escape
+     * characters.
+     *
+     * @param value value to escape and write
+     * @throws IOException
+     * @see TS3Map#escape(String)
+     */
+    public void writeEscaped(String value) throws IOException {
+        encode(value, true);
+    }
+
+    /**
+     * Writes the specified pre-encoded bytes.
+     *
+     * @param bytes bytes to write
+     * @throws IOException
+     */
+    public void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while(offset < bytes.length) {
+            if(!buffer.hasRemaining()) drain();
+
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the decimal representation of the specified integer.
+     *
+     * @param value integer to write
+     * @throws IOException
+     */
+    public void writeInt(int value) throws IOException {
+        // 11 bytes hold the longest integer, -2147483648
+        ensure(11);
+
+        long remaining = value;
+        if(remaining < 0) {
+            buffer.put((byte)'-');
+            remaining = -remaining;
+        }
+
+        // Count the digits, then write them from the most significant one
+        int digits = 1;
+        for(long i = remaining; i >= 10; i /= 10) digits++;
+
+        int start = buffer.position();
+        for(int i = digits - 1; i >= 0; i--) {
+            buffer.put(start + i, (byte)('0' + remaining % 10));
+            remaining /= 10;
+        }
+
+        buffer.position(start + digits);
+    }
+
+    /**
+     * Writes the entries of the specified map, each preceded by a space.
+     * Switches are written as {@code -name}, and keys associated with several
+     * values as {@code key=value1|key=value2}.
+     *
+     * @param map map to write
+     * @throws IOException
+     * @see TS3Map#toString()
+     */
+    public void writeMap(TS3Map map) throws IOException {
+        for(Map.Entry<String, List<String>> entry : map.entrySet()) {
+            ensure(1);
+            buffer.put((byte)' ');
+
+            if(entry.getValue() == null) {
+                // Handle switches
+                ensure(1);
+                buffer.put((byte)'-');
+                encode(entry.getKey(), false);
+                continue;
+            }
+
+            Iterator<String> it = entry.getValue().iterator();
+            while(it.hasNext()) {
+                encode(entry.getKey(), false);
+                ensure(1);
+                buffer.put((byte)'=');
+                encode(it.next(), true);
+
+                // Add a pipe if there are more values
+                if(it.hasNext()) {
+                    ensure(1);
+                    buffer.put((byte)'|');
+                }
+            }
+        }
+    }
+
+    /**
+     * Terminates the current command with the TS3 Server Query line ending.
+     * @throws IOException
+     */
+    public void endLine() throws IOException {
+        writeBytes(LINE_ENDING);
+    }
+
+    /**
+     * Returns the number of bytes encoded so far, including the bytes that
+     * are still buffered.
+     *
+     * @return the number of bytes encoded
+     */
+    public long getByteCount() {
+        return drained + buffer.position();
+    }
+
+    /**
+     * Writes the buffered commands to the underlying stream and flushes it.
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered bytes to the underlying stream without flushing it,
+     * and clears the buffer.
+     *
+     * @throws IOException
+     */
+    private void drain() throws IOException {
+        if(buffer.position() > 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            drained += buffer.position();
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Ensures that at least {@code length} bytes can be put in the buffer.
+     *
+     * @param length number of bytes that are about to be put
+     * @throws IOException
+     */
+    private void ensure(int length) throws IOException {
+        if(buffer.remaining() < length) drain();
+    }
+
+    /**
+     * Encodes the specified string as UTF-8 into the buffer, optionally
+     * escaping it.
+     *
+     * @param str    string to encode
+     * @param escape whether or not to escape the string
+     * @throws IOException
+     */
+    private void encode(String str, boolean escape) throws IOException {
+        int length = str.length();
+
+        for(int i = 0; i < length; i++) {
+            char character = str.charAt(i);
+
+            // 4 bytes hold any UTF-8 sequence as well as escaped characters
+            ensure(4);
+
+            if(character < 0x80) {
+                char escaped = escape ? TS3Map.escapeCharacter(character) : 0;
+
+                if(escaped != 0) {
+                    buffer.put((byte)'\\');
+                    buffer.put((byte)escaped);
+                } else {
+                    buffer.put((byte)character);
+                }
+            } else if(character < 0x800) {
+                buffer.put((byte)(0xc0 | (character >> 6)));
+                buffer.put((byte)(0x80 | (character & 0x3f)));
+            } else if(Character.isHighSurrogate(character) && i + 1 < length
+                    && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(character,
+                        str.charAt(++i));
+
+                buffer.put((byte)(0xf0 | (codePoint >> 18)));
+                buffer.put((byte)(0x80 | ((codePoint >> 12) & 0x3f)));
+                buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3f)));
+                buffer.put((byte)(0x80 | (codePoint & 0x3f)));
+            } else if(character >= Character.MIN_SURROGATE
+                    && character <= Character.MAX_SURROGATE) {
+                // Unpaired surrogate, replace it like the JDK encoder does
+                buffer.put((byte)'?');
+            } else {
+                buffer.put((byte)(0xe0 | (character >> 12)));
+                buffer.put((byte)(0x80 | ((character >> 6) & 0x3f)));
+                buffer.put((byte)(0x80 | (character & 0x3f)));
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * A precompiled command. The name and the parameter keys of the command are
+ * encoded once, when the template is constructed, so that only the bytes of
+ * the argument values are produced when a bound command is sent.
+ * <p>
+ * Parameters are given as keys, such as {@code clid}, or as switches prefixed
+ * with a dash, such as {@code -uid}. For example:
+ * <pre>
+ * {@code
+ * TS3CommandTemplate move = new TS3CommandTemplate("clientmove", "clid",
+ *         "cid");
+ * client.execute(move.bind(5, 2)); // clientmove clid=5 cid=2
+ * }
+ * </pre>
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ * @see TS3Commands
+ */
+public class TS3CommandTemplate {
+
+    /** Charset used by the TS3 Server Query. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Name of the command. */
+    private String name;
+
+    /** Encoded name of the command. */
+    private byte[] encodedName;
+
+    /** Parameters of the command, switches prefixed with a dash. */
+    private String[] parameters;
+
+    /**
+     * Encoded fragments preceding the value of each parameter, such as
+     * {@code " clid="}, or the whole switch, such as {@code " -uid"}.
+     */
+    private byte[][] fragments;
+
+    /**
+     * Constructs a template for the command with the specified name and
+     * parameters.
+     *
+     * @param name       name of the command
+     * @param parameters keys of the parameters of the command, or switches
+     *                   prefixed with a dash
+     */
+    public TS3CommandTemplate(String name, String... parameters) {
+        this.name = name;
+        this.parameters = parameters.clone();
+
+        encodedName = name.getBytes(UTF8);
+        fragments = new byte[parameters.length][];
+
+        for(int i = 0; i < parameters.length; i++) {
+            String fragment = " " + parameters[i];
+            if(!isSwitch(i)) fragment += "=";
+
+            fragments[i] = fragment.getBytes(UTF8);
+        }
+    }
+
+    /**
+     * Returns the name of the command.
+     * @return the name of the command
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns a command binding the specified values to the parameters of
+     * this template, in order. Values may be {@code Integer} or
+     * {@code String} objects, and {@code Boolean} objects for switches, which
+     * are only sent when {@code true}. Parameters bound to {@code null} are
+     * omitted.
+     *
+     * @param values values of the parameters
+     * @return a command with the specified values
+     */
+    public TS3Command bind(Object... values) {
+        if(values.length != parameters.length) {
+            throw new IllegalArgumentException(name + " expects "
+                    + parameters.length + " values");
+        }
+
+        return new BoundCommand(values);
+    }
+
+    /**
+     * Returns {@code true} if the parameter at the specified index is a
+     * switch.
+     *
+     * @param index index of the parameter
+     * @return {@code true} if the parameter is a switch
+     */
+    private boolean isSwitch(int index) {
+        return parameters[index].startsWith("-");
+    }
+
+    /**
+     * Returns {@code true} if the parameter at the specified index is sent
+     * with the specified value.
+     *
+     * @param index index of the parameter
+     * @param value value bound to the parameter
+     * @return {@code true} if the parameter is sent
+     */
+    private boolean isSent(int index, Object value) {
+        if(value == null) return false;
+        if(isSwitch(index)) return Boolean.TRUE.equals(value);
+        return true;
+    }
+
+    /**
+     * A command bound to the values of its parameters.
+     */
+    private class BoundCommand extends TS3Command {
+        /** Values of the parameters. */
+        private Object[] values;
+
+        /**
+         * Constructs a command with the specified values.
+         * @param values values of the parameters
+         */
+        public BoundCommand(Object[] values) {
+            this.values = values;
+        }
+
+        /**
+         * Returns the name of the command.
+         * @return the name of the command
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Writes the pre-encoded fragments followed by the values.
+         * @param encoder encoder to write this command to
+         * @throws IOException
+         */
+        public void encode(TS3CommandEncoder encoder) throws IOException {
+            encoder.writeBytes(encodedName);
+
+            for(int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if(!isSent(i, value)) continue;
+
+                encoder.writeBytes(fragments[i]);
+                if(isSwitch(i)) continue;
+
+                if(value instanceof Integer) {
+                    encoder.writeInt(((Integer)value).intValue());
+                } else {
+                    encoder.writeEscaped(value.toString());
+                }
+            }
+        }
+
+        /**
+         * Returns the command line.
+         * @return the command line
+         */
+        public String toString() {
+            StringBuilder sb = new StringBuilder(name);
+
+            for(int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if(!isSent(i, value)) continue;
+
+                sb.append(' ');
+                sb.append(parameters[i]);
+
+                if(!isSwitch(i)) {
+                    sb.append('=');
+                    sb.append(TS3Map.escape(value.toString()));
+                }
+            }
+
+            return sb.toString();
+        }
+    }
+}
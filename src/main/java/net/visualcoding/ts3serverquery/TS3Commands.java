@@ -0,0 +1,251 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Typed builders for frequently used commands. Every builder binds its
+ * arguments to a precompiled {@link TS3CommandTemplate}, so only the bytes of
+ * the arguments are produced when the command is sent.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public final class TS3Commands {
+
+    /** Names of the commands that do not modify the server. */
+    private static final Set<String> READ_ONLY = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList("version", "hostinfo",
+                    "instanceinfo", "serverlist", "serverinfo", "whoami",
+                    "clientlist", "clientinfo", "clientfind", "clientdblist",
+                    "clientdbinfo", "clientdbfind", "clientgetids",
+                    "clientgetdbidfromuid", "clientgetnamefromuid",
+                    "clientgetnamefromdbid", "channellist", "channelinfo",
+                    "channelfind", "servergrouplist", "servergroupclientlist",
+                    "servergroupsbyclientid", "channelgrouplist",
+                    "permissionlist", "banlist", "complainlist")));
+
+    /** Template of the {@code login} command. */
+    private static final TS3CommandTemplate LOGIN =
+            new TS3CommandTemplate("login", "client_login_name",
+                    "client_login_password");
+
+    /** Template of the {@code use} command. */
+    private static final TS3CommandTemplate USE =
+            new TS3CommandTemplate("use", "sid");
+
+    /** Template of the {@code whoami} command. */
+    private static final TS3CommandTemplate WHO_AM_I =
+            new TS3CommandTemplate("whoami");
+
+    /** Template of the {@code clientlist} command. */
+    private static final TS3CommandTemplate CLIENT_LIST =
+            new TS3CommandTemplate("clientlist", "-uid", "-away", "-voice",
+                    "-groups");
+
+    /** Template of the {@code clientinfo} command. */
+    private static final TS3CommandTemplate CLIENT_INFO =
+            new TS3CommandTemplate("clientinfo", "clid");
+
+    /** Template of the {@code clientmove} command. */
+    private static final TS3CommandTemplate CLIENT_MOVE =
+            new TS3CommandTemplate("clientmove", "clid", "cid", "cpw");
+
+    /** Template of the {@code clientkick} command. */
+    private static final TS3CommandTemplate CLIENT_KICK =
+            new TS3CommandTemplate("clientkick", "clid", "reasonid",
+                    "reasonmsg");
+
+    /** Template of the {@code sendtextmessage} command. */
+    private static final TS3CommandTemplate SEND_TEXT_MESSAGE =
+            new TS3CommandTemplate("sendtextmessage", "targetmode", "target",
+                    "msg");
+
+    /** Template of the {@code servernotifyregister} command. */
+    private static final TS3CommandTemplate SERVER_NOTIFY_REGISTER =
+            new TS3CommandTemplate("servernotifyregister", "event", "id");
+
+    /**
+     * Prevents instantiation.
+     */
+    private TS3Commands() {
+    }
+
+    /**
+     * Returns {@code true} if the command with the specified name only reads
+     * from the server, so that executing it several times has the same
+     * effect as executing it once.
+     *
+     * @param name name of the command
+     * @return {@code true} if the command does not modify the server
+     */
+    public static boolean isReadOnly(String name) {
+        return READ_ONLY.contains(name);
+    }
+
+    /**
+     * Returns a {@code login} command with the specified credentials.
+     *
+     * @param username login name of the query account
+     * @param password password of the query account
+     * @return a {@code login} command
+     */
+    public static TS3Command login(String username, String password) {
+        return LOGIN.bind(username, password);
+    }
+
+    /**
+     * Returns a {@code use} command selecting the specified virtual server.
+     *
+     * @param serverId id of the virtual server
+     * @return a {@code use} command
+     */
+    public static TS3Command use(int serverId) {
+        return USE.bind(serverId);
+    }
+
+    /**
+     * Returns a {@code whoami} command.
+     * @return a {@code whoami} command
+     */
+    public static TS3Command whoAmI() {
+        return WHO_AM_I.bind();
+    }
+
+    /**
+     * Returns a {@code clientlist} command with the specified switches.
+     *
+     * @param uid    whether or not to include the unique ids of the clients
+     * @param away   whether or not to include the away status of the clients
+     * @param voice  whether or not to include the voice status of the clients
+     * @param groups whether or not to include the server groups of the
+     *               clients
+     * @return a {@code clientlist} command
+     */
+    public static TS3Command clientList(boolean uid, boolean away,
+            boolean voice, boolean groups) {
+        return CLIENT_LIST.bind(Boolean.valueOf(uid), Boolean.valueOf(away),
+                Boolean.valueOf(voice), Boolean.valueOf(groups));
+    }
+
+    /**
+     * Returns a {@code clientinfo} command for the specified client.
+     *
+     * @param clientId id of the client
+     * @return a {@code clientinfo} command
+     */
+    public static TS3Command clientInfo(int clientId) {
+        return CLIENT_INFO.bind(clientId);
+    }
+
+    /**
+     * Returns a {@code clientmove} command moving the specified client to the
+     * specified channel.
+     *
+     * @param clientId  id of the client to move
+     * @param channelId id of the channel to move the client to
+     * @return a {@code clientmove} command
+     */
+    public static TS3Command clientMove(int clientId, int channelId) {
+        return clientMove(clientId, channelId, null);
+    }
+
+    /**
+     * Returns a {@code clientmove} command moving the specified client to the
+     * specified password protected channel.
+     *
+     * @param clientId  id of the client to move
+     * @param channelId id of the channel to move the client to
+     * @param password  password of the channel, or {@code null}
+     * @return a {@code clientmove} command
+     */
+    public static TS3Command clientMove(int clientId, int channelId,
+            String password) {
+        return CLIENT_MOVE.bind(clientId, channelId, password);
+    }
+
+    /**
+     * Returns a {@code clientkick} command kicking the specified client.
+     *
+     * @param clientId id of the client to kick
+     * @param reason   whether to kick the client from its channel or from
+     *                 the server
+     * @param message  reason message, or {@code null}
+     * @return a {@code clientkick} command
+     */
+    public static TS3Command clientKick(int clientId, KickReason reason,
+            String message) {
+        return CLIENT_KICK.bind(clientId, reason.getValue(), message);
+    }
+
+    /**
+     * Returns a {@code sendtextmessage} command sending the specified
+     * message.
+     *
+     * @param mode    target mode of the message
+     * @param target  id of the client, channel, or server to send to
+     * @param message message to send
+     * @return a {@code sendtextmessage} command
+     */
+    public static TS3Command sendTextMessage(TS3MessageEvent.Mode mode,
+            int target, String message) {
+        return SEND_TEXT_MESSAGE.bind(mode.getValue(), target, message);
+    }
+
+    /**
+     * Returns a {@code servernotifyregister} command registering the
+     * specified event.
+     *
+     * @param event name of the event to register
+     * @return a {@code servernotifyregister} command
+     */
+    public static TS3Command serverNotifyRegister(String event) {
+        return SERVER_NOTIFY_REGISTER.bind(event, null);
+    }
+
+    /**
+     * Returns a {@code servernotifyregister} command registering the
+     * specified event for the specified channel.
+     *
+     * @param event     name of the event to register
+     * @param channelId id of the channel
+     * @return a {@code servernotifyregister} command
+     */
+    public static TS3Command serverNotifyRegister(String event,
+            int channelId) {
+        return SERVER_NOTIFY_REGISTER.bind(event, channelId);
+    }
+
+    /**
+     * Reason of a kick.
+     */
+    public static enum KickReason {
+        /** Kick the client from its channel. */
+        Channel(4),
+        /** Kick the client from the server. */
+        Server(5);
+
+        /** Integer value of this reason. */
+        private final int value;
+
+        /**
+         * Constructs this reason with the specified integer value.
+         * @param value value of this reason
+         */
+        KickReason(int value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the integer value of this reason.
+         * @return the integer value of this reason
+         */
+        public int getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,589 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of events, written in a compact binary encoding to
+ * memory-mapped segment files. The journal is an event listener, so it is
+ * registered on a client like any other listener. Events are handed to a
+ * writer thread through a bounded queue without blocking the event thread;
+ * events that do not fit in the queue are dropped and counted.
+ * <p>
+ * A new segment is started when the current one is full or older than the
+ * maximum segment age, and the oldest segments are deleted once there are
+ * more than the maximum number of segments. Journals are read back in order
+ * with {@link #replay(File, Handler)}.
+ * <p>
+ * Every segment starts with the {@value #MAGIC} magic number, followed by
+ * the records. A record is its length, the event type, the time the event
+ * was journaled, the client id, name and unique id, and the fields of the
+ * event type. A record length of 0 marks the end of a segment.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3EventJournal implements TS3EventListener {
+
+    /** Magic number at the start of every segment. */
+    public static final int MAGIC = 0x54533331;
+
+    /** Default size of a segment, in bytes. */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /** Default maximum age of a segment, in milliseconds. */
+    public static final long DEFAULT_SEGMENT_AGE = 60 * 60 * 1000L;
+
+    /** Default maximum number of retained segments. */
+    public static final int DEFAULT_MAX_SEGMENTS = 48;
+
+    /** Default size of the queue of events waiting to be written. */
+    public static final int DEFAULT_QUEUE_SIZE = 4096;
+
+    /** Extension of segment files. */
+    public static final String EXTENSION = ".ts3j";
+
+    /** Record type of connect events. */
+    private static final byte CONNECTED = 1;
+
+    /** Record type of disconnect events. */
+    private static final byte DISCONNECTED = 2;
+
+    /** Record type of move events. */
+    private static final byte MOVED = 3;
+
+    /** Record type of message events. */
+    private static final byte MESSAGE = 4;
+
+    /** Largest encoded size of a record, other than its strings. */
+    private static final int RECORD_OVERHEAD = 4 + 1 + 8 + 4 + 3 * 4 + 8;
+
+    /**
+     * Marker queued to stop the writer thread. The writer is not interrupted,
+     * since that would close the file channel it is mapping.
+     */
+    private static final TS3Event STOP = new TS3ClientConnectedEvent(null, 0,
+            null);
+
+    /** Charset of encoded strings. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(
+            TS3EventJournal.class);
+
+    /** Directory containing the segments. */
+    private File directory;
+
+    /** Size of a segment, in bytes. */
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    /** Maximum age of a segment, in milliseconds. */
+    private long segmentAge = DEFAULT_SEGMENT_AGE;
+
+    /** Maximum number of retained segments. */
+    private int maxSegments = DEFAULT_MAX_SEGMENTS;
+
+    /** Events waiting to be written. */
+    private BlockingQueue<TS3Event> queue;
+
+    /** Thread factory of the writer thread. */
+    private ThreadFactory threadFactory;
+
+    /** Thread writing the events. */
+    private Thread writer;
+
+    /** Whether the writer thread stopped on an error. */
+    private volatile boolean failed = false;
+
+    /** Mapped buffer of the current segment. */
+    private MappedByteBuffer segment;
+
+    /** Time the current segment was started. */
+    private long segmentStarted;
+
+    /** Number of the next segment. */
+    private long segmentNumber = 0;
+
+    /** Number of events written. */
+    private final AtomicLong written = new AtomicLong();
+
+    /** Number of events dropped because the queue was full. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Constructs a journal writing segments to the specified directory.
+     * @param directory directory containing the segments
+     */
+    public TS3EventJournal(File directory) {
+        this(directory, DEFAULT_QUEUE_SIZE, new TS3ThreadFactory());
+    }
+
+    /**
+     * Constructs a journal writing segments to the specified directory.
+     *
+     * @param directory     directory containing the segments
+     * @param queueSize     size of the queue of events waiting to be written
+     * @param threadFactory thread factory of the writer thread
+     */
+    public TS3EventJournal(File directory, int queueSize,
+            ThreadFactory threadFactory) {
+        this.directory = directory;
+        this.threadFactory = threadFactory;
+        queue = new ArrayBlockingQueue<TS3Event>(queueSize);
+    }
+
+    /**
+     * Sets the size of the segments started from now on.
+     * @param segmentSize size of a segment, in bytes
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Sets the age after which a new segment is started.
+     * @param segmentAge maximum age of a segment, in milliseconds
+     */
+    public void setSegmentAge(long segmentAge) {
+        this.segmentAge = segmentAge;
+    }
+
+    /**
+     * Sets the maximum number of retained segments.
+     * @param maxSegments maximum number of retained segments
+     */
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Returns the number of events written to the journal.
+     * @return the number of events written to the journal
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Returns the number of events dropped because the writer fell behind.
+     * @return the number of events dropped
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns whether the writer thread stopped because the journal could
+     * not be written. Events are then dropped until the journal is opened
+     * again.
+     *
+     * @return {@code true} if the writer thread stopped on an error
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Starts the writer thread.
+     * @throws IOException if the directory could not be created
+     */
+    public synchronized void open() throws IOException {
+        if(writer != null) return;
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        failed = false;
+        writer = threadFactory.newThread(new Runnable() {
+            public void run() {
+                write();
+            }
+        });
+        writer.start();
+    }
+
+    /**
+     * Writes the queued events, and stops the writer thread. Nothing is
+     * queued if the writer thread already stopped on an error.
+     */
+    public synchronized void close() {
+        if(writer == null) return;
+
+        try {
+            // Give up on the stop marker once the writer is gone
+            while(writer.isAlive()) {
+                if(queue.offer(STOP, 100, TimeUnit.MILLISECONDS)) break;
+            }
+            writer.join();
+            queue.remove(STOP);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    /**
+     * Queues a copy of an event to be written, dropping it if the queue is
+     * full or the writer thread stopped on an error. The event is copied
+     * since it may come from a {@link TS3EventPool}, and be refilled with
+     * another notification before it is written.
+     *
+     * @param event event to journal
+     */
+    public void append(TS3Event event) {
+        if(failed || !queue.offer(copy(event))) dropped.incrementAndGet();
+    }
+
+    /**
+     * Returns a copy of the specified event. Events of other types than the
+     * journaled ones are returned as is.
+     *
+     * @param event event to copy
+     * @return a copy of the event
+     */
+    private static TS3Event copy(TS3Event event) {
+        String name = event.getClientName();
+        int id = event.getClientId();
+        String uid = event.getClientUid();
+
+        if(event instanceof TS3ClientMovedEvent) {
+            TS3ClientMovedEvent moved = (TS3ClientMovedEvent) event;
+            return new TS3ClientMovedEvent(name, id, uid, moved.getSource(),
+                    moved.getDestination());
+        } else if(event instanceof TS3MessageEvent) {
+            TS3MessageEvent message = (TS3MessageEvent) event;
+            return new TS3MessageEvent(name, id, uid, message.getMessage(),
+                    message.getMode());
+        } else if(event instanceof TS3ClientConnectedEvent) {
+            return new TS3ClientConnectedEvent(name, id, uid);
+        } else if(event instanceof TS3ClientDisconnectedEvent) {
+            return new TS3ClientDisconnectedEvent(name, id, uid);
+        }
+
+        return event;
+    }
+
+    /**
+     * Queues the event to be written.
+     * @param event Event object containing the details of the event
+     */
+    public void onClientMoved(TS3ClientMovedEvent event) {
+        append(event);
+    }
+
+    /**
+     * Queues the event to be written.
+     * @param event Event object containing the details of the event
+     */
+    public void onClientConnected(TS3ClientConnectedEvent event) {
+        append(event);
+    }
+
+    /**
+     * Queues the event to be written.
+     * @param event Event object containing the details of the event
+     */
+    public void onClientDisconnected(TS3ClientDisconnectedEvent event) {
+        append(event);
+    }
+
+    /**
+     * Queues the event to be written.
+     * @param event Event object containing the details of the event
+     */
+    public void onMessage(TS3MessageEvent event) {
+        append(event);
+    }
+
+    /**
+     * Writes queued events until stopped, then releases the current segment.
+     */
+    private void write() {
+        try {
+            TS3Event event;
+            while((event = queue.take()) != STOP) {
+                record(event);
+            }
+        } catch(IOException e) {
+            logger.error("Unable to write event journal", e);
+
+            // Stop queueing, and drop what is left
+            failed = true;
+            dropped.addAndGet(queue.size());
+            queue.clear();
+        } catch(InterruptedException e) {
+            logger.debug("Journal writer interrupted");
+        }
+
+        if(segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    /**
+     * Writes an event to the current segment, starting a new segment if
+     * needed.
+     *
+     * @param event event to write
+     * @throws IOException if a new segment could not be started
+     */
+    private void record(TS3Event event) throws IOException {
+        byte type;
+        if(event instanceof TS3ClientMovedEvent) {
+            type = MOVED;
+        } else if(event instanceof TS3MessageEvent) {
+            type = MESSAGE;
+        } else if(event instanceof TS3ClientConnectedEvent) {
+            type = CONNECTED;
+        } else if(event instanceof TS3ClientDisconnectedEvent) {
+            type = DISCONNECTED;
+        } else {
+            return;
+        }
+
+        byte[] name = encode(event.getClientName());
+        byte[] uid = encode(event.getClientUid());
+        byte[] message = null;
+        if(type == MESSAGE) {
+            message = encode(((TS3MessageEvent) event).getMessage());
+        }
+
+        int length = RECORD_OVERHEAD + length(name) + length(uid)
+                + length(message);
+        long now = System.currentTimeMillis();
+
+        if(length + 4 > segmentSize - 4) {
+            logger.warn("Event too large to journal: {}", event);
+            return;
+        }
+
+        if(segment == null || segment.remaining() < length + 4
+                || now - segmentStarted >= segmentAge) {
+            roll(now);
+        }
+
+        int start = segment.position();
+        segment.putInt(0);
+        segment.put(type);
+        segment.putLong(now);
+        segment.putInt(event.getClientId());
+        putBytes(segment, name);
+        putBytes(segment, uid);
+
+        if(type == MOVED) {
+            TS3ClientMovedEvent moved = (TS3ClientMovedEvent) event;
+            segment.putInt(moved.getSource());
+            segment.putInt(moved.getDestination());
+        } else if(type == MESSAGE) {
+            TS3MessageEvent.Mode mode = ((TS3MessageEvent) event).getMode();
+            segment.putInt(mode == null ? 0 : mode.getValue());
+            putBytes(segment, message);
+        }
+
+        // Write the length last, so that a partial record reads as the end
+        segment.putInt(start, segment.position() - start);
+        written.incrementAndGet();
+    }
+
+    /**
+     * Starts a new segment, and deletes the oldest segments beyond the
+     * retention limit.
+     *
+     * @param now current time
+     * @throws IOException if the segment could not be created
+     */
+    private void roll(long now) throws IOException {
+        if(segment != null) segment.force();
+
+        File file = new File(directory, String.format("%013d-%06d%s", now,
+                segmentNumber++, EXTENSION));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    segmentSize);
+        } finally {
+            raf.close();
+        }
+
+        segment.putInt(MAGIC);
+        segmentStarted = now;
+        logger.debug("Started journal segment {}", file);
+
+        File[] segments = list(directory);
+        for(int i = 0; i < segments.length - maxSegments; i++) {
+            if(!segments[i].delete()) {
+                logger.warn("Unable to delete journal segment {}",
+                        segments[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads every event of the journal in the specified directory, in the
+     * order they were written. Reading stops early once the current thread
+     * is interrupted, for instance by the handler.
+     *
+     * @param directory directory containing the segments
+     * @param handler   handler receiving the events
+     * @return the number of events read
+     * @throws IOException if a segment could not be read
+     */
+    public static long replay(File directory, Handler handler)
+            throws IOException {
+        long count = 0;
+
+        for(File file : list(directory)) {
+            if(Thread.currentThread().isInterrupted()) break;
+
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            ByteBuffer buffer;
+            try {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        0, raf.length());
+            } finally {
+                raf.close();
+            }
+
+            if(buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a journal segment: " + file);
+            }
+
+            while(buffer.remaining() >= 4) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                if(length <= 0) break;
+
+                byte type = buffer.get();
+                long time = buffer.getLong();
+                int id = buffer.getInt();
+                String name = getString(buffer);
+                String uid = getString(buffer);
+
+                TS3Event event;
+                if(type == MOVED) {
+                    event = new TS3ClientMovedEvent(name, id, uid,
+                            buffer.getInt(), buffer.getInt());
+                } else if(type == MESSAGE) {
+                    int mode = buffer.getInt();
+                    event = new TS3MessageEvent(name, id, uid,
+                            getString(buffer), mode);
+                } else if(type == CONNECTED) {
+                    event = new TS3ClientConnectedEvent(name, id, uid);
+                } else {
+                    event = new TS3ClientDisconnectedEvent(name, id, uid);
+                }
+
+                buffer.position(start + length);
+                handler.onEvent(time, event);
+                count++;
+
+                if(Thread.currentThread().isInterrupted()) break;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the segments in the specified directory, oldest first.
+     * @param directory directory containing the segments
+     * @return the segments, oldest first
+     */
+    static File[] list(File directory) {
+        File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(EXTENSION);
+            }
+        });
+        if(files == null) return new File[0];
+
+        // Names start with the zero padded creation time
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a string, or {@code null}.
+     * @param value string to encode
+     * @return the UTF-8 bytes of the string, or {@code null}
+     */
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(UTF8);
+    }
+
+    /**
+     * Returns the encoded length of a byte array.
+     * @param bytes encoded string, may be {@code null}
+     * @return the number of bytes of the string
+     */
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * Writes an encoded string preceded by its length, -1 being null.
+     * @param buffer buffer to write to
+     * @param bytes  encoded string, may be {@code null}
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if(bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #putBytes(ByteBuffer, byte[])}.
+     * @param buffer buffer to read from
+     * @return the string, or {@code null}
+     */
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if(length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Receives the events read from a journal.
+     */
+    public static interface Handler {
+
+        /**
+         * An event was read from the journal.
+         *
+         * @param time  time the event was journaled, in milliseconds since
+         *              the epoch
+         * @param event event read from the journal
+         */
+        public void onEvent(long time, TS3Event event);
+
+    }
+}
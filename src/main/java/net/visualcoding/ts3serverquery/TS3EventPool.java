@@ -0,0 +1,135 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of event objects reused by the event thread. Once every listener
+ * handled an event, the event is returned to the pool and later refilled
+ * with the fields of another notification, so that a notification storm
+ * produces almost no garbage.
+ * <p>
+ * Listeners must not keep references to pooled events after handling them,
+ * and must copy the events they keep, as the {@link TS3EventJournal} does.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ * @see TS3EventThread#setEventPool(TS3EventPool)
+ */
+public class TS3EventPool {
+
+    /** Default number of pooled events of each type. */
+    public static final int DEFAULT_SIZE = 64;
+
+    /** Pooled message events. */
+    private final BlockingQueue<TS3MessageEvent> messages;
+
+    /** Pooled connect events. */
+    private final BlockingQueue<TS3ClientConnectedEvent> connected;
+
+    /** Pooled disconnect events. */
+    private final BlockingQueue<TS3ClientDisconnectedEvent> disconnected;
+
+    /** Pooled move events. */
+    private final BlockingQueue<TS3ClientMovedEvent> moved;
+
+    /**
+     * Constructs a pool of {@value #DEFAULT_SIZE} events of each type.
+     */
+    public TS3EventPool() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a pool of the specified number of events of each type.
+     * @param size number of pooled events of each type
+     */
+    public TS3EventPool(int size) {
+        messages = new ArrayBlockingQueue<TS3MessageEvent>(size);
+        connected = new ArrayBlockingQueue<TS3ClientConnectedEvent>(size);
+        disconnected = new ArrayBlockingQueue<TS3ClientDisconnectedEvent>(
+                size);
+        moved = new ArrayBlockingQueue<TS3ClientMovedEvent>(size);
+    }
+
+    /**
+     * Returns a pooled message event, or a new one if none is available.
+     * @return a message event
+     */
+    public TS3MessageEvent message() {
+        TS3MessageEvent event = messages.poll();
+        return event == null ? new TS3MessageEvent() : event;
+    }
+
+    /**
+     * Returns a pooled connect event, or a new one if none is available.
+     * @return a connect event
+     */
+    public TS3ClientConnectedEvent connected() {
+        TS3ClientConnectedEvent event = connected.poll();
+        return event == null ? new TS3ClientConnectedEvent(null, 0, null)
+                : event;
+    }
+
+    /**
+     * Returns a pooled disconnect event, or a new one if none is available.
+     * @return a disconnect event
+     */
+    public TS3ClientDisconnectedEvent disconnected() {
+        TS3ClientDisconnectedEvent event = disconnected.poll();
+        return event == null ? new TS3ClientDisconnectedEvent(null, 0, null)
+                : event;
+    }
+
+    /**
+     * Returns a pooled move event, or a new one if none is available.
+     * @return a move event
+     */
+    public TS3ClientMovedEvent moved() {
+        TS3ClientMovedEvent event = moved.poll();
+        return event == null ? new TS3ClientMovedEvent() : event;
+    }
+
+    /**
+     * Returns an event to the pool. Events of other classes, including
+     * subclasses of the pooled classes, are ignored, as are events beyond
+     * the size of the pool.
+     *
+     * @param event event to return
+     */
+    public void release(TS3Event event) {
+        Class<?> type = event.getClass();
+
+        // Drop the references to the strings of the event
+        if(type == TS3MessageEvent.class) {
+            TS3MessageEvent message = (TS3MessageEvent) event;
+            message.setMessage(null);
+            clear(event);
+            messages.offer(message);
+        } else if(type == TS3ClientConnectedEvent.class) {
+            clear(event);
+            connected.offer((TS3ClientConnectedEvent) event);
+        } else if(type == TS3ClientDisconnectedEvent.class) {
+            clear(event);
+            disconnected.offer((TS3ClientDisconnectedEvent) event);
+        } else if(type == TS3ClientMovedEvent.class) {
+            clear(event);
+            moved.offer((TS3ClientMovedEvent) event);
+        }
+    }
+
+    /**
+     * Clears the client fields of an event.
+     * @param event event to clear
+     */
+    private static void clear(TS3Event event) {
+        event.setClientName(null);
+        event.setClientUid(null);
+    }
+}
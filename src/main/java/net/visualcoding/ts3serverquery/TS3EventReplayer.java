@@ -0,0 +1,475 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Replays recorded traffic through an event thread into event listeners, to
+ * measure how the listeners hold up against real traffic. Traffic is either
+ * raw query lines, or events read from a {@link TS3EventJournal}.
+ * <p>
+ * A raw line may start with the time it was received in milliseconds,
+ * followed by a space. Only {@code notify} lines are replayed; other lines
+ * are skipped. Recorded times are replayed faster or slower according to the
+ * time scale, and ignored when the time scale is 0.
+ * <p>
+ * Every replay returns a {@link Report} with the throughput of the replay and
+ * the time spent in each listener. The thread dispatching the events of a
+ * replay is stopped before the replay returns.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3EventReplayer {
+
+    /** Queue size of the event thread. */
+    private static final int QUEUE_SIZE = 1024;
+
+    /** Unconnected client owning the event thread. */
+    private TS3ServerQueryClient client;
+
+    /** Timed wrappers of the listeners. */
+    private List<TimedListener> listeners = new ArrayList<TimedListener>();
+
+    /** Replay speed relative to the recorded times, 0 being unpaced. */
+    private double timeScale = 1.0;
+
+    /** Recorded time of the first replayed event, or -1. */
+    private long firstRecorded;
+
+    /** Wall clock time the first event was replayed, in nanoseconds. */
+    private long firstReplayed;
+
+    /** Thread running the event thread of the current replay. */
+    private Thread worker;
+
+    /**
+     * Constructs a replayer that replays at the recorded speed.
+     */
+    public TS3EventReplayer() {
+        client = new TS3ServerQueryClient("localhost");
+    }
+
+    /**
+     * Adds a listener to receive the replayed events.
+     * @param listener listener to receive the replayed events
+     */
+    public void addListener(TS3EventListener listener) {
+        listeners.add(new TimedListener(listener));
+    }
+
+    /**
+     * Sets the replay speed relative to the recorded times. A time scale of
+     * 10 replays ten times faster than recorded, and a time scale of 0
+     * replays as fast as the listeners allow.
+     *
+     * @param timeScale replay speed, 0 being unpaced
+     */
+    public void setTimeScale(double timeScale) {
+        this.timeScale = timeScale;
+    }
+
+    /**
+     * Replays raw query lines, optionally prefixed with their recorded time.
+     *
+     * @param lines reader of the lines
+     * @return report of the replay
+     * @throws IOException if the lines could not be read
+     * @throws InterruptedException if interrupted while replaying
+     */
+    public Report replayLines(Reader lines)
+            throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(lines);
+        TS3EventThread thread = start();
+        long events = 0;
+
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                long recorded = -1;
+                int space = line.indexOf(' ');
+
+                if(space > 0 && Character.isDigit(line.charAt(0))) {
+                    try {
+                        recorded = Long.parseLong(line.substring(0, space));
+                        line = line.substring(space + 1);
+                    } catch(NumberFormatException e) {
+                        recorded = -1;
+                    }
+                }
+
+                if(!line.startsWith("notify") || line.indexOf(' ') < 0) {
+                    continue;
+                }
+
+                pace(recorded);
+                thread.notify(line);
+                events++;
+            }
+
+            return finish(thread, events);
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Replays the events of the journal in the specified directory.
+     *
+     * @param directory directory containing the journal segments
+     * @return report of the replay
+     * @throws IOException if the journal could not be read
+     * @throws InterruptedException if interrupted while replaying
+     */
+    public Report replayJournal(File directory)
+            throws IOException, InterruptedException {
+        final TS3EventThread thread = start();
+
+        try {
+            // Interrupting the journal stops it after the current event
+            long events = TS3EventJournal.replay(directory,
+                    new TS3EventJournal.Handler() {
+                public void onEvent(long time, TS3Event event) {
+                    try {
+                        pace(time);
+                        thread.notify(event);
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            if(Thread.interrupted()) throw new InterruptedException();
+            return finish(thread, events);
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Starts an event thread dispatching to the timed listeners.
+     * @return the started event thread
+     */
+    private TS3EventThread start() {
+        TS3EventThread thread = new TS3EventThread(client, QUEUE_SIZE);
+        for(TimedListener listener : listeners) {
+            listener.reset();
+            thread.addListener(listener);
+        }
+
+        firstRecorded = -1;
+        firstReplayed = System.nanoTime();
+        worker = client.getThreadFactory().newThread(thread);
+        worker.start();
+        return thread;
+    }
+
+    /**
+     * Stops the event thread of the replay and waits for it to terminate.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void stop() throws InterruptedException {
+        worker.interrupt();
+        worker.join();
+    }
+
+    /**
+     * Returns the thread running the event thread of the last replay.
+     * @return the thread of the last replay, or {@code null}
+     */
+    Thread getWorker() {
+        return worker;
+    }
+
+    /**
+     * Waits for the replayed events to be dispatched.
+     *
+     * @param thread event thread of the replay
+     * @param events number of replayed events
+     * @return report of the replay
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private Report finish(TS3EventThread thread, long events)
+            throws InterruptedException {
+        // Every event queued before the barrier has been dispatched once the
+        // barrier is executed
+        final CountDownLatch latch = new CountDownLatch(1);
+        TS3EventListener barrier = new Barrier();
+        thread.addListener(barrier);
+        thread.notify(new TS3Event() {
+            public void execute(TS3EventListener listener) {
+                latch.countDown();
+            }
+        });
+
+        latch.await();
+        long elapsed = System.nanoTime() - firstReplayed;
+        thread.removeListener(barrier);
+
+        return new Report(events, elapsed,
+                new ArrayList<TimedListener>(listeners));
+    }
+
+    /**
+     * Waits until an event recorded at the specified time is due.
+     *
+     * @param recorded recorded time of the event, or -1 if unknown
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void pace(long recorded) throws InterruptedException {
+        if(timeScale <= 0 || recorded < 0) return;
+
+        if(firstRecorded < 0) {
+            firstRecorded = recorded;
+            firstReplayed = System.nanoTime();
+            return;
+        }
+
+        long due = firstReplayed + (long) ((recorded - firstRecorded)
+                * 1000000L / timeScale);
+        long wait = due - System.nanoTime();
+        if(wait > 0) Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+    }
+
+    /**
+     * Listener measuring the time spent in the listener it wraps.
+     */
+    private static class TimedListener implements TS3EventListener {
+        /** Wrapped listener. */
+        private final TS3EventListener listener;
+
+        /** Number of events dispatched to the listener. */
+        private long invocations;
+
+        /** Total time spent in the listener, in nanoseconds. */
+        private long totalTime;
+
+        /** Longest time spent handling an event, in nanoseconds. */
+        private long maxTime;
+
+        /**
+         * Constructs a timed wrapper of the specified listener.
+         * @param listener listener to wrap
+         */
+        public TimedListener(TS3EventListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Clears the measurements.
+         */
+        public void reset() {
+            invocations = 0;
+            totalTime = 0;
+            maxTime = 0;
+        }
+
+        /**
+         * Records the time spent handling an event.
+         * @param start time the listener was invoked, in nanoseconds
+         */
+        private void record(long start) {
+            long time = System.nanoTime() - start;
+            invocations++;
+            totalTime += time;
+            if(time > maxTime) maxTime = time;
+        }
+
+        /**
+         * Forwards the event to the wrapped listener.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientMoved(TS3ClientMovedEvent event) {
+            long start = System.nanoTime();
+            listener.onClientMoved(event);
+            record(start);
+        }
+
+        /**
+         * Forwards the event to the wrapped listener.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientConnected(TS3ClientConnectedEvent event) {
+            long start = System.nanoTime();
+            listener.onClientConnected(event);
+            record(start);
+        }
+
+        /**
+         * Forwards the event to the wrapped listener.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientDisconnected(TS3ClientDisconnectedEvent event) {
+            long start = System.nanoTime();
+            listener.onClientDisconnected(event);
+            record(start);
+        }
+
+        /**
+         * Forwards the event to the wrapped listener.
+         * @param event Event object containing the details of the event
+         */
+        public void onMessage(TS3MessageEvent event) {
+            long start = System.nanoTime();
+            listener.onMessage(event);
+            record(start);
+        }
+    }
+
+    /**
+     * Listener ensuring the end of replay marker is executed.
+     */
+    private static class Barrier implements TS3EventListener {
+        /**
+         * Ignores the event.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientMoved(TS3ClientMovedEvent event) {
+        }
+
+        /**
+         * Ignores the event.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientConnected(TS3ClientConnectedEvent event) {
+        }
+
+        /**
+         * Ignores the event.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientDisconnected(TS3ClientDisconnectedEvent event) {
+        }
+
+        /**
+         * Ignores the event.
+         * @param event Event object containing the details of the event
+         */
+        public void onMessage(TS3MessageEvent event) {
+        }
+    }
+
+    /**
+     * Throughput and per listener latency of a replay.
+     */
+    public static class Report {
+        /** Number of replayed events. */
+        private final long events;
+
+        /** Duration of the replay, in nanoseconds. */
+        private final long elapsed;
+
+        /** Timed listeners of the replay. */
+        private final List<TimedListener> listeners;
+
+        /**
+         * Constructs a report.
+         *
+         * @param events    number of replayed events
+         * @param elapsed   duration of the replay, in nanoseconds
+         * @param listeners timed listeners of the replay
+         */
+        Report(long events, long elapsed, List<TimedListener> listeners) {
+            this.events = events;
+            this.elapsed = elapsed;
+            this.listeners = listeners;
+        }
+
+        /**
+         * Returns the number of replayed events.
+         * @return the number of replayed events
+         */
+        public long getEvents() {
+            return events;
+        }
+
+        /**
+         * Returns the duration of the replay, in nanoseconds.
+         * @return the duration of the replay, in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsed;
+        }
+
+        /**
+         * Returns the number of events replayed per second.
+         * @return the number of events replayed per second
+         */
+        public double getThroughput() {
+            return elapsed == 0 ? 0 : events * 1e9 / elapsed;
+        }
+
+        /**
+         * Returns the number of listeners.
+         * @return the number of listeners
+         */
+        public int getListenerCount() {
+            return listeners.size();
+        }
+
+        /**
+         * Returns the listener at the specified index, in order of addition.
+         * @param index index of the listener
+         * @return the listener
+         */
+        public TS3EventListener getListener(int index) {
+            return listeners.get(index).listener;
+        }
+
+        /**
+         * Returns the number of events dispatched to a listener.
+         * @param index index of the listener
+         * @return the number of events dispatched to the listener
+         */
+        public long getInvocations(int index) {
+            return listeners.get(index).invocations;
+        }
+
+        /**
+         * Returns the mean time a listener spent handling an event.
+         * @param index index of the listener
+         * @return the mean time spent handling an event, in nanoseconds
+         */
+        public long getMeanNanos(int index) {
+            TimedListener listener = listeners.get(index);
+            return listener.invocations == 0 ? 0
+                    : listener.totalTime / listener.invocations;
+        }
+
+        /**
+         * Returns the longest time a listener spent handling an event.
+         * @param index index of the listener
+         * @return the longest time spent handling an event, in nanoseconds
+         */
+        public long getMaxNanos(int index) {
+            return listeners.get(index).maxTime;
+        }
+
+        public String toString() {
+            StringBuilder builder = new StringBuilder(String.format(
+                    "Replayed %d events in %.1f ms (%.0f events/s)", events,
+                    elapsed / 1e6, getThroughput()));
+
+            for(int i = 0; i < listeners.size(); i++) {
+                builder.append(String.format(
+                        "%n  %s: %d events, mean %.1f us, max %.1f us",
+                        getListener(i).getClass().getName(),
+                        getInvocations(i), getMeanNanos(i) / 1e3,
+                        getMaxNanos(i) / 1e3));
+            }
+
+            return builder.toString();
+        }
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Iterator;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This thread listens for events and executes them all under a single thread.
@@ -25,18 +26,75 @@ import java.util.concurrent.TimeUnit;
  */
 public class TS3EventThread extends Thread {
 
-    /** The default size of the blocking queue. */
-    public static final int DEFAULT_QUEUE_SIZE = 25;
+    /**
+     * The default size of the blocking queue. Notifications read from the
+     * socket are dropped rather than waited on when the queue is full, so
+     * the queue is sized to absorb bursts.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    /** Name of text message notifications. */
+    private static final String TEXT_MESSAGE = "notifytextmessage";
+
+    /** Name of client move notifications. */
+    private static final String CLIENT_MOVED = "notifyclientmoved";
+
+    /** Name of client leave notifications. */
+    private static final String CLIENT_LEFT = "notifyclientleftview";
+
+    /** Name of client enter notifications. */
+    private static final String CLIENT_ENTERED = "notifycliententerview";
+
+    /** Interval between the logs of dropped events, in nanoseconds. */
+    private static final long DROP_LOG_INTERVAL =
+            TimeUnit.SECONDS.toNanos(10);
 
     /** Server query client that spawned this event thread. */
     private TS3ServerQueryClient serverQueryClient;
 
     /** Blocking queue containing events that need to be handled. */
-    private BlockingQueue<TS3Event> eventQueue;
+    private BlockingQueue<Queued> eventQueue;
 
     /** Event listeners. */
     private List<TS3EventListener> listeners;
 
+    /** Sequence number of the last queued event. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Number of events dropped because the queue stayed full. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Time dropped events were last logged, in nanoseconds. */
+    private final AtomicLong dropLogged = new AtomicLong();
+
+    /** Number of dropped events when they were last logged. */
+    private final AtomicLong dropsLogged = new AtomicLong();
+
+    /** Capacity of the event queue. */
+    private final int queueCapacity;
+
+    /** Thread running this event thread, {@code null} unless running. */
+    private volatile Thread worker;
+
+    /** Listener currently handling an event, or {@code null}. */
+    private volatile TS3EventListener currentListener;
+
+    /** Event currently being handled, or {@code null}. */
+    private volatile TS3Event currentEvent;
+
+    /** Time the current listener was invoked, in nanoseconds. */
+    private volatile long currentStart;
+
+    /** Decoder of raw notification lines. */
+    private final TS3NotificationDecoder decoder =
+            new TS3NotificationDecoder();
+
+    /** Queue holders available for reuse. */
+    private final BlockingQueue<Queued> holders;
+
+    /** Pool of event objects, or {@code null} if events are not reused. */
+    private volatile TS3EventPool eventPool;
+
     /**
      * Constructs an event thread with a queue size of {@value
      * DEFAULT_QUEUE_SIZE}.
@@ -61,7 +119,9 @@ public class TS3EventThread extends Thread {
                 new LinkedList<TS3EventListener>());
 
         // Blocking queue for events
-        eventQueue = new ArrayBlockingQueue(queueSize);
+        eventQueue = new ArrayBlockingQueue<Queued>(queueSize);
+        holders = new ArrayBlockingQueue<Queued>(queueSize);
+        queueCapacity = queueSize;
     }
 
     /**
@@ -110,72 +170,439 @@ public class TS3EventThread extends Thread {
         return false;
     }
 
+    /**
+     * Returns whether any listener is registered.
+     * @return {@code true} if a listener is registered
+     */
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Returns the sequence number of the last queued event. Sequence numbers
+     * are carried over restarts through the snapshots of the polling thread.
+     *
+     * @return the sequence number of the last queued event
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Sets the sequence number of the last queued event.
+     * @param sequence sequence number of the last queued event
+     */
+    public void setSequence(long sequence) {
+        this.sequence.set(sequence);
+    }
+
+    /**
+     * Returns the number of events waiting to be handled.
+     * @return the number of queued events
+     */
+    public int getQueueSize() {
+        return eventQueue.size();
+    }
+
+    /**
+     * Returns the capacity of the event queue.
+     * @return the capacity of the event queue
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the number of events dropped because the queue stayed full.
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the pool event objects are taken from.
+     * @return the event pool, or {@code null} if events are not reused
+     */
+    public TS3EventPool getEventPool() {
+        return eventPool;
+    }
+
+    /**
+     * Sets the pool event objects are taken from and returned to once every
+     * listener handled them. Pooling is disabled by default, since listeners
+     * must then not keep references to events.
+     *
+     * @param eventPool event pool, or {@code null} to disable pooling
+     */
+    public void setEventPool(TS3EventPool eventPool) {
+        this.eventPool = eventPool;
+    }
+
+    /**
+     * Returns the thread running this event thread, which differs from this
+     * object when run by a thread factory.
+     *
+     * @return the running thread, or {@code null} if not running
+     */
+    Thread getWorker() {
+        return worker;
+    }
+
+    /**
+     * Returns the listener currently handling an event.
+     * @return the current listener, or {@code null} if idle
+     */
+    TS3EventListener getCurrentListener() {
+        return currentListener;
+    }
+
+    /**
+     * Returns the event currently being handled.
+     * @return the current event, or {@code null} if idle
+     */
+    TS3Event getCurrentEvent() {
+        return currentEvent;
+    }
+
+    /**
+     * Returns the time the current listener was invoked.
+     * @return the time the current listener was invoked, in nanoseconds
+     */
+    long getCurrentStart() {
+        return currentStart;
+    }
+
     /**
      * Executes this event thread.
      */
     public void run() {
+        worker = Thread.currentThread();
+
         try {
 
             // Loop through all events in the queue, blocking until an event
             // is present.
-            TS3Event event;
-            while((event = eventQueue.take()) != null) {
+            Queued queued;
+            while((queued = eventQueue.take()) != null) {
+                TS3Event event = queued.event;
+                long time = queued.time;
+                TS3Metrics metrics = serverQueryClient.getMetrics();
 
-                // Execute the event for all of the listeners
+                // Hand the holder back for reuse
+                queued.event = null;
+                holders.offer(queued);
+
+                // Execute the event for all of the listeners, publishing
+                // the current listener for the watchdog
+                long start = System.nanoTime();
+                long previous = start;
+                currentEvent = event;
                 for(TS3EventListener listener : listeners) {
+                    currentStart = previous;
+                    currentListener = listener;
                     event.execute(listener);
+
+                    long now = System.nanoTime();
+                    if(metrics != TS3Metrics.NONE) {
+                        metrics.listenerInvoked(listener, event,
+                                now - previous);
+                    }
+                    previous = now;
+                }
+                currentListener = null;
+                currentEvent = null;
+
+                if(metrics != TS3Metrics.NONE) {
+                    long wait = time == 0 ? 0 : start - time;
+                    metrics.eventDispatched(event, wait, previous - start);
                 }
 
+                TS3EventPool pool = eventPool;
+                if(pool != null) pool.release(event);
             }
 
         } catch(InterruptedException e) {
             serverQueryClient.getLogger().debug("Event thread interrupted");
         }
 
+        // Let the next event start this event thread again on reconnect
+        worker = null;
         serverQueryClient.getLogger().info("Event thread terminated");
     }
 
     /**
-     * Notify the event listeners that an event has occurred.
+     * Notify the event listeners that an event has occurred. The line is
+     * dispatched on the length and name of the notification, and only the
+     * needed fields are extracted from it.
+     *
      * @param notification Raw notification string from the TS3 Server Query.
      */
     public void notify(String notification) {
-        // Split into the notification type and it's values
-        String[] parts = notification.split("\\s+", 2);
-        TS3Map map = new TS3Map(parts[1]);
-
-        if(parts[0].equalsIgnoreCase("notifytextmessage")) {
-            int id = map.getInteger("invokerid").intValue();
-            int mode = map.getInteger("targetmode").intValue();
+        decode(notification, true);
+    }
 
-            TS3MessageEvent event = new TS3MessageEvent(
-                map.get("invokername"),
-                id,
-                map.get("invokeruid")
-            );
+    /**
+     * Notify the event listeners that an event has occurred, without waiting
+     * for room in the queue. Events that do not fit are dropped and counted,
+     * so that the input thread never stalls command responses behind slow
+     * listeners.
+     *
+     * @param notification Raw notification string from the TS3 Server Query.
+     */
+    void post(String notification) {
+        decode(notification, false);
+    }
 
-            event.setMode(mode);
-            event.setMessage(map.get("msg"));
+    /**
+     * Decodes a notification and queues its events.
+     *
+     * @param notification Raw notification string from the TS3 Server Query.
+     * @param wait         whether to wait for room in the queue
+     */
+    private void decode(String notification, boolean wait) {
+        synchronized(decoder) {
+            if(!decoder.reset(notification)) return;
 
-            notify(event);
+            switch(decoder.getNameLength()) {
+                case 17:
+                    if(notification.startsWith(TEXT_MESSAGE)) {
+                        textMessage(wait);
+                    } else if(notification.startsWith(CLIENT_MOVED)) {
+                        clientsMoved(wait);
+                    }
+                    break;
+                case 20:
+                    if(notification.startsWith(CLIENT_LEFT)) {
+                        clientsLeft(wait);
+                    }
+                    break;
+                case 21:
+                    if(notification.startsWith(CLIENT_ENTERED)) {
+                        clientsEntered(wait);
+                    }
+                    break;
+            }
         }
     }
 
+    /**
+     * Queues the text message held by the decoder.
+     * @param wait whether to wait for room in the queue
+     */
+    private void textMessage(boolean wait) {
+        TS3EventPool pool = eventPool;
+        TS3MessageEvent event = pool == null ? new TS3MessageEvent()
+                : pool.message();
+
+        event.setClientName(decoder.getString("invokername"));
+        event.setClientId(decoder.getInt("invokerid", 0));
+        event.setClientUid(serverQueryClient.getUidDictionary().intern(
+                decoder.getString("invokeruid")));
+        event.setMode(decoder.getInt("targetmode", 0));
+        event.setMessage(decoder.getString("msg"));
+
+        queue(event, wait);
+    }
+
+    /**
+     * Queues a connect event for every client held by the decoder, and adds
+     * the clients to the server state, if any.
+     *
+     * @param wait whether to wait for room in the queue
+     */
+    private void clientsEntered(boolean wait) {
+        TS3EventPool pool = eventPool;
+        TS3ServerState state = serverQueryClient.getServerState();
+        int destination = decoder.getInt("ctid", 0);
+        do {
+            TS3ClientConnectedEvent event = pool == null
+                    ? new TS3ClientConnectedEvent(null, 0, null)
+                    : pool.connected();
+
+            String name = decoder.getString("client_nickname");
+            String uid = serverQueryClient.getUidDictionary().intern(
+                    decoder.getString("client_unique_identifier"));
+            int id = decoder.getInt("clid", 0);
+
+            event.setClientName(name);
+            event.setClientId(id);
+            event.setClientUid(uid);
+
+            if(state != null) {
+                state.clientEntered(id,
+                        decoder.getInt("client_database_id", 0),
+                        decoder.getInt("ctid", destination), name, uid,
+                        decoder.getString("client_servergroups"));
+            }
+
+            queue(event, wait);
+        } while(decoder.nextItem());
+    }
+
+    /**
+     * Queues a disconnect event for every client held by the decoder, and
+     * removes the clients from the server state. The name and unique id are
+     * taken from the server state; they are unknown, and left {@code null},
+     * when no server state is attached or the client entered before it was.
+     *
+     * @param wait whether to wait for room in the queue
+     */
+    private void clientsLeft(boolean wait) {
+        TS3EventPool pool = eventPool;
+        TS3ServerState state = serverQueryClient.getServerState();
+        do {
+            TS3ClientDisconnectedEvent event = pool == null
+                    ? new TS3ClientDisconnectedEvent(null, 0, null)
+                    : pool.disconnected();
+
+            int id = decoder.getInt("clid", 0);
+            TS3ServerState.Client client = state == null ? null
+                    : state.clientLeft(id);
+            event.setClientId(id);
+            if(client != null) {
+                event.setClientName(client.getNickname());
+                event.setClientUid(client.getUid());
+            }
+
+            queue(event, wait);
+        } while(decoder.nextItem());
+    }
+
+    /**
+     * Queues a move event for every client held by the decoder, and moves
+     * the clients in the server state. The name, unique id, and source
+     * channel are taken from the server state; they are unknown, and left
+     * {@code null} or 0, when no server state is attached or the client
+     * entered before it was.
+     *
+     * @param wait whether to wait for room in the queue
+     */
+    private void clientsMoved(boolean wait) {
+        TS3EventPool pool = eventPool;
+        TS3ServerState state = serverQueryClient.getServerState();
+        int destination = decoder.getInt("ctid", 0);
+        do {
+            TS3ClientMovedEvent event = pool == null
+                    ? new TS3ClientMovedEvent() : pool.moved();
+
+            int id = decoder.getInt("clid", 0);
+            int target = decoder.getInt("ctid", destination);
+            TS3ServerState.Client client = state == null ? null
+                    : state.clientMoved(id, target);
+            event.setClientId(id);
+            event.setDestination(target);
+            if(client != null) {
+                event.setClientName(client.getNickname());
+                event.setClientUid(client.getUid());
+                event.setSource(client.getChannelId());
+            } else {
+                event.setSource(0);
+            }
+
+            queue(event, wait);
+        } while(decoder.nextItem());
+    }
+
     /**
      * Notify the event thread that an event has occurred.
      * @param event TS3Event to queue for handling.
      */
     public void notify(final TS3Event event) {
-        serverQueryClient.getLogger().debug(event.toString());
+        queue(event, true);
+    }
+
+    /**
+     * Queues an event for handling. The result cache of the client, if any,
+     * is invalidated first, even if the event is then dropped.
+     *
+     * @param event TS3Event to queue for handling.
+     * @param wait  whether to wait up to 5 seconds for room in the queue
+     */
+    private void queue(TS3Event event, boolean wait) {
+        TS3ResultCache cache = serverQueryClient.getResultCache();
+        if(cache != null) event.execute(cache);
+
+        // Start lazily, once the first event needs handling
+        if(worker == null) serverQueryClient.startEventThread();
+
+        if(serverQueryClient.getLogger().isDebugEnabled()) {
+            serverQueryClient.getLogger().debug(event.toString());
+        }
+
+        TS3Metrics metrics = serverQueryClient.getMetrics();
+        Queued queued = holders.poll();
+        if(queued == null) queued = new Queued();
+        queued.event = event;
+        queued.time = metrics == TS3Metrics.NONE ? 0 : System.nanoTime();
 
         try {
             // Queue the event
-            if(!eventQueue.offer(event, 5, TimeUnit.SECONDS)) {
-                serverQueryClient.getLogger().error(
-                        "Unable to queue event due to timeout");
+            boolean queuedEvent = wait
+                    ? eventQueue.offer(queued, 5, TimeUnit.SECONDS)
+                    : eventQueue.offer(queued);
+
+            if(queuedEvent) {
+                sequence.incrementAndGet();
+                metrics.eventQueued(eventQueue.size());
+            } else {
+                dropped(wait);
+                metrics.eventDropped();
+                discard(queued);
             }
         } catch(InterruptedException e) {
-            // ... Do nothing
+            discard(queued);
+
+            // Let the caller see the interrupt
+            Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Counts a dropped event. The first drop is logged, then the number of
+     * drops at most every 10 seconds, so that a notification storm does not
+     * flood the log from the input thread.
+     *
+     * @param wait whether the event was dropped after waiting for room
+     */
+    private void dropped(boolean wait) {
+        long total = dropped.incrementAndGet();
+        long now = System.nanoTime();
+        long last = dropLogged.get();
+
+        if(total != 1 && now - last < DROP_LOG_INTERVAL) return;
+        if(!dropLogged.compareAndSet(last, now)) return;
+
+        serverQueryClient.getLogger().error("{}, {} events dropped since "
+                + "the last report", wait
+                ? "Unable to queue event due to timeout"
+                : "Unable to queue event, the queue is full",
+                total - dropsLogged.getAndSet(total));
+    }
+
+    /**
+     * Hands back the holder of an event that was not queued, and returns
+     * the event to the pool, if any.
+     *
+     * @param queued holder of the event
+     */
+    private void discard(Queued queued) {
+        TS3Event event = queued.event;
+        queued.event = null;
+        holders.offer(queued);
+
+        TS3EventPool pool = eventPool;
+        if(pool != null) pool.release(event);
+    }
+
+    /**
+     * An event waiting in the queue.
+     */
+    private static class Queued {
+        /** Queued event. */
+        private TS3Event event;
+
+        /** Time the event was queued in nanoseconds, 0 if not measured. */
+        private long time;
+    }
 }
@@ -0,0 +1,283 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+/**
+ * Watches the event thread of a client for listeners that take too long and
+ * for an event queue that is filling up. A slow listener delays every
+ * following event, and once the queue is full, the notifications posted by
+ * the input thread are dropped rather than queued, so listeners miss them.
+ * <p>
+ * The watchdog samples the event thread periodically. When a listener has
+ * been handling the same event for longer than the listener threshold, or
+ * the queue is fuller than the queue threshold, the handler is called with
+ * the details. The default handler logs a warning with the class of the
+ * offending listener and a sample of its stack.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3EventWatchdog {
+
+    /** Default time a listener may handle an event, in milliseconds. */
+    public static final long DEFAULT_LISTENER_THRESHOLD = 1000;
+
+    /** Default fraction of the queue that may be filled. */
+    public static final double DEFAULT_QUEUE_THRESHOLD = 0.8;
+
+    /** Default interval between samples, in milliseconds. */
+    public static final long DEFAULT_INTERVAL = 250;
+
+    /** Client whose event thread is watched. */
+    private final TS3ServerQueryClient client;
+
+    /** Handler called when a threshold is crossed. */
+    private final Handler handler;
+
+    /** Time a listener may handle an event, in nanoseconds. */
+    private volatile long listenerThreshold =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_LISTENER_THRESHOLD);
+
+    /** Fraction of the queue that may be filled. */
+    private volatile double queueThreshold = DEFAULT_QUEUE_THRESHOLD;
+
+    /** Scheduler sampling the event thread. */
+    private ScheduledExecutorService scheduler;
+
+    /** Invocation start of the last reported slow listener. */
+    private long reportedStart = -1;
+
+    /** Whether or not the queue is currently reported as saturated. */
+    private boolean saturated = false;
+
+    /** Number of slow listener invocations reported. */
+    private volatile long slowListeners = 0;
+
+    /** Number of times the queue was reported as saturated. */
+    private volatile long saturations = 0;
+
+    /**
+     * Constructs a watchdog logging to the logger of the client.
+     * @param client client whose event thread is watched
+     */
+    public TS3EventWatchdog(TS3ServerQueryClient client) {
+        this(client, new LoggingHandler(client.getLogger()));
+    }
+
+    /**
+     * Constructs a watchdog calling the specified handler.
+     *
+     * @param client  client whose event thread is watched
+     * @param handler handler called when a threshold is crossed
+     */
+    public TS3EventWatchdog(TS3ServerQueryClient client, Handler handler) {
+        this.client = client;
+        this.handler = handler;
+    }
+
+    /**
+     * Sets the time a listener may handle an event before it is reported.
+     * @param millis time in milliseconds
+     */
+    public void setListenerThreshold(long millis) {
+        listenerThreshold = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Sets the fraction of the event queue that may be filled before it is
+     * reported.
+     *
+     * @param fraction fraction of the queue between 0 and 1
+     */
+    public void setQueueThreshold(double fraction) {
+        queueThreshold = fraction;
+    }
+
+    /**
+     * Returns the number of slow listener invocations reported.
+     * @return the number of slow listener invocations reported
+     */
+    public long getSlowListeners() {
+        return slowListeners;
+    }
+
+    /**
+     * Returns the number of times the queue was reported as saturated.
+     * @return the number of queue saturations reported
+     */
+    public long getSaturations() {
+        return saturations;
+    }
+
+    /**
+     * Returns the number of events dropped because the queue stayed full.
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents() {
+        return client.getEventThread().getDroppedEvents();
+    }
+
+    /**
+     * Starts sampling the event thread every {@value #DEFAULT_INTERVAL}
+     * milliseconds.
+     */
+    public void start() {
+        start(DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Starts sampling the event thread at the specified interval.
+     * @param interval interval between samples, in milliseconds
+     */
+    public synchronized void start(long interval) {
+        if(scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new TS3ThreadFactory("TS3-watchdog", true));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    check();
+                } catch(RuntimeException e) {
+                    client.getLogger().error("Watchdog handler failed", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling the event thread.
+     */
+    public synchronized void stop() {
+        if(scheduler == null) return;
+
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Samples the event thread once, calling the handler for every threshold
+     * crossed since the previous sample.
+     */
+    void check() {
+        TS3EventThread thread = client.getEventThread();
+
+        // Read the listener before its start time, see TS3EventThread
+        TS3EventListener listener = thread.getCurrentListener();
+        TS3Event event = thread.getCurrentEvent();
+        long start = thread.getCurrentStart();
+        long elapsed = System.nanoTime() - start;
+
+        // Report every slow invocation once
+        if(listener != null && elapsed > listenerThreshold
+                && start != reportedStart) {
+            reportedStart = start;
+            slowListeners++;
+
+            Thread worker = thread.getWorker();
+            StackTraceElement[] stack = worker == null
+                    ? new StackTraceElement[0] : worker.getStackTrace();
+
+            handler.onSlowListener(listener, event,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), stack);
+        }
+
+        // Report the queue once when it fills up, then again only after it
+        // drained below the threshold
+        int size = thread.getQueueSize();
+        int capacity = thread.getQueueCapacity();
+        boolean full = size >= capacity * queueThreshold;
+
+        if(full && !saturated) {
+            saturations++;
+            handler.onQueueSaturated(size, capacity,
+                    thread.getDroppedEvents());
+        }
+        saturated = full;
+    }
+
+    /**
+     * Receives the reports of the watchdog.
+     */
+    public static interface Handler {
+
+        /**
+         * A listener has been handling an event for longer than the
+         * threshold.
+         *
+         * @param listener listener handling the event
+         * @param event    event being handled, may be {@code null} if it
+         *                 just completed
+         * @param elapsed  time spent so far, in milliseconds
+         * @param stack    stack of the event thread when sampled
+         */
+        public void onSlowListener(TS3EventListener listener, TS3Event event,
+                long elapsed, StackTraceElement[] stack);
+
+        /**
+         * The event queue is fuller than the threshold.
+         *
+         * @param size     number of queued events
+         * @param capacity capacity of the queue
+         * @param dropped  number of events dropped so far
+         */
+        public void onQueueSaturated(int size, int capacity, long dropped);
+
+    }
+
+    /**
+     * Handler logging warnings.
+     */
+    public static class LoggingHandler implements Handler {
+        /** Logger to log to. */
+        private final Logger logger;
+
+        /**
+         * Constructs a handler logging to the specified logger.
+         * @param logger logger to log to
+         */
+        public LoggingHandler(Logger logger) {
+            this.logger = logger;
+        }
+
+        /**
+         * Logs the listener class and its stack.
+         *
+         * @param listener listener handling the event
+         * @param event    event being handled
+         * @param elapsed  time spent so far, in milliseconds
+         * @param stack    stack of the event thread when sampled
+         */
+        public void onSlowListener(TS3EventListener listener, TS3Event event,
+                long elapsed, StackTraceElement[] stack) {
+            StringBuilder builder = new StringBuilder();
+            for(StackTraceElement element : stack) {
+                builder.append("\n\tat ").append(element);
+            }
+
+            logger.warn("Listener {} has been handling {} for {} ms{}",
+                    new Object[] { listener.getClass().getName(),
+                        event == null ? "an event"
+                            : event.getClass().getSimpleName(),
+                        elapsed, builder });
+        }
+
+        /**
+         * Logs the fill level of the queue.
+         *
+         * @param size     number of queued events
+         * @param capacity capacity of the queue
+         * @param dropped  number of events dropped so far
+         */
+        public void onQueueSaturated(int size, int capacity, long dropped) {
+            logger.warn("Event queue is saturated: {} of {} events queued, "
+                    + "{} dropped", new Object[] { size, capacity, dropped });
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+
+/**
+ * The {@code TS3FleetEventListener} interface receives the aggregated event
+ * stream of all the servers managed by a {@link TS3FleetManager}. Every event
+ * is tagged with the server query client of the host it originated from.
+ * <p>
+ * Events of different hosts are delivered from their own event threads,
+ * possibly at the same time, so implementations must be thread-safe.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public interface TS3FleetEventListener {
+
+    /**
+     * An event occurred on one of the hosts of the fleet.
+     *
+     * @param source server query client of the host that triggered the event
+     * @param event  event object containing the details of the event
+     */
+    public void onEvent(TS3ServerQueryClient source, TS3Event event);
+
+}
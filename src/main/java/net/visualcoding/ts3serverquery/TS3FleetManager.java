@@ -0,0 +1,396 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages a fleet of Teamspeak 3 servers. Rather than having every
+ * {@link TS3ServerQueryClient} spawn its own {@link TS3PollingThread}, the
+ * fleet owns a single scheduler that triggers the polls of every host and a
+ * single I/O executor that performs them.
+ * <p>
+ * Polls are staggered evenly across the polling interval so that the load on
+ * the network and on the fleet is smoothed out, instead of every host being
+ * polled at uncoordinated times. The events of every host are aggregated into
+ * a single stream delivered to {@link TS3FleetEventListener}s, tagged with the
+ * client of the host they originated from. Fleet listeners are called from
+ * the event threads of every host, possibly at the same time, so they must
+ * be thread-safe.
+ * <p>
+ * Clients are added to the fleet once they are connected and logged in:
+ * <pre>
+ * {@code
+ * TS3FleetManager fleet = new TS3FleetManager();
+ * fleet.addEventListener(listener);
+ *
+ * TS3ServerQueryClient client = new TS3ServerQueryClient("host1");
+ * client.connect();
+ * client.execute("login username password");
+ * client.execute("use sid=1");
+ *
+ * fleet.addClient(client);
+ * }
+ * </pre>
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3FleetManager {
+
+    /** Default time in milliseconds between two polls of the same host. */
+    public static final int DEFAULT_POLL_INTERVAL = 500;
+
+    /** Default number of threads in the I/O executor. */
+    public static final int DEFAULT_IO_THREADS = 4;
+
+    /** Time in milliseconds to wait for polls in progress on shutdown. */
+    public static final long SHUTDOWN_TIMEOUT = 5000;
+
+    /** Scheduler that triggers the polls of every host. */
+    private ScheduledExecutorService scheduler;
+
+    /** Executor performing the blocking I/O of the fleet. */
+    private ExecutorService ioExecutor;
+
+    /** Time in milliseconds between two polls of the same host. */
+    private int pollInterval;
+
+    /** Hosts managed by this fleet. */
+    private List<Host> hosts;
+
+    /** Listeners receiving the aggregated event stream. */
+    private CopyOnWriteArrayList<TS3FleetEventListener> listeners;
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(
+            TS3FleetManager.class);
+
+    /**
+     * Constructs a fleet manager with the default poll interval of
+     * {@value #DEFAULT_POLL_INTERVAL} milliseconds and
+     * {@value #DEFAULT_IO_THREADS} I/O threads.
+     */
+    public TS3FleetManager() {
+        this(DEFAULT_POLL_INTERVAL, DEFAULT_IO_THREADS);
+    }
+
+    /**
+     * Constructs a fleet manager with the specified poll interval and number
+     * of I/O threads.
+     *
+     * @param pollInterval time in milliseconds between two polls of the same
+     *                     host
+     * @param ioThreads    number of threads in the I/O executor
+     */
+    public TS3FleetManager(int pollInterval, int ioThreads) {
+        this(pollInterval, ioThreads, new TS3ThreadFactory("TS3-fleet", true));
+    }
+
+    /**
+     * Constructs a fleet manager with the specified poll interval and number
+     * of I/O threads, whose scheduler and I/O threads are created by the
+     * specified factory.
+     *
+     * @param pollInterval  time in milliseconds between two polls of the
+     *                      same host
+     * @param ioThreads     number of threads in the I/O executor
+     * @param threadFactory factory creating the threads of this fleet
+     * @see TS3ThreadFactory#virtual()
+     */
+    public TS3FleetManager(int pollInterval, int ioThreads,
+            ThreadFactory threadFactory) {
+        this.pollInterval = pollInterval;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        ioExecutor = Executors.newFixedThreadPool(ioThreads, threadFactory);
+
+        hosts = new ArrayList<Host>();
+        listeners = new CopyOnWriteArrayList<TS3FleetEventListener>();
+    }
+
+    /**
+     * Returns the time in milliseconds between two polls of the same host.
+     * @return the time in milliseconds between two polls of the same host
+     */
+    public int getPollInterval() {
+        return pollInterval;
+    }
+
+    /**
+     * Returns the server query clients managed by this fleet.
+     * @return the server query clients managed by this fleet
+     */
+    public synchronized List<TS3ServerQueryClient> getClients() {
+        List<TS3ServerQueryClient> clients;
+        clients = new ArrayList<TS3ServerQueryClient>(hosts.size());
+
+        for(Host host : hosts) clients.add(host.client);
+        return clients;
+    }
+
+    /**
+     * Submits a task to the I/O executor of this fleet, such as connecting
+     * and logging in a client before it is added to the fleet.
+     *
+     * @param task task to execute
+     * @return a Future representing the pending completion of the task
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return ioExecutor.submit(task);
+    }
+
+    /**
+     * Adds a listener to receive the aggregated events of every host.
+     * @param listener Listener to add
+     */
+    public void addEventListener(TS3FleetEventListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Removes the specified listener.
+     * @param listener Listener to remove
+     */
+    public void removeEventListener(TS3FleetEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds a connected and logged in client to this fleet. The text message
+     * notifications of the client are registered, and its polls are
+     * scheduled by the fleet rather than by a polling thread of its own.
+     *
+     * @param client connected server query client to add
+     * @return True if all the notifications were successfully registered.
+     */
+    public boolean addClient(TS3ServerQueryClient client) {
+        Host host = new Host(client);
+
+        client.addEventListener(host);
+        boolean allSuccessful = client.registerNotifications(true, false);
+
+        synchronized(this) {
+            hosts.add(host);
+            reschedule();
+        }
+
+        logger.info("Added {}:{} to the fleet", client.getHost(),
+                client.getPort());
+        return allSuccessful;
+    }
+
+    /**
+     * Removes the specified client from this fleet. The client is not
+     * disconnected.
+     *
+     * @param client server query client to remove
+     * @return {@code true} if the client was part of this fleet
+     */
+    public synchronized boolean removeClient(TS3ServerQueryClient client) {
+        Iterator<Host> it = hosts.iterator();
+        while(it.hasNext()) {
+            Host host = it.next();
+
+            if(host.client == client) {
+                it.remove();
+                if(host.future != null) host.future.cancel(false);
+                client.removeEventListener(host);
+
+                reschedule();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Stops polling, waits up to {@value #SHUTDOWN_TIMEOUT} milliseconds for
+     * the polls in progress, then disconnects every client of this fleet.
+     */
+    public void shutdown() {
+        List<TS3ServerQueryClient> clients;
+
+        synchronized(this) {
+            scheduler.shutdownNow();
+            clients = getClients();
+            hosts.clear();
+        }
+
+        // Let the polls in progress complete before disconnecting
+        ioExecutor.shutdown();
+        try {
+            if(!ioExecutor.awaitTermination(SHUTDOWN_TIMEOUT,
+                    TimeUnit.MILLISECONDS)) {
+                logger.warn("Polls still in progress after {} ms",
+                        SHUTDOWN_TIMEOUT);
+                ioExecutor.shutdownNow();
+            }
+        } catch(InterruptedException e) {
+            ioExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        for(TS3ServerQueryClient client : clients) {
+            try {
+                client.disconnect();
+            } catch(IOException e) {
+                logger.warn("Unable to disconnect from {}:{}",
+                        client.getHost(), client.getPort());
+            }
+        }
+
+        logger.info("Fleet shut down");
+    }
+
+    /**
+     * Schedules the polls of every host, staggered evenly across the poll
+     * interval. Must be called while holding the lock on this fleet.
+     */
+    private void reschedule() {
+        if(scheduler.isShutdown()) return;
+
+        int count = hosts.size();
+        for(int i = 0; i < count; i++) {
+            Host host = hosts.get(i);
+
+            if(host.future != null) host.future.cancel(false);
+
+            host.future = scheduler.scheduleAtFixedRate(host,
+                    staggerDelay(i, count, pollInterval), pollInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the delay of the first poll of a host, offsetting every host
+     * by an equal fraction of the interval.
+     *
+     * @param index        index of the host
+     * @param count        number of hosts
+     * @param pollInterval time in milliseconds between two polls of a host
+     * @return the delay of the first poll, in milliseconds
+     */
+    static long staggerDelay(int index, int count, int pollInterval) {
+        return (long)index * pollInterval / count;
+    }
+
+    /**
+     * Delivers an event to the fleet listeners. No lock is held while the
+     * listeners run, so a slow listener only delays the event thread of the
+     * host the event came from.
+     *
+     * @param source server query client the event originated from
+     * @param event  event to deliver
+     */
+    private void dispatch(TS3ServerQueryClient source, TS3Event event) {
+        for(TS3FleetEventListener listener : listeners) {
+            listener.onEvent(source, event);
+        }
+    }
+
+    /**
+     * A host of the fleet. Triggers the polls of its client on the I/O
+     * executor and forwards the events of its client to the fleet listeners.
+     */
+    private class Host implements Runnable, TS3EventListener {
+        /** Server query client of this host. */
+        private TS3ServerQueryClient client;
+
+        /** Poller of this host, never started as a thread. */
+        private TS3PollingThread poller;
+
+        /** Scheduled polls of this host. */
+        private ScheduledFuture<?> future;
+
+        /** Whether or not a poll of this host is in progress. */
+        private AtomicBoolean polling = new AtomicBoolean(false);
+
+        /**
+         * Constructs a host for the specified client.
+         * @param client server query client of this host
+         */
+        public Host(TS3ServerQueryClient client) {
+            this.client = client;
+            this.poller = new TS3PollingThread(client);
+        }
+
+        /**
+         * Triggers a poll of this host, unless the previous one is still in
+         * progress.
+         */
+        public void run() {
+            if(!polling.compareAndSet(false, true)) return;
+
+            ioExecutor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        poller.poll();
+                    } catch(IOException e) {
+                        logger.warn("Unable to poll {}:{}, removing it from "
+                                + "the fleet", client.getHost(),
+                                client.getPort());
+                        removeClient(client);
+                    } catch(InterruptedException e) {
+                        logger.debug("Poll interrupted");
+                    } finally {
+                        polling.set(false);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Forwards the event to the fleet listeners.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientMoved(TS3ClientMovedEvent event) {
+            dispatch(client, event);
+        }
+
+        /**
+         * Forwards the event to the fleet listeners.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientConnected(TS3ClientConnectedEvent event) {
+            dispatch(client, event);
+        }
+
+        /**
+         * Forwards the event to the fleet listeners.
+         * @param event Event object containing the details of the event
+         */
+        public void onClientDisconnected(TS3ClientDisconnectedEvent event) {
+            dispatch(client, event);
+        }
+
+        /**
+         * Forwards the event to the fleet listeners.
+         * @param event Event object containing the details of the event
+         */
+        public void onMessage(TS3MessageEvent event) {
+            dispatch(client, event);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, such as latencies in
+ * nanoseconds. Like HdrHistogram, every power of two is split into
+ * {@value #SUB_BUCKETS} linear buckets, so that any value is recorded with a
+ * relative error of at most 1/{@value #SUB_BUCKETS} in constant memory.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3Histogram {
+
+    /** Number of bits of the linear buckets of a power of two. */
+    private static final int SUB_BITS = 4;
+
+    /** Number of linear buckets of a power of two. */
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Number of buckets, enough for any positive long. */
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    /** Counts of the buckets. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /** Number of recorded values. */
+    private final AtomicLong count = new AtomicLong();
+
+    /** Sum of the recorded values. */
+    private final AtomicLong sum = new AtomicLong();
+
+    /** Largest recorded value. */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * @param value value to record
+     */
+    public void record(long value) {
+        if(value < 0) value = 0;
+
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current;
+        while(value > (current = max.get())) {
+            if(max.compareAndSet(current, value)) break;
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     * @return the largest recorded value, or 0 if none were recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     * @return the mean of the recorded values, or 0 if none were recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the value below which the specified percentage of the recorded
+     * values fall, rounded up to the upper bound of its bucket.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return the value at the percentile, or 0 if none were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if(n == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile / 100.0 * n);
+        if(rank < 1) rank = 1;
+
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if(seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Returns the bucket of a value.
+     * @param value non-negative value
+     * @return the index of the bucket of the value
+     */
+    static int index(long value) {
+        if(value < SUB_BUCKETS) return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        int mantissa = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+
+        return (shift + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * Returns the largest value of a bucket.
+     * @param index index of the bucket
+     * @return the largest value recorded in the bucket
+     */
+    static long upperBound(int index) {
+        if(index < SUB_BUCKETS) return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long low = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+
+        return low + (1L << shift) - 1;
+    }
+}
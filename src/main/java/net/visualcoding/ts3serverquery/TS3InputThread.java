@@ -2,20 +2,28 @@ package net.visualcoding.ts3serverquery;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.net.SocketTimeoutException;
+import java.util.LinkedList;
+import java.util.Queue;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class implements at thread that listens for input from the Teamspeak 3
  * Server. This class redirects input from the Teamspeak 3 Server to it's
  * associated instance of a {@link TS3ServerQueryClient} object.
  * <p>
- * It also manages notifications by calling
- * {@link TS3EventThread#notify(String)} upon notification. In addition,
- * this class provides the {@link #nextResponse()} method to wait for the
+ * It also manages notifications by posting them to the event thread, which
+ * never blocks: notifications and responses travel in separate lanes, so a
+ * notification storm does not delay command responses. In addition, this
+ * class provides the {@link #nextResponse()} method to wait for the
  * Teamspeak 3 Server to send a response after receiving a command.
+ * <p>
+ * Responses are assembled on this thread and handed over whole, in a single
+ * step, to a completion slot reserved by the waiting command. Slots still
+ * pending when the stream ends are failed, so that no command waits forever
+ * on a closed connection.
  *
  * @author Aldehir Rojas
  * @version 1.0.0
@@ -25,42 +33,45 @@ public class TS3InputThread extends Thread {
     /** Server Query Client to send input. */
     private TS3ServerQueryClient serverQuery;
 
-    /**
-     * Blocking queue used to communicate between the listening thread and
-     * the thread requesting the Teamspeak 3 server response.
-     */
-    private BlockingQueue<String> queue;
-
     /** Input stream to read from. */
     private InputStream stream;
 
+    /** Slots waiting for a response, in the order of the commands. */
+    private final Queue<Slot> pending = new LinkedList<Slot>();
+
+    /** Responses that arrived before any slot was reserved for them. */
+    private final Queue<String[]> unclaimed = new LinkedList<String[]>();
+
+    /** Whether the stream ended, guarded by {@link #pending}. */
+    private boolean closed = false;
+
     /**
      * Constructs an input thread associated with the specified server query
-     * client and input stream with a queue size of 20.
+     * client and input stream.
      *
      * @param serverQuery Server query client to associate this thread with
      * @param stream      Input stream this thread should read from
      */
     public TS3InputThread(TS3ServerQueryClient serverQuery,
             InputStream stream) {
-        this(serverQuery, stream, 20);
+        this.serverQuery = serverQuery;
+        this.stream = stream;
     }
 
     /**
      * Constructs an input thread associated with the specified server query
-     * client, input stream, and queue size.
+     * client and input stream.
      *
      * @param serverQuery Server query client to associate this thread with
      * @param stream      Input steam this thread should read from
-     * @param queueSize   Size of the blocking queue
+     * @param queueSize   Ignored, responses are handed over whole
+     * @deprecated responses are handed over whole, use
+     *             {@link #TS3InputThread(TS3ServerQueryClient, InputStream)}
      */
+    @Deprecated
     public TS3InputThread(TS3ServerQueryClient serverQuery,
             InputStream stream, int queueSize) {
-        this.serverQuery = serverQuery;
-        this.stream = stream;
-
-        // Instantiate our blocking queue
-        queue = new ArrayBlockingQueue<String>(queueSize);
+        this(serverQuery, stream);
     }
 
     /**
@@ -69,8 +80,13 @@ public class TS3InputThread extends Thread {
     public void run() {
         serverQuery.getLogger().info("Input thread spawned");
 
-        // Instantiate a TS3 Reader object
-        TS3Reader reader = new TS3Reader(new InputStreamReader(stream));
+        // Read the lines straight from the bytes, using a pooled buffer
+        TS3BufferPool pool = serverQuery.getBufferPool();
+        TS3LineReader reader = new TS3LineReader(stream,
+                pool.acquireReadBuffer());
+
+        // Lines of the response being assembled
+        ArrayList<String> lines = new ArrayList<String>(20);
 
         try {
             // Skip the first 2 lines (as they are just a welcome message)
@@ -79,13 +95,20 @@ public class TS3InputThread extends Thread {
             // Read in input
             String input;
             while((input = reader.readLine()) != null) {
+                serverQuery.received();
+
                 if(input.startsWith("notify")) {
-                    // Send to the server query to handle notification
-                    serverQuery.getEventThread().notify(input);
+                    // Post to the event thread without waiting on it
+                    serverQuery.getEventThread().post(input);
                     continue;
-                } else {
-                    // Add input to our queue, blocking if full
-                    queue.put(input);
+                }
+
+                lines.add(input);
+
+                // Hand the whole response over once we found its error line
+                if(input.startsWith("error")) {
+                    complete(lines.toArray(new String[lines.size()]));
+                    lines.clear();
                 }
 
                 // Break out of our loop if we were interrupted
@@ -97,35 +120,151 @@ public class TS3InputThread extends Thread {
             }
         } catch(IOException e) {
             serverQuery.getLogger().debug("Unable to read from socket");
-        } catch(InterruptedException e) {
-            serverQuery.getLogger().debug("Input thread interrupted");
         }
 
+        close();
+        pool.releaseReadBuffer(reader.getBuffer());
         serverQuery.getLogger().info("Input thread terminated");
     }
 
     /**
-     * Returns an array of strings that are queued in the blocking queue up
-     * to the first Teamspeak 3 server query error message.
+     * Reserves a completion slot for the next response not already claimed.
+     * Slots are filled in the order they were reserved, so a slot must be
+     * reserved for every command sent, even if its response is not awaited.
      *
-     * @return an array of strings that are queued in the internal blocking
-     *         queue up to the first Teamspeak 3 server query error message
+     * @return a slot receiving the next response
+     */
+    Slot expect() {
+        Slot slot = new Slot();
+
+        synchronized(pending) {
+            String[] response = unclaimed.poll();
+            if(response != null) {
+                slot.complete(response);
+            } else if(closed) {
+                slot.fail();
+            } else {
+                pending.add(slot);
+            }
+        }
+
+        return slot;
+    }
+
+    /**
+     * Returns the lines of the next response, up to and including the
+     * Teamspeak 3 server query error message.
+     *
+     * @return the lines of the next response
      *
      * @throws InterruptedException
+     * @throws IOException if the stream ended before the response arrived
      */
-    public String[] nextResponse() throws InterruptedException {
-        // Create an ArrayList to store results
-        ArrayList<String> list = new ArrayList<String>(20);
+    public String[] nextResponse() throws InterruptedException, IOException {
+        return expect().await();
+    }
 
-        // Read until we get our error message
-        while(true) {
-            String message = queue.take();
-            list.add(message);
+    /**
+     * Hands a complete response over to the oldest pending slot.
+     * @param response lines of the response
+     */
+    private void complete(String[] response) {
+        Slot slot;
+        int depth;
+
+        synchronized(pending) {
+            slot = pending.poll();
+            if(slot == null) unclaimed.add(response);
+            depth = pending.size();
+        }
+
+        if(slot != null) slot.complete(response);
+        serverQuery.getMetrics().responseQueued(depth);
+    }
+
+    /**
+     * Fails every pending slot, and every slot reserved from now on.
+     */
+    private void close() {
+        synchronized(pending) {
+            closed = true;
+
+            Slot slot;
+            while((slot = pending.poll()) != null) slot.fail();
+        }
+    }
+
+    /**
+     * Completion slot receiving the response of a single command.
+     */
+    static class Slot {
+        /** Released once the slot is completed or failed. */
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /** Lines of the response, {@code null} if the slot failed. */
+        private volatile String[] response;
+
+        /**
+         * Completes this slot with a response.
+         * @param response lines of the response
+         */
+        void complete(String[] response) {
+            this.response = response;
+            done.countDown();
+        }
+
+        /**
+         * Fails this slot because the stream ended.
+         */
+        void fail() {
+            done.countDown();
+        }
 
-            // Stop once we found our error message
-            if(message.startsWith("error")) break;
+        /**
+         * Waits for the response of this slot.
+         *
+         * @return the lines of the response
+         * @throws InterruptedException
+         * @throws IOException if the stream ended before the response
+         */
+        String[] await() throws InterruptedException, IOException {
+            done.await();
+            return response();
         }
 
-        return list.toArray(new String[list.size()]);
+        /**
+         * Waits at most the specified time for the response of this slot.
+         * The slot stays reserved after a timeout, so a late response is
+         * still matched to it rather than to the following command.
+         *
+         * @param timeout time to wait, in nanoseconds
+         * @return the lines of the response
+         * @throws InterruptedException
+         * @throws SocketTimeoutException if no response arrived in time
+         * @throws IOException if the stream ended before the response
+         */
+        String[] await(long timeout)
+                throws InterruptedException, IOException {
+            if(!done.await(timeout, TimeUnit.NANOSECONDS)) {
+                throw new SocketTimeoutException("No response within "
+                        + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms");
+            }
+            return response();
+        }
+
+        /**
+         * Returns the response of this completed slot.
+         *
+         * @return the lines of the response
+         * @throws IOException if the stream ended before the response
+         */
+        private String[] response() throws IOException {
+            String[] lines = response;
+            if(lines == null) {
+                throw new IOException("Connection closed before response");
+            }
+
+            return lines;
+        }
     }
 }
@@ -0,0 +1,337 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+/**
+ * Keeps the connection of a client alive and detects when it died. The
+ * server drops query connections idle for about 10 minutes, and a half-open
+ * connection is otherwise only noticed once the socket finally errors out.
+ * <p>
+ * The keepalive checks the client periodically. Once nothing was received
+ * for longer than the idle threshold, it sends a cheap {@code whoami} probe
+ * and measures its round trip. Connections in use are never probed. If the
+ * probe is not answered within the deadline, the connection is declared
+ * dead: the handler is called and, unless disabled, the client is
+ * disconnected so that pending commands fail right away. The probe never
+ * waits past its deadline, so a connection kept open is probed again, and
+ * reported again, for as long as it does not recover.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3KeepAlive {
+
+    /** Default time without activity before probing, in milliseconds. */
+    public static final long DEFAULT_IDLE_THRESHOLD = 60000;
+
+    /** Default time a probe may take, in milliseconds. */
+    public static final long DEFAULT_DEADLINE = 5000;
+
+    /** Default interval between checks, in milliseconds. */
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    /** Client kept alive. */
+    private final TS3ServerQueryClient client;
+
+    /** Handler receiving round trips and deaths. */
+    private final Handler handler;
+
+    /** Time without activity before probing, in nanoseconds. */
+    private volatile long idleThreshold =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_IDLE_THRESHOLD);
+
+    /** Time a probe may take, in nanoseconds. */
+    private volatile long deadline =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEADLINE);
+
+    /** Whether or not the client is disconnected when declared dead. */
+    private volatile boolean disconnecting = true;
+
+    /** Scheduler running the checks and the probes. */
+    private ScheduledExecutorService scheduler;
+
+    /** Time the probe in flight was sent, 0 if none. */
+    private volatile long probeStart = 0;
+
+    /** Whether or not the probe in flight was reported as missed. */
+    private boolean dead = false;
+
+    /** Lock guarding the report of a missed probe. */
+    private final Object deathLock = new Object();
+
+    /** Round trips of the answered probes, in nanoseconds. */
+    private final TS3Histogram roundTrips = new TS3Histogram();
+
+    /** Number of probes sent. */
+    private volatile long probes = 0;
+
+    /** Number of times the connection was declared dead. */
+    private volatile long deaths = 0;
+
+    /**
+     * Constructs a keepalive logging to the logger of the client.
+     * @param client client kept alive
+     */
+    public TS3KeepAlive(TS3ServerQueryClient client) {
+        this(client, new LoggingHandler(client.getLogger()));
+    }
+
+    /**
+     * Constructs a keepalive calling the specified handler.
+     *
+     * @param client  client kept alive
+     * @param handler handler receiving round trips and deaths
+     */
+    public TS3KeepAlive(TS3ServerQueryClient client, Handler handler) {
+        this.client = client;
+        this.handler = handler;
+    }
+
+    /**
+     * Sets the time without activity before a probe is sent.
+     * @param millis time in milliseconds
+     */
+    public void setIdleThreshold(long millis) {
+        idleThreshold = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Sets the time a probe may take before the connection is declared
+     * dead.
+     *
+     * @param millis time in milliseconds
+     */
+    public void setDeadline(long millis) {
+        deadline = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Sets whether or not the client is disconnected when declared dead.
+     * Enabled by default.
+     *
+     * @param disconnecting whether or not to disconnect dead clients
+     */
+    public void setDisconnecting(boolean disconnecting) {
+        this.disconnecting = disconnecting;
+    }
+
+    /**
+     * Returns the round trips of the answered probes.
+     * @return histogram of the round trips, in nanoseconds
+     */
+    public TS3Histogram getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Returns the number of probes sent.
+     * @return the number of probes sent
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Returns the number of times the connection was declared dead.
+     * @return the number of deaths
+     */
+    public long getDeaths() {
+        return deaths;
+    }
+
+    /**
+     * Starts checking the client every {@value #DEFAULT_INTERVAL}
+     * milliseconds.
+     */
+    public void start() {
+        start(DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Starts checking the client at the specified interval, which bounds
+     * how late a missed deadline is noticed.
+     *
+     * @param interval interval between checks, in milliseconds
+     */
+    public synchronized void start(long interval) {
+        if(scheduler != null) return;
+
+        // One thread checks while the other waits on the probe
+        scheduler = Executors.newScheduledThreadPool(2,
+                new TS3ThreadFactory("TS3-keepalive", true));
+        final ScheduledExecutorService executor = scheduler;
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    if(check()) executor.execute(new Runnable() {
+                        public void run() {
+                            probe();
+                        }
+                    });
+                } catch(RuntimeException e) {
+                    client.getLogger().error("Keepalive handler failed", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking the client.
+     */
+    public synchronized void stop() {
+        if(scheduler == null) return;
+
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Checks the client once, declaring it dead if the probe in flight
+     * missed its deadline.
+     *
+     * @return {@code true} if the client is idle and a probe must be sent
+     */
+    boolean check() {
+        if(!client.isConnected()) return false;
+
+        long now = System.nanoTime();
+        long start = probeStart;
+
+        if(start != 0) {
+            if(now - start > deadline) declareDead(start, now);
+            return false;
+        }
+
+        if(now - client.getLastActivity() < idleThreshold) return false;
+
+        synchronized(deathLock) {
+            dead = false;
+        }
+        probeStart = now;
+        probes++;
+        return true;
+    }
+
+    /**
+     * Sends a probe and waits for its answer, until its deadline at most.
+     * The probe bypasses the result cache and the coalescing of read-only
+     * commands.
+     */
+    void probe() {
+        long start = probeStart;
+        if(start == 0) start = System.nanoTime();
+
+        try {
+            long sent = System.nanoTime();
+            client.executeWithin(TS3Commands.whoAmI(),
+                    start + deadline - sent);
+            long roundTrip = System.nanoTime() - sent;
+
+            roundTrips.record(roundTrip);
+            handler.onRoundTrip(client,
+                    TimeUnit.NANOSECONDS.toMicros(roundTrip));
+        } catch(SocketTimeoutException e) {
+            declareDead(start, System.nanoTime());
+        } catch(IOException e) {
+            client.getLogger().debug("Keepalive probe failed");
+        } catch(InterruptedException e) {
+            client.getLogger().debug("Keepalive probe interrupted");
+        } finally {
+            probeStart = 0;
+        }
+    }
+
+    /**
+     * Reports the probe sent at the specified time as missed, once, and
+     * disconnects the client unless disabled.
+     *
+     * @param start time the probe was sent
+     * @param now   current time
+     */
+    private void declareDead(long start, long now) {
+        synchronized(deathLock) {
+            if(dead) return;
+            dead = true;
+        }
+
+        deaths++;
+        handler.onDead(client, TimeUnit.NANOSECONDS.toMillis(now - start));
+
+        if(disconnecting) {
+            try {
+                client.disconnect();
+            } catch(IOException e) {
+                client.getLogger().debug("Unable to disconnect");
+            }
+        }
+    }
+
+    /**
+     * Receives the reports of the keepalive.
+     */
+    public static interface Handler {
+
+        /**
+         * A probe was answered.
+         *
+         * @param client    client probed
+         * @param roundTrip round trip of the probe, in microseconds
+         */
+        public void onRoundTrip(TS3ServerQueryClient client, long roundTrip);
+
+        /**
+         * A probe missed its deadline, so the connection is considered dead.
+         *
+         * @param client  client probed
+         * @param elapsed time since the probe was sent, in milliseconds
+         */
+        public void onDead(TS3ServerQueryClient client, long elapsed);
+
+    }
+
+    /**
+     * Handler logging round trips and deaths.
+     */
+    public static class LoggingHandler implements Handler {
+        /** Logger to log to. */
+        private final Logger logger;
+
+        /**
+         * Constructs a handler logging to the specified logger.
+         * @param logger logger to log to
+         */
+        public LoggingHandler(Logger logger) {
+            this.logger = logger;
+        }
+
+        /**
+         * Logs the round trip at debug level.
+         *
+         * @param client    client probed
+         * @param roundTrip round trip of the probe, in microseconds
+         */
+        public void onRoundTrip(TS3ServerQueryClient client, long roundTrip) {
+            logger.debug("Keepalive round trip to {}:{} took {} us",
+                    new Object[] { client.getHost(), client.getPort(),
+                        roundTrip });
+        }
+
+        /**
+         * Logs the dead connection.
+         *
+         * @param client  client probed
+         * @param elapsed time since the probe was sent, in milliseconds
+         */
+        public void onDead(TS3ServerQueryClient client, long elapsed) {
+            logger.error("Connection to {}:{} is dead, no keepalive answer "
+                    + "for {} ms", new Object[] { client.getHost(),
+                        client.getPort(), elapsed });
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads TS3 Server Query lines straight from the bytes of a stream. Unlike
+ * {@link TS3Reader}, it does not decode the stream through a character
+ * buffer and a string builder per line: bytes are scanned in a read buffer
+ * that may come from a {@link TS3BufferPool}, and lines spanning several
+ * reads are gathered in a growable line buffer that is reused for every
+ * line, so that large responses such as {@code clientdblist} do not
+ * allocate anything but their strings.
+ * <p>
+ * A line is terminated with a linefeed, which may be followed by a carriage
+ * return. This class is not thread-safe.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3LineReader {
+
+    /** Initial size of the line buffer. */
+    public static final int INITIAL_LINE_SIZE = 256;
+
+    /** Character set of the TS3 Server Query. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Stream to read from. */
+    private final InputStream in;
+
+    /** Read buffer. */
+    private final byte[] buffer;
+
+    /** Position of the next unread byte in the read buffer. */
+    private int position = 0;
+
+    /** Number of valid bytes in the read buffer. */
+    private int limit = 0;
+
+    /** Buffer gathering lines that span several reads. */
+    private byte[] line = new byte[INITIAL_LINE_SIZE];
+
+    /** Whether the next byte is skipped if it is a carriage return. */
+    private boolean skipReturn = false;
+
+    /**
+     * Constructs a line reader with a read buffer of {@value
+     * TS3BufferPool#DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param in stream to read from
+     */
+    public TS3LineReader(InputStream in) {
+        this(in, new byte[TS3BufferPool.DEFAULT_BUFFER_SIZE]);
+    }
+
+    /**
+     * Constructs a line reader using the specified read buffer.
+     *
+     * @param in     stream to read from
+     * @param buffer read buffer, such as one taken from a pool
+     */
+    public TS3LineReader(InputStream in, byte[] buffer) {
+        this.in = in;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the read buffer of this reader, so that it can be returned to
+     * its pool once the reader is no longer used.
+     *
+     * @return the read buffer
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Reads in a line.
+     *
+     * @return the contents of the line, not including any line-termination
+     *         characters, or {@code null} if the end of the stream has been
+     *         reached.
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        int length = 0;
+
+        while(true) {
+            if(position == limit && !fill()) {
+                // Return what is left of an unterminated line
+                return length == 0 ? null : new String(line, 0, length, UTF8);
+            }
+
+            if(skipReturn) {
+                skipReturn = false;
+                if(buffer[position] == '\r') {
+                    position++;
+                    continue;
+                }
+            }
+
+            // Look for the end of the line in the read buffer
+            int start = position;
+            int end = start;
+            while(end < limit && buffer[end] != '\n') end++;
+
+            if(end < limit) {
+                position = end + 1;
+                skipReturn = true;
+
+                // Fast path, the whole line is in the read buffer
+                if(length == 0) {
+                    return new String(buffer, start, end - start, UTF8);
+                }
+
+                length = gather(length, start, end);
+                return new String(line, 0, length, UTF8);
+            }
+
+            // Keep the partial line and read more
+            length = gather(length, start, end);
+            position = limit;
+        }
+    }
+
+    /**
+     * Appends bytes of the read buffer to the line buffer, growing it if
+     * needed.
+     *
+     * @param length number of bytes already in the line buffer
+     * @param start  first byte to append
+     * @param end    end of the bytes to append, exclusive
+     * @return the new number of bytes in the line buffer
+     */
+    private int gather(int length, int start, int end) {
+        int needed = length + end - start;
+        if(needed > line.length) {
+            byte[] grown = new byte[Math.max(needed, line.length * 2)];
+            System.arraycopy(line, 0, grown, 0, length);
+            line = grown;
+        }
+
+        System.arraycopy(buffer, start, line, length, end - start);
+        return needed;
+    }
+
+    /**
+     * Fills the read buffer from the stream.
+     *
+     * @return {@code false} if the end of the stream has been reached
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while(read == 0);
+
+        if(read < 0) return false;
+
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -2,6 +2,7 @@ package net.visualcoding.ts3serverquery;
 
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.AbstractMap;
@@ -21,6 +22,19 @@ public class TS3Map {
     /** Mapping of escaped characters to the actual charater. */
     private static final Map<Integer, Integer> UNESCAPE_CHARS;
 
+    /**
+     * Lookup table of the escaped versions of the ASCII characters, or 0 if
+     * the character does not need to be escaped. All of the escaped
+     * characters are ASCII characters.
+     */
+    private static final char[] ESCAPE_TABLE = new char[128];
+
+    /**
+     * Lookup table of the characters represented by the ASCII characters
+     * following a backslash, or 0 if the escape sequence is unknown.
+     */
+    private static final char[] UNESCAPE_TABLE = new char[128];
+
     // Initialization. Since the methods are all static, there is no
     // instantiation of an object to perform the initialization. Instead,
     // we perform it here and initialize the character maps.
@@ -45,6 +59,10 @@ public class TS3Map {
         // Add a reflected mapping to UNESCAPE_CHARS
         for(Map.Entry<Integer, Integer> entry : ESCAPE_CHARS.entrySet()) {
             UNESCAPE_CHARS.put(entry.getValue(), entry.getKey());
+
+            // Add to the lookup tables
+            ESCAPE_TABLE[entry.getKey()] = (char)entry.getValue().intValue();
+            UNESCAPE_TABLE[entry.getValue()] = (char)entry.getKey().intValue();
         }
     }
 
@@ -82,6 +100,21 @@ public class TS3Map {
         map = parseMap(mapString);
     }
 
+    /**
+     * Constructs a copy of the specified map. The copy does not share any
+     * list of values with the original map.
+     *
+     * @param other map to copy
+     */
+    public TS3Map(TS3Map other) {
+        map = new HashMap<String, List<String>>(other.map.size() * 2);
+        for(Map.Entry<String, List<String>> entry : other.map.entrySet()) {
+            List<String> values = entry.getValue();
+            map.put(entry.getKey(), values == null ? null
+                    : new LinkedList<String>(values));
+        }
+    }
+
     /**
      * Returns the {@code String} object to which the specified key is mapped,
      * or null if this map contains no mapping for the key.
@@ -334,6 +367,16 @@ public class TS3Map {
         map.clear();
     }
 
+    /**
+     * Returns the set of the mappings in this map. Switches are mapped to a
+     * {@code null} value.
+     *
+     * @return the set of the mappings in this map
+     */
+    Set<Map.Entry<String, List<String>>> entrySet() {
+        return map.entrySet();
+    }
+
     /**
      * Parses the specified string representation of a TS3Map.
      *
@@ -467,6 +510,30 @@ public class TS3Map {
         return sb.toString();
     }
 
+    /**
+     * Returns the character that follows the backslash in the escaped
+     * version of {@code character}, or 0 if it does not need to be escaped.
+     *
+     * @param character character to escape
+     * @return the escaped version of the character, or 0 if none
+     */
+    static char escapeCharacter(char character) {
+        if(character >= ESCAPE_TABLE.length) return 0;
+        return ESCAPE_TABLE[character];
+    }
+
+    /**
+     * Returns the character represented by the escape sequence of a
+     * backslash followed by {@code character}, or 0 if it is unknown.
+     *
+     * @param character character following the backslash
+     * @return the unescaped character, or 0 if none
+     */
+    static char unescapeCharacter(char character) {
+        if(character >= UNESCAPE_TABLE.length) return 0;
+        return UNESCAPE_TABLE[character];
+    }
+
     /**
      * Escape {@code str} using the TS3 Server Query escape characters.
      * @param str String to escape
@@ -0,0 +1,122 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+
+/**
+ * Receives measurements from a server query client, such as command
+ * latencies and queue depths. Implementations are set on a client with
+ * {@link TS3ServerQueryClient#setMetrics(TS3Metrics)}, and must be
+ * thread-safe since they are called from the caller threads, the input thread
+ * and the event thread.
+ * <p>
+ * The default, {@link #NONE}, ignores every measurement. The client does not
+ * even read the clock while it is set. When built on JDK 11 or later,
+ * {@code TS3FlightRecorder} also emits the measurements as Flight Recorder
+ * events.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ * @see TS3MetricsRecorder
+ */
+public interface TS3Metrics {
+
+    /** Metrics ignoring every measurement. */
+    public static final TS3Metrics NONE = new TS3Metrics() {
+        public void commandSent(String verb, long bytesOut) {
+        }
+
+        public void commandCompleted(String verb, long queueWait,
+                long roundTrip, long bytesOut, long bytesIn, int errorCode) {
+        }
+
+        public void responseParsed(String verb, int lines, long duration) {
+        }
+
+        public void responseQueued(int depth) {
+        }
+
+        public void eventQueued(int depth) {
+        }
+
+        public void eventDropped() {
+        }
+
+        public void eventDispatched(TS3Event event, long queueWait,
+                long duration) {
+        }
+
+        public void listenerInvoked(TS3EventListener listener,
+                TS3Event event, long duration) {
+        }
+    };
+
+    /**
+     * A command was sent to the server.
+     *
+     * @param verb     name of the command
+     * @param bytesOut number of bytes of the command
+     */
+    public void commandSent(String verb, long bytesOut);
+
+    /**
+     * A command received its response.
+     *
+     * @param verb      name of the command
+     * @param queueWait time spent waiting for the command mutex, in
+     *                  nanoseconds
+     * @param roundTrip time between sending the command and receiving its
+     *                  response, in nanoseconds
+     * @param bytesOut  number of bytes of the command
+     * @param bytesIn   number of characters of the response
+     * @param errorCode error id of the response
+     */
+    public void commandCompleted(String verb, long queueWait, long roundTrip,
+            long bytesOut, long bytesIn, int errorCode);
+
+    /**
+     * The response of a command was parsed into a result.
+     *
+     * @param verb     name of the command
+     * @param lines    number of lines of the response
+     * @param duration time spent parsing, in nanoseconds
+     */
+    public void responseParsed(String verb, int lines, long duration);
+
+    /**
+     * A response was handed over by the input thread.
+     * @param depth number of commands still waiting for a response
+     */
+    public void responseQueued(int depth);
+
+    /**
+     * An event was queued for the event thread.
+     * @param depth number of queued events
+     */
+    public void eventQueued(int depth);
+
+    /**
+     * An event was dropped because the event queue was full.
+     */
+    public void eventDropped();
+
+    /**
+     * An event was dispatched to every listener.
+     *
+     * @param event     dispatched event
+     * @param queueWait time the event spent in the queue, in nanoseconds
+     * @param duration  time spent in the listeners, in nanoseconds
+     */
+    public void eventDispatched(TS3Event event, long queueWait,
+            long duration);
+
+    /**
+     * A listener handled an event.
+     *
+     * @param listener listener that handled the event
+     * @param event    handled event
+     * @param duration time spent in the listener, in nanoseconds
+     */
+    public void listenerInvoked(TS3EventListener listener, TS3Event event,
+            long duration);
+
+}
@@ -0,0 +1,385 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics keeping latency histograms per command verb, counters of error
+ * ids, bytes in and out, and the current and peak depths of the response and
+ * event queues.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3MetricsRecorder implements TS3Metrics {
+
+    /** Statistics mapped by command verb. */
+    private final ConcurrentMap<String, CommandStats> commands =
+            new ConcurrentHashMap<String, CommandStats>();
+
+    /** Number of bytes sent. */
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    /** Number of characters received in responses. */
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    /** Number of commands waiting for a response. */
+    private final AtomicInteger responseDepth = new AtomicInteger();
+
+    /** Peak number of commands waiting for a response. */
+    private final AtomicInteger responsePeak = new AtomicInteger();
+
+    /** Number of queued events. */
+    private final AtomicInteger eventDepth = new AtomicInteger();
+
+    /** Peak number of queued events. */
+    private final AtomicInteger eventPeak = new AtomicInteger();
+
+    /** Number of dropped events. */
+    private final AtomicLong eventsDropped = new AtomicLong();
+
+    /** Time spent in the listeners per event. */
+    private final TS3Histogram dispatch = new TS3Histogram();
+
+    /** Time events spent in the event queue. */
+    private final TS3Histogram eventWait = new TS3Histogram();
+
+    /** Time spent in each listener, mapped by listener class name. */
+    private final ConcurrentMap<String, TS3Histogram> listeners =
+            new ConcurrentHashMap<String, TS3Histogram>();
+
+    /**
+     * Ignores sent commands, which are recorded once completed.
+     *
+     * @param verb     name of the command
+     * @param bytesOut number of bytes of the command
+     */
+    public void commandSent(String verb, long bytesOut) {
+    }
+
+    /**
+     * Records the latencies, bytes and error id of a command.
+     *
+     * @param verb      name of the command
+     * @param queueWait time spent waiting for the command mutex
+     * @param roundTrip time between sending and receiving the response
+     * @param bytesOut  number of bytes of the command
+     * @param bytesIn   number of characters of the response
+     * @param errorCode error id of the response
+     */
+    public void commandCompleted(String verb, long queueWait, long roundTrip,
+            long bytesOut, long bytesIn, int errorCode) {
+        CommandStats stats = stats(verb);
+
+        stats.queueWait.record(queueWait);
+        stats.roundTrip.record(roundTrip);
+        stats.error(errorCode);
+
+        this.bytesOut.addAndGet(bytesOut);
+        this.bytesIn.addAndGet(bytesIn);
+    }
+
+    /**
+     * Records the time spent parsing a response.
+     *
+     * @param verb     name of the command
+     * @param lines    number of lines of the response
+     * @param duration time spent parsing, in nanoseconds
+     */
+    public void responseParsed(String verb, int lines, long duration) {
+        stats(verb).parse.record(duration);
+    }
+
+    /**
+     * Records the number of commands waiting for a response.
+     * @param depth number of commands still waiting for a response
+     */
+    public void responseQueued(int depth) {
+        responseDepth.set(depth);
+        peak(responsePeak, depth);
+    }
+
+    /**
+     * Records the depth of the event queue.
+     * @param depth number of queued events
+     */
+    public void eventQueued(int depth) {
+        eventDepth.set(depth);
+        peak(eventPeak, depth);
+    }
+
+    /**
+     * Counts a dropped event.
+     */
+    public void eventDropped() {
+        eventsDropped.incrementAndGet();
+    }
+
+    /**
+     * Records the time an event waited and the time spent dispatching it.
+     *
+     * @param event     dispatched event
+     * @param queueWait time the event spent in the queue, in nanoseconds
+     * @param duration  time spent in the listeners, in nanoseconds
+     */
+    public void eventDispatched(TS3Event event, long queueWait,
+            long duration) {
+        eventWait.record(queueWait);
+        dispatch.record(duration);
+    }
+
+    /**
+     * Records the time spent in a listener.
+     *
+     * @param listener listener that handled the event
+     * @param event    handled event
+     * @param duration time spent in the listener, in nanoseconds
+     */
+    public void listenerInvoked(TS3EventListener listener, TS3Event event,
+            long duration) {
+        String name = listener.getClass().getName();
+        TS3Histogram histogram = listeners.get(name);
+        if(histogram == null) {
+            TS3Histogram created = new TS3Histogram();
+            histogram = listeners.putIfAbsent(name, created);
+            if(histogram == null) histogram = created;
+        }
+
+        histogram.record(duration);
+    }
+
+    /**
+     * Returns the verbs of the commands executed so far.
+     * @return the verbs of the executed commands
+     */
+    public String[] getVerbs() {
+        return commands.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Returns the histogram of the time commands waited for the command
+     * mutex.
+     *
+     * @param verb name of the command
+     * @return the histogram, or {@code null} if the command was not executed
+     */
+    public TS3Histogram getQueueWait(String verb) {
+        CommandStats stats = commands.get(verb);
+        return stats == null ? null : stats.queueWait;
+    }
+
+    /**
+     * Returns the histogram of the round trip times of a command.
+     *
+     * @param verb name of the command
+     * @return the histogram, or {@code null} if the command was not executed
+     */
+    public TS3Histogram getRoundTrip(String verb) {
+        CommandStats stats = commands.get(verb);
+        return stats == null ? null : stats.roundTrip;
+    }
+
+    /**
+     * Returns the histogram of the time spent parsing the responses of a
+     * command.
+     *
+     * @param verb name of the command
+     * @return the histogram, or {@code null} if the command was not executed
+     */
+    public TS3Histogram getParse(String verb) {
+        CommandStats stats = commands.get(verb);
+        return stats == null ? null : stats.parse;
+    }
+
+    /**
+     * Returns the number of responses of a command per error id.
+     *
+     * @param verb name of the command
+     * @return the number of responses per error id
+     */
+    public Map<Integer, Long> getErrorCounts(String verb) {
+        Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+        CommandStats stats = commands.get(verb);
+        if(stats == null) return counts;
+
+        for(Map.Entry<Integer, AtomicLong> entry : stats.errors.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the number of bytes sent.
+     * @return the number of bytes sent
+     */
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    /**
+     * Returns the number of characters received in responses.
+     * @return the number of characters received
+     */
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    /**
+     * Returns the last recorded depth of the response queue.
+     * @return the number of commands waiting for a response
+     */
+    public int getResponseQueueDepth() {
+        return responseDepth.get();
+    }
+
+    /**
+     * Returns the peak depth of the response queue.
+     * @return the peak number of commands waiting for a response
+     */
+    public int getResponseQueuePeak() {
+        return responsePeak.get();
+    }
+
+    /**
+     * Returns the last recorded depth of the event queue.
+     * @return the number of queued events
+     */
+    public int getEventQueueDepth() {
+        return eventDepth.get();
+    }
+
+    /**
+     * Returns the peak depth of the event queue.
+     * @return the peak number of queued events
+     */
+    public int getEventQueuePeak() {
+        return eventPeak.get();
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     * @return the number of dropped events
+     */
+    public long getEventsDropped() {
+        return eventsDropped.get();
+    }
+
+    /**
+     * Returns the histogram of the time spent dispatching events.
+     * @return the histogram of the time spent dispatching events
+     */
+    public TS3Histogram getDispatch() {
+        return dispatch;
+    }
+
+    /**
+     * Returns the histogram of the time events spent in the event queue.
+     * @return the histogram of the time events spent in the queue
+     */
+    public TS3Histogram getEventQueueWait() {
+        return eventWait;
+    }
+
+    /**
+     * Returns the histogram of the time spent in the listeners of a class.
+     *
+     * @param listenerClass class of the listeners
+     * @return the histogram, or {@code null} if no listener of the class was
+     *         invoked
+     */
+    public TS3Histogram getListener(Class<?> listenerClass) {
+        return listeners.get(listenerClass.getName());
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format(
+                "Bytes out: %d, in: %d, pending responses peak: %d, "
+                + "event queue peak: %d, events dropped: %d",
+                getBytesOut(), getBytesIn(), getResponseQueuePeak(),
+                getEventQueuePeak(), getEventsDropped()));
+
+        for(String verb : new TreeMap<String, CommandStats>(commands)
+                .keySet()) {
+            TS3Histogram wait = getQueueWait(verb);
+            TS3Histogram trip = getRoundTrip(verb);
+
+            builder.append(String.format("%n  %s: %d, wait p99 %.1f us, "
+                    + "round trip p50 %.1f us p99 %.1f us max %.1f us, "
+                    + "errors %s", verb, trip.getCount(),
+                    wait.getValueAtPercentile(99) / 1e3,
+                    trip.getValueAtPercentile(50) / 1e3,
+                    trip.getValueAtPercentile(99) / 1e3,
+                    trip.getMax() / 1e3, getErrorCounts(verb)));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the statistics of a command verb, creating them if needed.
+     * @param verb name of the command
+     * @return the statistics of the command
+     */
+    private CommandStats stats(String verb) {
+        CommandStats stats = commands.get(verb);
+        if(stats == null) {
+            CommandStats created = new CommandStats();
+            stats = commands.putIfAbsent(verb, created);
+            if(stats == null) stats = created;
+        }
+
+        return stats;
+    }
+
+    /**
+     * Raises a peak to the specified value.
+     *
+     * @param peak  peak to raise
+     * @param value recorded value
+     */
+    private static void peak(AtomicInteger peak, int value) {
+        int current;
+        while(value > (current = peak.get())) {
+            if(peak.compareAndSet(current, value)) break;
+        }
+    }
+
+    /**
+     * Statistics of a command verb.
+     */
+    private static class CommandStats {
+        /** Time spent waiting for the command mutex. */
+        private final TS3Histogram queueWait = new TS3Histogram();
+
+        /** Time between sending the command and receiving its response. */
+        private final TS3Histogram roundTrip = new TS3Histogram();
+
+        /** Time spent parsing the responses. */
+        private final TS3Histogram parse = new TS3Histogram();
+
+        /** Number of responses per error id. */
+        private final ConcurrentMap<Integer, AtomicLong> errors =
+                new ConcurrentHashMap<Integer, AtomicLong>();
+
+        /**
+         * Counts a response with the specified error id.
+         * @param errorCode error id of the response
+         */
+        private void error(int errorCode) {
+            AtomicLong counter = errors.get(errorCode);
+            if(counter == null) {
+                AtomicLong created = new AtomicLong();
+                counter = errors.putIfAbsent(errorCode, created);
+                if(counter == null) counter = created;
+            }
+            counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package net.visualcoding.ts3serverquery;
+
+/**
+ * Extracts fields straight from a raw notification line, without splitting
+ * it or building a {@link TS3Map}. Integers are parsed in place, and only
+ * the strings that are asked for are created. Notifications listing several
+ * items separated by {@code |} are walked with {@link #nextItem()}.
+ * <p>
+ * A decoder is reused for every line, and is not thread-safe.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3NotificationDecoder {
+
+    /** Line being decoded. */
+    private String line;
+
+    /** Length of the notification name. */
+    private int nameLength;
+
+    /** Start of the current item. */
+    private int itemStart;
+
+    /** End of the current item, exclusive. */
+    private int itemEnd;
+
+    /** Reusable builder of unescaped values. */
+    private final StringBuilder builder = new StringBuilder(64);
+
+    /**
+     * Starts decoding a notification line, positioned on its first item.
+     *
+     * @param line notification line
+     * @return {@code false} if the line has no fields
+     */
+    public boolean reset(String line) {
+        this.line = line;
+
+        nameLength = line.indexOf(' ');
+        if(nameLength < 0) return false;
+
+        itemStart = nameLength + 1;
+        itemEnd = end(itemStart);
+        return true;
+    }
+
+    /**
+     * Returns the length of the notification name, which allows dispatching
+     * on the name without creating a substring.
+     *
+     * @return the length of the notification name
+     */
+    public int getNameLength() {
+        return nameLength;
+    }
+
+    /**
+     * Moves to the next item of the notification.
+     * @return {@code false} if there are no more items
+     */
+    public boolean nextItem() {
+        if(itemEnd >= line.length()) return false;
+
+        itemStart = itemEnd + 1;
+        itemEnd = end(itemStart);
+        return true;
+    }
+
+    /**
+     * Returns the integer value of a key of the current item.
+     *
+     * @param key          key to look up
+     * @param defaultValue value if the key is absent or not an integer
+     * @return the integer value of the key
+     */
+    public int getInt(String key, int defaultValue) {
+        int start = find(key);
+        if(start < 0) return defaultValue;
+
+        int end = valueEnd(start);
+        boolean negative = start < end && line.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if(i == end) return defaultValue;
+
+        int value = 0;
+        for(; i < end; i++) {
+            char c = line.charAt(i);
+            if(c < '0' || c > '9') return defaultValue;
+            value = value * 10 + (c - '0');
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns the unescaped value of a key of the current item.
+     *
+     * @param key key to look up
+     * @return the value of the key, or {@code null} if absent
+     */
+    public String getString(String key) {
+        int start = find(key);
+        if(start < 0) return null;
+
+        int end = valueEnd(start);
+        int escape = line.indexOf('\\', start);
+        if(escape < 0 || escape >= end) return line.substring(start, end);
+
+        builder.setLength(0);
+        builder.append(line, start, escape);
+
+        for(int i = escape; i < end; i++) {
+            char c = line.charAt(i);
+            if(c == '\\' && i + 1 < end) {
+                char unescaped = TS3Map.unescapeCharacter(line.charAt(++i));
+                if(unescaped != 0) builder.append(unescaped);
+            } else {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the start of the value of a key of the current item.
+     *
+     * @param key key to look up
+     * @return the start of the value, or -1 if the key is absent
+     */
+    private int find(String key) {
+        int length = key.length();
+        int position = itemStart;
+
+        while(position + length <= itemEnd) {
+            if(line.regionMatches(position, key, 0, length)) {
+                int after = position + length;
+                if(after == itemEnd || line.charAt(after) == ' ') return after;
+                if(line.charAt(after) == '=') return after + 1;
+            }
+
+            // Skip to the next field
+            position = line.indexOf(' ', position);
+            if(position < 0 || position >= itemEnd) break;
+            position++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the end of the value starting at the specified position.
+     * @param start start of the value
+     * @return the end of the value, exclusive
+     */
+    private int valueEnd(int start) {
+        int space = line.indexOf(' ', start);
+        return space < 0 || space > itemEnd ? itemEnd : space;
+    }
+
+    /**
+     * Returns the end of the item starting at the specified position.
+     * @param start start of the item
+     * @return the end of the item, exclusive
+     */
+    private int end(int start) {
+        int pipe = line.indexOf('|', start);
+        return pipe < 0 ? line.length() : pipe;
+    }
+}
@@ -0,0 +1,258 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Lazily iterates over the items of a database listing, such as
+ * {@code clientdblist}, that is fetched in pages with the {@code start} and
+ * {@code duration} arguments. While the current page is being consumed, the
+ * following pages are fetched in the background by a daemon thread from the
+ * client's thread factory.
+ * <p>
+ * At most {@code prefetch} pages are fetched ahead of the consumer, after
+ * which the background thread waits for the consumer to catch up. Listings of
+ * any size are therefore iterated in constant memory. An iteration that is
+ * abandoned early should be {@link #close() closed}, so the background
+ * thread stops.
+ * <p>
+ * Every page starts after the items received so far, since the server may
+ * return fewer items than requested. The iteration ends when the server
+ * returns an empty page, or the "database empty result set" error. Commands
+ * that ignore the paging arguments, such as {@code complainlist}, return
+ * the whole listing every time: a page longer than requested is therefore
+ * the last one, and a page starting over with the first item ends the
+ * iteration without repeating the items. Any other
+ * error, or a failure of the background thread, is thrown as an
+ * {@code IllegalStateException} by {@link #hasNext()}.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ * @see TS3ServerQueryClient#executePaged(String, TS3Map, int, int)
+ */
+public class TS3PagedIterator implements Iterator<TS3Map>, Closeable {
+
+    /** Default number of items per page. */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    /** Default number of pages fetched ahead of the consumer. */
+    public static final int DEFAULT_PREFETCH = 2;
+
+    /** Error id of an empty database result set. */
+    public static final int EMPTY_RESULT_SET = 1281;
+
+    /** Server query client executing the command. */
+    private TS3ServerQueryClient client;
+
+    /** Command line without the paging arguments. */
+    private String command;
+
+    /** Number of items per page. */
+    private int pageSize;
+
+    /** Pages fetched ahead of the consumer. */
+    private BlockingQueue<Page> pages;
+
+    /** Thread fetching the pages. */
+    private Thread fetcher;
+
+    /** Items of the current page. */
+    private Iterator<TS3Map> current = Collections.<TS3Map>emptyList()
+            .iterator();
+
+    /** Whether the last page was taken from the queue, or closed. */
+    private volatile boolean finished = false;
+
+    /**
+     * Constructs an iterator over the items of the specified command, and
+     * starts fetching the first pages.
+     *
+     * @param client    server query client executing the command
+     * @param command   name of the command
+     * @param arguments arguments of the command, without {@code start} and
+     *                  {@code duration}, may be {@code null}
+     * @param pageSize  number of items per page
+     * @param prefetch  number of pages fetched ahead of the consumer
+     */
+    public TS3PagedIterator(TS3ServerQueryClient client, String command,
+            TS3Map arguments, int pageSize, int prefetch) {
+        this.client = client;
+        this.pageSize = pageSize;
+
+        if(arguments != null && !arguments.isEmpty()) {
+            command = command + " " + arguments.toString();
+        }
+        this.command = command;
+
+        pages = new ArrayBlockingQueue<Page>(Math.max(prefetch, 1));
+
+        fetcher = client.getThreadFactory().newThread(new Runnable() {
+            public void run() {
+                fetch();
+            }
+        });
+        fetcher.setDaemon(true);
+        fetcher.start();
+    }
+
+    /**
+     * Returns {@code true} if there are more items, waiting for the next page
+     * to be fetched if needed.
+     *
+     * @return {@code true} if there are more items
+     * @throws IllegalStateException if a page could not be fetched
+     */
+    public boolean hasNext() {
+        while(!current.hasNext()) {
+            if(finished) return false;
+
+            Page page;
+            try {
+                page = pages.take();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting "
+                        + "for the next page", e);
+            }
+
+            if(page.failure != null) {
+                finished = true;
+                throw new IllegalStateException(page.failure, page.cause);
+            }
+
+            current = page.items.iterator();
+            finished = page.last;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the next item.
+     * @return the next item
+     */
+    public TS3Map next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        return current.next();
+    }
+
+    /**
+     * Not supported.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the thread fetching the pages.
+     * @return the thread fetching the pages
+     */
+    Thread getFetcher() {
+        return fetcher;
+    }
+
+    /**
+     * Stops fetching pages. The items of the current page can still be
+     * iterated.
+     */
+    public void close() {
+        finished = true;
+        fetcher.interrupt();
+        pages.clear();
+    }
+
+    /**
+     * Fetches the pages until the last one, or until closed. Every failure
+     * ends with a page describing it, so the consumer never waits forever.
+     */
+    private void fetch() {
+        int start = 0;
+        String first = null;
+
+        try {
+            while(true) {
+                TS3Result result = client.execute(command + " start=" + start
+                        + " duration=" + pageSize);
+                Page page;
+
+                if(result.getErrorCode() == EMPTY_RESULT_SET) {
+                    page = new Page(Collections.<TS3Map>emptyList(), true);
+                } else if(result.hasError()) {
+                    page = new Page(command + " failed: "
+                            + result.getErrorMessage() + " ("
+                            + result.getErrorCode() + ")", null);
+                } else {
+                    List<TS3Map> items = result.getItems();
+                    String head = items.isEmpty() ? null
+                            : items.get(0).toString();
+
+                    if(start == 0) {
+                        first = head;
+                    } else if(head != null && head.equals(first)) {
+                        // The paging arguments were ignored, and the listing
+                        // started over
+                        items = Collections.<TS3Map>emptyList();
+                    }
+
+                    page = new Page(items, items.isEmpty()
+                            || items.size() > pageSize);
+                    start += items.size();
+                }
+
+                // Block while the consumer is behind
+                pages.put(page);
+                if(page.last || page.failure != null) break;
+            }
+        } catch(InterruptedException e) {
+            client.getLogger().debug("Paged fetch interrupted");
+        } catch(Throwable t) {
+            try {
+                pages.put(new Page("Unable to fetch " + command, t));
+            } catch(InterruptedException e) {
+                client.getLogger().debug("Paged fetch interrupted");
+            }
+        }
+    }
+
+    /**
+     * A fetched page.
+     */
+    private static class Page {
+        /** Items of the page. */
+        private List<TS3Map> items;
+
+        /** Whether or not this is the last page. */
+        private boolean last;
+
+        /** Description of the failure, if the page could not be fetched. */
+        private String failure;
+
+        /** Cause of the failure, if any. */
+        private Throwable cause;
+
+        /**
+         * Constructs a fetched page.
+         * @param items items of the page
+         * @param last  whether or not this is the last page
+         */
+        public Page(List<TS3Map> items, boolean last) {
+            this.items = items;
+            this.last = last;
+        }
+
+        /**
+         * Constructs a page that could not be fetched.
+         * @param failure description of the failure
+         * @param cause   cause of the failure, may be {@code null}
+         */
+        public Page(String failure, Throwable cause) {
+            this.failure = failure;
+            this.cause = cause;
+        }
+    }
+}
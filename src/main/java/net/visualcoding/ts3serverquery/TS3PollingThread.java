@@ -6,6 +6,15 @@ import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
 
 import java.util.Map;
 import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 import org.slf4j.Logger;
@@ -20,6 +29,12 @@ import org.slf4j.Logger;
  * The TS3 {@code channel} notification only notifies the the query client of
  * events from a single channel. In order to receive client moved events from
  * all channels, a polling mechanism is required.
+ * <p>
+ * If the client has a snapshot file, the last known clients and channels are
+ * saved to it every {@value #SNAPSHOT_POLLS} polls and when this thread
+ * terminates. The first poll after a restart is then compared against the
+ * snapshot, so that clients that disconnected or moved while the client was
+ * down are reported.
  *
  * @author Aldehir Rojas
  * @version 1.0.0
@@ -29,6 +44,19 @@ public class TS3PollingThread extends Thread {
     /** Default latency of the polling thread. */
     private static final int DEFAULT_LATENCY = 500;
 
+    /** Number of polls between snapshots. */
+    public static final int SNAPSHOT_POLLS = 20;
+
+    /** Age in milliseconds after which a snapshot is ignored. */
+    public static final long SNAPSHOT_MAX_AGE = 10 * 60 * 1000L;
+
+    /** Magic number at the start of snapshot files. */
+    private static final int SNAPSHOT_MAGIC = 0x54533353;
+
+    /** Command listing the clients along with their unique ids. */
+    private static final TS3Command CLIENT_LIST = TS3Commands.clientList(true,
+            false, false, false);
+
     /**
      * Reference to the server query client that is to receive event
      * notifications.
@@ -43,6 +71,9 @@ public class TS3PollingThread extends Thread {
      */
     private Map<Integer, ClientInfo> map = null;
 
+    /** Number of polls performed. */
+    private int polls = 0;
+
     /**
      * Constructs the thread with the specified server query client and the
      * default latency of {@value #DEFAULT_LATENCY}.
@@ -78,14 +109,8 @@ public class TS3PollingThread extends Thread {
             // interrupted.
 
             while(true) {
-                // Get the current clients as a map
-                Map<Integer, ClientInfo> currentClients = getCurrentClients();
-
-                // Process clients
-                processClients(currentClients);
-
-                // Re-assign map
-                map = currentClients;
+                // Poll the server once
+                poll();
 
                 // Wait a bit before polling again
                 Thread.sleep(latency);
@@ -97,9 +122,222 @@ public class TS3PollingThread extends Thread {
             serverQuery.getLogger().debug("Polling thread interrupted");
         }
 
+        saveSnapshot();
+
+        // Give back the unique ids of the last known clients
+        release(map);
+        map = null;
+
         serverQuery.getLogger().info("Polling thread terminated");
     }
 
+    /**
+     * Polls the server once, sending event notifications for any clients that
+     * have connected, disconnected, or moved since the previous poll. This
+     * allows the polling to be driven by an external scheduler, such as a
+     * {@link TS3FleetManager}, instead of by this thread.
+     *
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public void poll() throws InterruptedException, IOException {
+        // Pick up where the previous instance left off
+        if(map == null && polls == 0) map = loadSnapshot();
+
+        // Get the current clients as a map
+        Map<Integer, ClientInfo> currentClients = getCurrentClients();
+
+        // Process clients
+        processClients(currentClients);
+
+        // Re-assign map, giving back the unique ids of the previous one
+        release(map);
+        map = currentClients;
+
+        if(polls % SNAPSHOT_POLLS == 0) saveSnapshot();
+    }
+
+    /**
+     * Saves the last known clients and channels, along with the event
+     * sequence, to the snapshot file of the client. The snapshot is written
+     * to a temporary file first, so a crash never leaves a partial snapshot.
+     */
+    protected void saveSnapshot() {
+        File file = serverQuery.getSnapshotFile();
+        if(file == null || map == null) return;
+
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(System.currentTimeMillis());
+                out.writeLong(serverQuery.getEventThread().getSequence());
+
+                out.writeInt(map.size());
+                for(ClientInfo client : map.values()) {
+                    out.writeInt(client.clientId);
+                    out.writeInt(client.channelId);
+                    writeString(out, client.clientName);
+                    writeString(out, client.clientUid);
+                }
+
+                TS3ServerState state = serverQuery.getServerState();
+                Map<Integer, TS3ServerState.Channel> channels = state == null
+                        ? new HashMap<Integer, TS3ServerState.Channel>()
+                        : state.getSnapshot().getChannels();
+
+                out.writeInt(channels.size());
+                for(TS3ServerState.Channel channel : channels.values()) {
+                    out.writeInt(channel.getId());
+                    out.writeInt(channel.getParentId());
+                    writeString(out, channel.getName());
+                }
+            } finally {
+                out.close();
+            }
+
+            // renameTo does not replace existing files on every platform
+            if(!temp.renameTo(file)
+                    && !(file.delete() && temp.renameTo(file))) {
+                throw new IOException("Unable to rename " + temp);
+            }
+        } catch(IOException e) {
+            serverQuery.getLogger().warn("Unable to save snapshot", e);
+        }
+    }
+
+    /**
+     * Loads the last known clients from the snapshot file of the client, and
+     * restores the channels and the event sequence.
+     *
+     * @return the last known clients, or {@code null} if there is no recent
+     *         snapshot
+     */
+    protected Map<Integer, ClientInfo> loadSnapshot() {
+        File file = serverQuery.getSnapshotFile();
+        if(file == null || !file.isFile()) return null;
+
+        try {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if(in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a snapshot: " + file);
+                }
+
+                long age = System.currentTimeMillis() - in.readLong();
+                if(age > SNAPSHOT_MAX_AGE) {
+                    serverQuery.getLogger().info("Ignoring snapshot of {} ms "
+                            + "ago", age);
+                    return null;
+                }
+
+                long sequence = in.readLong();
+
+                int count = readCount(in);
+                Map<Integer, ClientInfo> clients;
+                clients = new HashMap<Integer, ClientInfo>(count * 2 + 1);
+
+                for(int i = 0; i < count; i++) {
+                    ClientInfo info = new ClientInfo();
+                    info.clientId = in.readInt();
+                    info.channelId = in.readInt();
+                    info.clientName = readString(in);
+                    info.clientUid = readString(in);
+                    clients.put(info.clientId, info);
+                }
+
+                count = readCount(in);
+                List<TS3Map> channels = new ArrayList<TS3Map>(count);
+                for(int i = 0; i < count; i++) {
+                    TS3Map item = new TS3Map();
+                    item.add("cid", in.readInt());
+                    item.add("pid", in.readInt());
+                    item.add("channel_name", readString(in));
+                    channels.add(item);
+                }
+
+                // Only restore anything once the whole snapshot was read
+                serverQuery.getEventThread().setSequence(sequence);
+
+                TS3ServerState state = serverQuery.getServerState();
+                if(state != null && count > 0) state.updateChannels(channels);
+
+                TS3UidDictionary dictionary = serverQuery.getUidDictionary();
+                for(ClientInfo info : clients.values()) {
+                    info.uidHandle = dictionary.acquire(info.clientUid);
+                    info.clientUid = dictionary.getUid(info.uidHandle);
+                }
+
+                serverQuery.getLogger().info("Loaded snapshot of {} clients",
+                        clients.size());
+                return clients;
+            } finally {
+                in.close();
+            }
+        } catch(IOException e) {
+            serverQuery.getLogger().warn("Unable to load snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Gives back the unique id handles held by the specified clients.
+     * @param clients clients to release, may be {@code null}
+     */
+    private void release(Map<Integer, ClientInfo> clients) {
+        if(clients == null) return;
+
+        TS3UidDictionary dictionary = serverQuery.getUidDictionary();
+        for(ClientInfo client : clients.values()) {
+            dictionary.release(client.uidHandle);
+        }
+    }
+
+    /**
+     * Writes a string that may be {@code null}.
+     *
+     * @param out   stream to write to
+     * @param value string to write
+     * @throws IOException if the string could not be written
+     */
+    private static void writeString(DataOutputStream out, String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) out.writeUTF(value);
+    }
+
+    /**
+     * Reads the number of entries that follow. Numbers that are negative or
+     * larger than the rest of the file are rejected, so a corrupt snapshot
+     * never allocates more than it holds.
+     *
+     * @param in stream to read from
+     * @return the number of entries
+     * @throws IOException if the number could not be read or is invalid
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if(count < 0 || count > in.available()) {
+            throw new IOException("Invalid count: " + count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param in stream to read from
+     * @return the string, or {@code null}
+     * @throws IOException if the string could not be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
     /**
      * Returns a map of clients where the client id is the key and the
      * associated value is a ClientInfo object.
@@ -110,13 +348,32 @@ public class TS3PollingThread extends Thread {
     final protected Map<Integer, ClientInfo> getCurrentClients()
             throws InterruptedException, IOException {
 
-        // Send `clientlist -uid` to get a list of all clients with their uids
-        TS3Result result = serverQuery.execute("clientlist -uid");
+        TS3ServerState state = serverQuery.getServerState();
+        TS3Result result;
+
+        if(state == null) {
+            // Send `clientlist -uid` to get a list of all clients with their
+            // uids
+            result = serverQuery.execute(CLIENT_LIST);
+        } else {
+            // Refresh the channels and server groups every so often
+            if(polls % state.getRefreshPolls() == 0) {
+                state.refreshStructure(serverQuery);
+            }
+
+            // Also request the server groups to update the server state
+            result = serverQuery.execute(TS3ServerState.CLIENT_LIST);
+            if(!result.hasError()) state.updateClients(result.getItems());
+        }
+
+        polls++;
 
         // Create a map to store the clients
         Map<Integer, ClientInfo> clients;
         clients = new HashMap<Integer, ClientInfo>(151);
 
+        TS3UidDictionary dictionary = serverQuery.getUidDictionary();
+
         // Loop through all of the clients
         for(TS3Map item : result.getItems()) {
             // Instantiate a new ClientInfo object to store client information
@@ -127,6 +384,25 @@ public class TS3PollingThread extends Thread {
             info.clientUid = item.get("client_unique_identifier");
             info.channelId = item.getInteger("cid").intValue();
 
+            // Reuse the strings of the previous poll if they did not change,
+            // so only one instance of each is retained
+            ClientInfo previous = map == null ? null : map.get(info.clientId);
+
+            if(previous != null && info.clientUid != null
+                    && info.clientUid.equals(previous.clientUid)) {
+                info.clientUid = previous.clientUid;
+                info.uidHandle = previous.uidHandle;
+                dictionary.retain(info.uidHandle);
+            } else {
+                info.uidHandle = dictionary.acquire(info.clientUid);
+                info.clientUid = dictionary.getUid(info.uidHandle);
+            }
+
+            if(previous != null && info.clientName != null
+                    && info.clientName.equals(previous.clientName)) {
+                info.clientName = previous.clientName;
+            }
+
             // Add to the map
             clients.put(info.clientId, info);
         }
@@ -162,6 +438,17 @@ public class TS3PollingThread extends Thread {
             // Get the ClientInfo object in the previous map
             ClientInfo previous = map.get(client.clientId);
 
+            // A client id reused by another client, which may happen across
+            // a restart, is a disconnect followed by a connect
+            if(previous != null && client.clientUid != null
+                    && previous.clientUid != null
+                    && !client.clientUid.equals(previous.clientUid)) {
+                serverQuery.getEventThread().notify(
+                        new TS3ClientDisconnectedEvent(previous.clientName,
+                                previous.clientId, previous.clientUid));
+                previous = null;
+            }
+
             if(previous == null) {
                 // Send an event notification if the client does not exist in
                 // the previous map of connected clients
@@ -184,7 +471,7 @@ public class TS3PollingThread extends Thread {
     /**
      * Basic structure for client information.
      */
-    protected class ClientInfo {
+    protected static class ClientInfo {
         /** Name of the client. */
         protected String clientName;
 
@@ -194,6 +481,9 @@ public class TS3PollingThread extends Thread {
         /** Unique id of the client. */
         protected String clientUid;
 
+        /** Handle of the unique id in the unique id dictionary. */
+        protected int uidHandle = TS3UidDictionary.NO_HANDLE;
+
         /** Channel id of the channel the client is currently in. */
         protected int channelId;
 
@@ -34,11 +34,38 @@ public class TS3Result {
         parseResultArray(result);
     }
 
+    /**
+     * Constructs a copy of the specified result. The items are copied as
+     * well, so changes to the copy never affect the original result.
+     *
+     * @param other result to copy
+     */
+    public TS3Result(TS3Result other) {
+        List<TS3Map> others = other.getItems();
+
+        items = new ArrayList<TS3Map>(others.size());
+        for(TS3Map item : others) items.add(new TS3Map(item));
+
+        errorCode = other.errorCode;
+        errorMessage = other.errorMessage;
+    }
+
+    /**
+     * Constructs an empty TS3Result object for subclasses that store the
+     * items of the response in their own representation. Subclasses must
+     * call {@link #parseError(String)} and override {@link #getItems()}.
+     */
+    protected TS3Result() {
+        items = new ArrayList<TS3Map>();
+    }
+
     /**
      * Returns the first item in the result list.
      * @return the first item in the result list
      */
     public TS3Map getFirst() {
+        List<TS3Map> items = getItems();
+
         if(!items.isEmpty()) return items.get(0);
         return null;
     }
@@ -100,7 +127,35 @@ public class TS3Result {
         }
 
         // Parse and set the error code/message
-        String[] err = result[result.length - 1].split("\\s+", 2);
+        parseError(result[result.length - 1]);
+    }
+
+    /**
+     * Returns the error id of an error line without parsing the whole line.
+     *
+     * @param line error line of the Teamspeak 3 Server response
+     * @return the error id, or -1 if the line has none
+     */
+    static int getErrorCode(String line) {
+        int index = line.indexOf(" id=");
+        if(index < 0) return -1;
+
+        int code = 0;
+        for(int i = index + 4; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(c < '0' || c > '9') break;
+            code = code * 10 + (c - '0');
+        }
+
+        return code;
+    }
+
+    /**
+     * Parses the error line terminating the Teamspeak 3 Server response.
+     * @param line error line of the Teamspeak 3 Server response
+     */
+    protected void parseError(String line) {
+        String[] err = line.split("\\s+", 2);
         TS3Map errorMap = new TS3Map(err[1]);
 
         errorMessage = errorMap.get("msg");
@@ -119,6 +174,7 @@ public class TS3Result {
         sb.append("\nError Message: ");
         sb.append(getErrorMessage());
 
+        List<TS3Map> items = getItems();
         if(items.size() > 0) {
             sb.append("\n");
 
@@ -0,0 +1,369 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Read-through cache of the results of idempotent info commands, such as
+ * {@code clientinfo}, {@code clientdbinfo}, and {@code channelinfo}. The
+ * cache is set on a client through
+ * {@link TS3ServerQueryClient#setResultCache(TS3ResultCache)}, after which
+ * {@code execute} returns cached results for identical command lines.
+ * <p>
+ * The number of cached results is bounded, evicting the least recently used
+ * result first, and every command has its own time to live. The client
+ * hands every event to the cache as it is queued, so results are
+ * invalidated as soon as an event concerns the client or channel they
+ * describe, before any listener handles the event.
+ * <p>
+ * Results are copied in and out of the cache, so callers may modify the
+ * results they are given. A result fetched before an invalidation is never
+ * cached once the invalidation happened: callers take a {@link #getStamp()
+ * stamp} before sending the command and hand it to
+ * {@link #put(TS3Command, TS3Result, long)}, which drops the result if the
+ * cache was invalidated in between.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3ResultCache implements TS3EventListener {
+
+    /** Default maximum number of cached results. */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    /** Default time to live of a cached result, in milliseconds. */
+    public static final long DEFAULT_TIME_TO_LIVE = 5000;
+
+    /** Maximum number of cached results. */
+    private int maxSize;
+
+    /** Time to live in milliseconds of the results of each command. */
+    private Map<String, Long> timesToLive;
+
+    /** Cached results mapped by command line, in access order. */
+    private LinkedHashMap<String, Entry> entries;
+
+    /** Number of lookups that returned a cached result. */
+    private long hits = 0;
+
+    /** Number of lookups that did not return a cached result. */
+    private long misses = 0;
+
+    /** Number of results evicted because the cache was full. */
+    private long evictions = 0;
+
+    /** Number of invalidations so far, used to stamp results. */
+    private long stamp = 0;
+
+    /**
+     * Constructs a cache of {@value #DEFAULT_MAX_SIZE} results, caching the
+     * {@code clientinfo}, {@code clientdbinfo}, and {@code channelinfo}
+     * commands for {@value #DEFAULT_TIME_TO_LIVE} milliseconds.
+     */
+    public TS3ResultCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructs a cache of {@code maxSize} results, caching the
+     * {@code clientinfo}, {@code clientdbinfo}, and {@code channelinfo}
+     * commands for {@value #DEFAULT_TIME_TO_LIVE} milliseconds.
+     *
+     * @param maxSize maximum number of cached results
+     */
+    public TS3ResultCache(int maxSize) {
+        this.maxSize = maxSize;
+
+        timesToLive = new HashMap<String, Long>();
+        setTimeToLive("clientinfo", DEFAULT_TIME_TO_LIVE);
+        setTimeToLive("clientdbinfo", DEFAULT_TIME_TO_LIVE);
+        setTimeToLive("channelinfo", DEFAULT_TIME_TO_LIVE);
+
+        // Evict the least recently used result when full
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Entry> eldest) {
+                if(size() <= TS3ResultCache.this.maxSize) return false;
+
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Sets the time to live of the results of the specified command. A time
+     * to live of 0 disables caching of the command. Only idempotent commands
+     * should be cached.
+     *
+     * @param command       name of the command
+     * @param timeToLive    time to live in milliseconds
+     */
+    public synchronized void setTimeToLive(String command, long timeToLive) {
+        if(timeToLive <= 0) {
+            timesToLive.remove(command);
+        } else {
+            timesToLive.put(command, timeToLive);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the results of the specified command are
+     * cached.
+     *
+     * @param command name of the command
+     * @return {@code true} if the results of the command are cached
+     */
+    public synchronized boolean isCached(String command) {
+        return timesToLive.containsKey(command);
+    }
+
+    /**
+     * Returns a copy of the cached result of the specified command line, or
+     * {@code null} if it is not cached or has expired.
+     *
+     * @param line command line
+     * @return the cached result, or {@code null}
+     */
+    public synchronized TS3Result get(String line) {
+        Entry entry = entries.get(line);
+
+        if(entry != null && entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(line);
+            entry = null;
+        }
+
+        if(entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return new TS3Result(entry.result);
+    }
+
+    /**
+     * Returns the current stamp of the cache, which changes with every
+     * invalidation. The stamp is taken before sending a command whose result
+     * is then cached with {@link #put(TS3Command, TS3Result, long)}.
+     *
+     * @return the current stamp
+     */
+    public synchronized long getStamp() {
+        return stamp;
+    }
+
+    /**
+     * Caches a copy of the result of the specified command line. Results
+     * with an error are not cached.
+     *
+     * @param command command the result belongs to
+     * @param result  result of the command
+     */
+    public synchronized void put(TS3Command command, TS3Result result) {
+        put(command, result, stamp);
+    }
+
+    /**
+     * Caches a copy of the result of the specified command line, unless the
+     * cache was invalidated since the specified stamp was taken. Results
+     * with an error are not cached.
+     *
+     * @param command command the result belongs to
+     * @param result  result of the command
+     * @param stamp   stamp taken before the command was sent
+     * @see #getStamp()
+     */
+    public synchronized void put(TS3Command command, TS3Result result,
+            long stamp) {
+        if(result.hasError() || stamp != this.stamp) return;
+
+        Long timeToLive = timesToLive.get(command.getName());
+        if(timeToLive == null) return;
+
+        String line = command.toString();
+        Entry entry = new Entry(new TS3Result(result),
+                System.currentTimeMillis() + timeToLive.longValue());
+
+        // Remember what the result describes, for invalidation
+        int space = line.indexOf(' ');
+        if(space != -1) {
+            TS3Map arguments = new TS3Map(line.substring(space + 1));
+            entry.clientId = arguments.getInteger("clid");
+            entry.channelId = arguments.getInteger("cid");
+        }
+
+        TS3Map first = result.getFirst();
+        if(first != null) entry.uid = first.get("client_unique_identifier");
+
+        entries.put(line, entry);
+    }
+
+    /**
+     * Removes every cached result describing the specified client.
+     *
+     * @param clientId id of the client
+     * @param uid      unique id of the client, may be {@code null}
+     */
+    public synchronized void invalidateClient(int clientId, String uid) {
+        stamp++;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while(it.hasNext()) {
+            Entry entry = it.next();
+
+            if((entry.clientId != null && entry.clientId.intValue() == clientId)
+                    || (uid != null && uid.equals(entry.uid))) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes every cached result describing the specified channel.
+     * @param channelId id of the channel
+     */
+    public synchronized void invalidateChannel(int channelId) {
+        stamp++;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while(it.hasNext()) {
+            Entry entry = it.next();
+
+            if(entry.channelId != null
+                    && entry.channelId.intValue() == channelId) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public synchronized void clear() {
+        stamp++;
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of cached results.
+     * @return the number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that returned a cached result.
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not return a cached result.
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of results evicted because the cache was full.
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the ratio of lookups that returned a cached result, between 0
+     * and 1.
+     *
+     * @return the hit rate of the cache
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double)hits / total;
+    }
+
+    /**
+     * Invalidates the moved client and the channels it moved between.
+     * @param event Event object containing the details of the event
+     */
+    public void onClientMoved(TS3ClientMovedEvent event) {
+        invalidate(event);
+        invalidateChannel(event.getSource());
+        invalidateChannel(event.getDestination());
+    }
+
+    /**
+     * Invalidates the connected client.
+     * @param event Event object containing the details of the event
+     */
+    public void onClientConnected(TS3ClientConnectedEvent event) {
+        invalidate(event);
+    }
+
+    /**
+     * Invalidates the disconnected client.
+     * @param event Event object containing the details of the event
+     */
+    public void onClientDisconnected(TS3ClientDisconnectedEvent event) {
+        invalidate(event);
+    }
+
+    /**
+     * Messages do not invalidate any result.
+     * @param event Event object containing the details of the event
+     */
+    public void onMessage(TS3MessageEvent event) {
+    }
+
+    /**
+     * Invalidates the client that triggered the specified event.
+     * @param event event triggered by a client
+     */
+    private void invalidate(TS3Event event) {
+        invalidateClient(event.getClientId(), event.getClientUid());
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class Entry {
+        /** Cached result. */
+        private TS3Result result;
+
+        /** Time in milliseconds at which the result expires. */
+        private long expiresAt;
+
+        /** Id of the client the result describes, if any. */
+        private Integer clientId;
+
+        /** Id of the channel the result describes, if any. */
+        private Integer channelId;
+
+        /** Unique id of the client the result describes, if any. */
+        private String uid;
+
+        /**
+         * Constructs an entry for the specified result.
+         * @param result    cached result
+         * @param expiresAt time in milliseconds at which the result expires
+         */
+        public Entry(TS3Result result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
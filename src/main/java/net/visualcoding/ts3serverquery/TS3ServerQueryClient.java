@@ -1,13 +1,20 @@
 package net.visualcoding.ts3serverquery;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +28,6 @@ import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
  *
  * @author Aldehir Rojas
  * @version 1.0.0
- *
- * @todo Implement handling of server and channel notifications, i.e. when
- *       the polling thread is not spawned.
  */
 public class TS3ServerQueryClient {
 
@@ -33,8 +37,8 @@ public class TS3ServerQueryClient {
     /** Input thread. */
     private TS3InputThread inputThread = null;
 
-    /** Writer object for sending commands. */
-    private TS3Writer writer = null;
+    /** Encoder for sending commands. */
+    private TS3CommandEncoder encoder = null;
 
     /** Polling thread. */
     private TS3PollingThread pollingThread = null;
@@ -42,6 +46,55 @@ public class TS3ServerQueryClient {
     /** Event thread. */
     private TS3EventThread eventThread = null;
 
+    /** Factory creating the threads of this client. */
+    private ThreadFactory threadFactory = new TS3ThreadFactory();
+
+    /** Thread running the input thread. */
+    private Thread inputWorker = null;
+
+    /** Thread running the event thread. */
+    private Thread eventWorker = null;
+
+    /** Thread running the polling thread. */
+    private Thread pollingWorker = null;
+
+    /** Whether the polling thread is spawned once first needed. */
+    private boolean pollingRequested = false;
+
+    /** Whether this client is connected, allowing lazy thread startup. */
+    private volatile boolean connected = false;
+
+    /** Time the last line was received, in nanoseconds. */
+    private volatile long lastActivity = System.nanoTime();
+
+    /** Response to the {@code whoami} of the last bootstrap. */
+    private volatile TS3Map whoAmI = null;
+
+    /** Mirror of the server state maintained by the polling thread. */
+    private TS3ServerState serverState = null;
+
+    /** Cache of the results of info commands. */
+    private volatile TS3ResultCache resultCache = null;
+
+    /** Dictionary of the unique ids of the clients seen by this client. */
+    private TS3UidDictionary uidDictionary = new TS3UidDictionary();
+
+    /** Metrics receiving the measurements of this client. */
+    private volatile TS3Metrics metrics = TS3Metrics.NONE;
+
+    /** File the polling thread saves snapshots of the clients to. */
+    private File snapshotFile = null;
+
+    /** Pool the socket buffers are taken from. */
+    private TS3BufferPool bufferPool = TS3BufferPool.getShared();
+
+    /** Whether or not identical read-only commands in flight are shared. */
+    private volatile boolean coalescing = false;
+
+    /** Read-only commands in flight, mapped by command line. */
+    private ConcurrentMap<String, Flight> flights =
+            new ConcurrentHashMap<String, Flight>();
+
     /** Semaphore to ensure that only one command is sent at a time. */
     private Semaphore commandMutex;
 
@@ -120,6 +173,172 @@ public class TS3ServerQueryClient {
         return eventThread;
     }
 
+    /**
+     * Returns the factory creating the threads of this client.
+     * @return the factory creating the threads of this client
+     */
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    /**
+     * Sets the factory creating the threads that run the input, event and
+     * polling threads of this client, and thereby the event listeners. Use
+     * {@link TS3ThreadFactory#virtual()} to run them as virtual threads. The
+     * factory must be set before connecting.
+     *
+     * @param threadFactory factory creating the threads of this client
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Returns the dictionary of the unique ids of the clients seen by this
+     * client. Events carry the unique id instances stored in this dictionary.
+     *
+     * @return the dictionary of the unique ids of the clients
+     */
+    public TS3UidDictionary getUidDictionary() {
+        return uidDictionary;
+    }
+
+    /**
+     * Returns the mirror of the server state, or {@code null} if none is
+     * maintained.
+     *
+     * @return the mirror of the server state
+     */
+    public TS3ServerState getServerState() {
+        return serverState;
+    }
+
+    /**
+     * Sets the mirror of the server state to be maintained by the polling
+     * thread of this client. Set to {@code null} to stop maintaining it.
+     * <p>
+     * If polling was requested, the polling thread is spawned right away, so
+     * that a state set after connecting is populated even without listeners.
+     * Without polling, the state is only updated by the "server" and
+     * "channel" notifications, and must be seeded through
+     * {@link TS3ServerState#refresh(TS3ServerQueryClient)}.
+     *
+     * @param serverState mirror of the server state
+     */
+    public void setServerState(TS3ServerState serverState) {
+        this.serverState = serverState;
+        startPolling();
+    }
+
+    /**
+     * Returns the cache of the results of info commands, or {@code null} if
+     * results are not cached.
+     *
+     * @return the cache of the results of info commands
+     */
+    public TS3ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache of the results of info commands. The cache is
+     * invalidated by client and channel events as they are queued, before
+     * any listener sees them, so that listeners never get results older
+     * than the event they handle. Set to {@code null} to stop caching
+     * results.
+     *
+     * @param resultCache cache of the results of info commands
+     */
+    public void setResultCache(TS3ResultCache resultCache) {
+        this.resultCache = resultCache;
+        startPolling();
+    }
+
+    /**
+     * Returns the metrics receiving the measurements of this client.
+     * @return the metrics of this client, {@link TS3Metrics#NONE} by default
+     */
+    public TS3Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics receiving the measurements of this client, such as
+     * the latency of every command and the depth of the queues. Set to
+     * {@link TS3Metrics#NONE} to stop measuring.
+     *
+     * @param metrics metrics of this client
+     */
+    public void setMetrics(TS3Metrics metrics) {
+        this.metrics = metrics == null ? TS3Metrics.NONE : metrics;
+    }
+
+    /**
+     * Returns the file the polling thread saves snapshots to, or {@code null}
+     * if no snapshots are saved.
+     *
+     * @return the snapshot file
+     */
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Sets the file the polling thread saves snapshots of the last known
+     * clients and channels to. If the file holds a recent snapshot when
+     * polling starts, the first poll is compared against it, so that events
+     * that happened while this client was down are reported. Set to
+     * {@code null} to disable snapshots.
+     *
+     * @param snapshotFile the snapshot file
+     */
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Returns the pool the socket buffers are taken from.
+     * @return the buffer pool
+     */
+    public TS3BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the pool the socket buffers are taken from on the next connect.
+     * By default, every client shares {@link TS3BufferPool#getShared()}.
+     *
+     * @param bufferPool buffer pool, or {@code null} for the shared pool
+     */
+    public void setBufferPool(TS3BufferPool bufferPool) {
+        this.bufferPool = bufferPool == null
+                ? TS3BufferPool.getShared() : bufferPool;
+    }
+
+    /**
+     * Returns {@code true} if identical read-only commands in flight are
+     * coalesced.
+     *
+     * @return {@code true} if commands in flight are coalesced
+     */
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * Sets whether or not identical read-only commands in flight are
+     * coalesced. When enabled, a thread executing a read-only command that is
+     * already waiting to be sent or answered attaches to the pending result
+     * instead of sending a duplicate. Every thread is then given its own
+     * copy of the response, so it may modify the result it is returned.
+     *
+     * @param coalescing whether or not to coalesce commands in flight
+     * @see TS3Commands#isReadOnly(String)
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
     /**
      * Sets the Teamspeak 3 Server Host.
      * @param host Teamspeak 3 Server Host
@@ -142,6 +361,7 @@ public class TS3ServerQueryClient {
      */
     public void addEventListener(TS3EventListener listener) {
         getEventThread().addListener(listener);
+        startPolling();
     }
 
     /**
@@ -168,15 +388,117 @@ public class TS3ServerQueryClient {
 
         logger.info("Connected to {}:{}", host, port);
 
-        // Instantiate a writer object for sending output
-        writer = new TS3Writer(new OutputStreamWriter(
-                connection.getOutputStream()));
+        // Instantiate an encoder for sending output
+        encoder = new TS3CommandEncoder(connection.getOutputStream(),
+                bufferPool.acquireWriteBuffer());
 
         // Create our input (listening) thread
         inputThread = new TS3InputThread(this, connection.getInputStream());
 
         // Start up the listening thread
-        inputThread.start();
+        lastActivity = System.nanoTime();
+        inputWorker = spawn(inputThread);
+        connected = true;
+    }
+
+    /**
+     * Returns whether this client is connected, that is whether
+     * {@link #connect()} was called and {@link #disconnect()} was not.
+     *
+     * @return {@code true} if this client is connected
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Returns the time the last line was received from the server, or the
+     * time of the connection if nothing was received since.
+     *
+     * @return the time of the last activity, in {@link System#nanoTime()}
+     *         units
+     */
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Records that a line was received from the server.
+     */
+    void received() {
+        lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Connects to the TS3 Server and bootstraps the connection in a single
+     * round trip: the login, the selection of the virtual server, a
+     * {@code whoami} and every notification registration are sent in one
+     * flight. The event thread is started once the first event arrives, and
+     * the polling thread once a listener or a server state needs it.
+     * <p>
+     * The "channel" notification is registered for every channel. If the
+     * server rejects this, it is registered for the channel of the query
+     * client instead, at the cost of a second round trip.
+     *
+     * @param username   login name of the query account
+     * @param password   password of the query account
+     * @param serverId   id of the virtual server to use
+     * @param usePolling Whether or not polling is used in place of the
+     *                   "server" and "channel" notifications
+     * @return True if every command of the bootstrap succeeded.
+     * @throws IOException
+     * @throws InterruptedException
+     * @see #getWhoAmI()
+     */
+    public boolean connect(String username, String password, int serverId,
+            boolean usePolling) throws IOException, InterruptedException {
+        connect();
+
+        List<TS3Command> commands = new ArrayList<TS3Command>(8);
+        commands.add(TS3Commands.login(username, password));
+        commands.add(TS3Commands.use(serverId));
+        commands.add(TS3Commands.whoAmI());
+        int registrations = commands.size();
+        commands.addAll(notificationCommands(usePolling));
+
+        List<TS3Result> results = executeBatch(BatchPolicy.CONTINUE,
+                commands.toArray(new TS3Command[commands.size()]));
+
+        boolean allSuccessful = true;
+        for(int i = 0; i < registrations; i++) {
+            if(results.get(i).hasError()) allSuccessful = false;
+        }
+
+        whoAmI = results.get(registrations - 1).hasError() ? null
+                : results.get(registrations - 1).getFirst();
+
+        for(int i = registrations; i < results.size(); i++) {
+            if(!results.get(i).hasError()) continue;
+
+            // Fall back to the channel of the query client
+            if(!usePolling && i == results.size() - 1 && whoAmI != null) {
+                TS3Result result = execute(TS3Commands.serverNotifyRegister(
+                        "channel", whoAmI.getInteger("client_channel_id")
+                        .intValue()));
+                if(!result.hasError()) continue;
+            }
+
+            allSuccessful = false;
+        }
+
+        if(usePolling) requestPolling();
+        return allSuccessful;
+    }
+
+    /**
+     * Returns the response to the {@code whoami} sent by the last call to
+     * {@link #connect(String, String, int, boolean)}, which holds the ids of
+     * the query client and of its channel.
+     *
+     * @return the response to the {@code whoami}, or {@code null} if none
+     */
+    public TS3Map getWhoAmI() {
+        return whoAmI;
     }
 
     /**
@@ -187,20 +509,46 @@ public class TS3ServerQueryClient {
         // to the thrown SocketException by terminating themselves
         if(connection != null) connection.close();
         connection = null;
+        connected = false;
+
+        Thread events, input, polling;
+        synchronized(this) {
+            pollingRequested = false;
+            events = eventWorker;
+            input = inputWorker;
+            polling = pollingWorker;
+        }
 
         // Wait for our threads to finish terminating
         try {
-            if(eventThread != null) {
-                eventThread.interrupt();
-                eventThread.join();
+            if(events != null) {
+                events.interrupt();
+                events.join();
             }
 
-            if(inputThread != null) inputThread.join();
-            if(pollingThread != null) pollingThread.join();
+            if(input != null) input.join();
+            if(polling != null) polling.join();
         } catch(InterruptedException e) {
             logger.warn("Interrupted before threads finished");
         }
 
+        // Forget the threads, so that they are spawned again on reconnect
+        synchronized(this) {
+            if(eventWorker == events) eventWorker = null;
+            if(inputWorker == input) inputWorker = null;
+            if(pollingWorker == polling) {
+                pollingWorker = null;
+                pollingThread = null;
+            }
+        }
+
+        // Return the write buffer, unless a command is still using it
+        if(encoder != null && commandMutex.tryAcquire()) {
+            bufferPool.releaseWriteBuffer(encoder.getBuffer());
+            encoder = null;
+            commandMutex.release();
+        }
+
         logger.info("Disconnected from server");
     }
 
@@ -217,47 +565,483 @@ public class TS3ServerQueryClient {
     public TS3Result execute(String command)
             throws InterruptedException, IOException {
         if(command.isEmpty()) return null;
+        return execute(TS3Command.raw(command));
+    }
 
-        /* Only allow one command to execute at a time, this way we don't
-         * receive a response that is intended for another command. */
-        commandMutex.acquire();
+    /**
+     * Executes the specified command with the specified arguments.
+     *
+     * @param command   Name of the command to execute
+     * @param arguments Arguments to pass to to the command
+     * @return {@code TS3Result} object containing the response of the
+     *         specified command
+     *
+     * @throws InterruptedException
+     * @throws IOException
+     *
+     * @see #execute(String)
+     */
+    public TS3Result execute(String command, TS3Map arguments)
+            throws InterruptedException, IOException {
+        if(arguments == null || arguments.isEmpty())
+            return execute(command);
+        return execute(TS3Command.of(command, arguments));
+    }
+
+    /**
+     * Executes the specified command. The command is encoded directly into
+     * the buffer of the encoder. If the command is cached by the result
+     * cache, a cached result may be returned instead.
+     *
+     * @param command Command to execute
+     * @return TS3Result containing the response of the command
+     * @throws InterruptedException
+     * @throws IOException
+     *
+     * @see TS3Commands
+     * @see #setResultCache(TS3ResultCache)
+     */
+    public TS3Result execute(TS3Command command)
+            throws InterruptedException, IOException {
+        TS3ResultCache cache = resultCache;
+        if(cache == null || !cache.isCached(command.getName())) {
+            return coalesce(command, null);
+        }
+
+        // Read through the cache
+        TS3Result result = cache.get(command.toString());
+        if(result != null) {
+            logger.debug("Cached: {}", command);
+            return result;
+        }
+
+        return coalesce(command, cache);
+    }
+
+    /**
+     * Sends the specified command, unless coalescing is enabled and an
+     * identical read-only command is already in flight, in which case its
+     * result is awaited instead. Every caller of a coalesced command is
+     * given its own copy of the result.
+     *
+     * @param command Command to send
+     * @param cache   cache to store the result in, or {@code null}
+     * @return TS3Result containing the response of the command
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private TS3Result coalesce(TS3Command command, TS3ResultCache cache)
+            throws InterruptedException, IOException {
+        if(!coalescing || !TS3Commands.isReadOnly(command.getName())) {
+            return send(command, cache);
+        }
+
+        String line = command.toString();
+        Flight flight = new Flight();
+
+        Flight pending = flights.putIfAbsent(line, flight);
+        if(pending != null) {
+            logger.debug("Coalesced: {}", line);
+            pending.done.await();
+
+            if(pending.result != null) return new TS3Result(pending.result);
+            if(pending.error != null) {
+                throw (IOException)new IOException("Coalesced command failed")
+                        .initCause(pending.error);
+            }
+
+            // The first caller was interrupted, send it ourselves
+            return send(command, cache);
+        }
+
+        try {
+            flight.result = send(command, cache);
+            return new TS3Result(flight.result);
+        } catch(IOException e) {
+            flight.error = e;
+            throw e;
+        } finally {
+            flights.remove(line, flight);
+            flight.done.countDown();
+        }
+    }
+
+    /**
+     * Sends the specified command and caches its result. The stamp of the
+     * cache is taken before sending, so that a result racing an
+     * invalidation is not cached.
+     *
+     * @param command Command to send
+     * @param cache   cache to store the result in, or {@code null}
+     * @return TS3Result containing the response of the command
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private TS3Result send(TS3Command command, TS3ResultCache cache)
+            throws InterruptedException, IOException {
+        if(cache == null) return send(command, 0);
 
-        // Send the command through our writer
-        writer.writeLine(command);
+        long stamp = cache.getStamp();
+        TS3Result result = send(command, 0);
+        cache.put(command, result, stamp);
 
-        logger.debug("Sent: {}", command);
+        return result;
+    }
+
+    /**
+     * Executes the specified command, waiting at most the specified time for
+     * the other commands to complete and for the response. The result cache
+     * and coalescing are not used. After a timeout, the response is still
+     * expected, and discarded once it arrives.
+     *
+     * @param command Command to execute
+     * @param timeout time to wait, in nanoseconds
+     * @return TS3Result containing the response of the command
+     * @throws InterruptedException
+     * @throws SocketTimeoutException if the command did not complete in time
+     * @throws IOException
+     */
+    TS3Result executeWithin(TS3Command command, long timeout)
+            throws InterruptedException, IOException {
+        return send(command, Math.max(timeout, 1));
+    }
+
+    /**
+     * Sends the specified command and waits for the response.
+     *
+     * @param command Command to send
+     * @param timeout time to wait in nanoseconds, 0 to wait forever
+     * @return TS3Result containing the response of the command
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private TS3Result send(TS3Command command, long timeout)
+            throws InterruptedException, IOException {
+        String[] response = request(command, timeout);
 
-        // Wait for a response and enclose in a TS3Result object
-        String[] response = inputThread.nextResponse();
+        // Enclose the response in a TS3Result object
+        TS3Metrics metrics = this.metrics;
+        long start = metrics == TS3Metrics.NONE ? 0 : System.nanoTime();
         TS3Result result = new TS3Result(response);
 
+        if(metrics != TS3Metrics.NONE) {
+            metrics.responseParsed(command.getName(), response.length,
+                    System.nanoTime() - start);
+        }
+
         logger.debug("Recv: {} ({})", result.getErrorMessage(),
                 result.getErrorCode());
 
-        // Allow other commands to execute
-        commandMutex.release();
-
         return result;
     }
 
     /**
-     * Executes the specified command with the specified arguments.
+     * Sends the specified command and waits for the raw response.
+     *
+     * @param command Command to send
+     * @param timeout time to wait in nanoseconds, 0 to wait forever
+     * @return lines of the response, the last one being the error line
+     * @throws InterruptedException
+     * @throws SocketTimeoutException if the command did not complete in time
+     * @throws IOException
+     */
+    private String[] request(TS3Command command, long timeout)
+            throws InterruptedException, IOException {
+        TS3Metrics metrics = this.metrics;
+        boolean measured = metrics != TS3Metrics.NONE;
+        long queued = measured || timeout > 0 ? System.nanoTime() : 0;
+
+        /* Only allow one command to execute at a time, this way we don't
+         * receive a response that is intended for another command. */
+        if(timeout == 0) {
+            commandMutex.acquire();
+        } else if(!commandMutex.tryAcquire(timeout, TimeUnit.NANOSECONDS)) {
+            throw new SocketTimeoutException("Another command is pending");
+        }
+
+        try {
+            if(encoder == null) throw new IOException("Not connected");
+
+            long sent = measured ? System.nanoTime() : 0;
+            long bytes = encoder.getByteCount();
+
+            // Reserve the slot receiving the response before sending
+            TS3InputThread.Slot slot = inputThread.expect();
+
+            // Send the command through our encoder
+            command.encode(encoder);
+            encoder.endLine();
+            encoder.flush();
+
+            logger.debug("Sent: {}", command);
+
+            if(measured) {
+                metrics.commandSent(command.getName(),
+                        encoder.getByteCount() - bytes);
+            }
+
+            String[] response = timeout == 0 ? slot.await()
+                    : slot.await(queued + timeout - System.nanoTime());
+
+            if(measured) {
+                measure(metrics, command, sent - queued,
+                        System.nanoTime() - sent,
+                        encoder.getByteCount() - bytes, response);
+            }
+
+            return response;
+        } finally {
+            // Allow other commands to execute
+            commandMutex.release();
+        }
+    }
+
+    /**
+     * Reports the measurements of a command to the metrics.
+     *
+     * @param metrics   metrics to report to
+     * @param command   command that completed
+     * @param queueWait time spent waiting for the command mutex
+     * @param roundTrip time between sending the command and its response
+     * @param bytesOut  number of bytes of the command
+     * @param response  lines of the response
+     */
+    private static void measure(TS3Metrics metrics, TS3Command command,
+            long queueWait, long roundTrip, long bytesOut,
+            String[] response) {
+        long bytesIn = 0;
+        for(String line : response) bytesIn += line.length() + 2;
+
+        metrics.commandCompleted(command.getName(), queueWait, roundTrip,
+                bytesOut, bytesIn,
+                TS3Result.getErrorCode(response[response.length - 1]));
+    }
+
+    /**
+     * Executes a given command and returns its response as a columnar
+     * table, which is more compact than a regular result for large list
+     * responses such as {@code clientlist} or {@code clientdblist}.
+     *
+     * @param command Command to execute
+     * @return TS3Table containing the response of the command
+     * @throws InterruptedException
+     * @throws IOException
+     *
+     * @see #executeTable(TS3Command)
+     */
+    public TS3Table executeTable(String command)
+            throws InterruptedException, IOException {
+        if(command.isEmpty()) return null;
+        return executeTable(TS3Command.raw(command));
+    }
+
+    /**
+     * Executes the specified command and returns its response as a columnar
+     * table. The result cache and coalescing are not used.
+     *
+     * @param command Command to execute
+     * @return TS3Table containing the response of the command
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public TS3Table executeTable(TS3Command command)
+            throws InterruptedException, IOException {
+        String[] response = request(command, 0);
+
+        TS3Metrics metrics = this.metrics;
+        long start = metrics == TS3Metrics.NONE ? 0 : System.nanoTime();
+        TS3Table table = new TS3Table(response);
+
+        if(metrics != TS3Metrics.NONE) {
+            metrics.responseParsed(command.getName(), response.length,
+                    System.nanoTime() - start);
+        }
+
+        logger.debug("Recv: {} rows, {} ({})", new Object[] {
+            table.getRowCount(), table.getErrorMessage(),
+            table.getErrorCode() });
+
+        return table;
+    }
+
+    /**
+     * Returns an iterator over the items of a database listing, such as
+     * {@code clientdblist}, fetched in pages of
+     * {@value TS3PagedIterator#DEFAULT_PAGE_SIZE} items.
+     *
+     * @param command Name of the command to execute
+     * @return iterator over the items of the listing
+     * @see #executePaged(String, TS3Map, int, int)
+     */
+    public TS3PagedIterator executePaged(String command) {
+        return executePaged(command, null, TS3PagedIterator.DEFAULT_PAGE_SIZE,
+                TS3PagedIterator.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Returns an iterator over the items of a database listing, fetched in
+     * pages with the {@code start} and {@code duration} arguments. The next
+     * pages are fetched in the background while the current page is being
+     * consumed.
      *
      * @param command   Name of the command to execute
-     * @param arguments Arguments to pass to to the command
-     * @return {@code TS3Result} object containing the response of the
-     *         specified command
+     * @param arguments Arguments to pass to the command, may be {@code null}
+     * @param pageSize  Number of items per page
+     * @param prefetch  Number of pages fetched ahead of the consumer
+     * @return iterator over the items of the listing
+     */
+    public TS3PagedIterator executePaged(String command, TS3Map arguments,
+            int pageSize, int prefetch) {
+        return new TS3PagedIterator(this, command, arguments, pageSize,
+                prefetch);
+    }
+
+    /**
+     * Executes the given commands as a batch, continuing past commands that
+     * return an error. This is the equivalent to calling
+     * {@code executeBatch(commands, BatchPolicy.CONTINUE)}.
      *
+     * @param commands Commands to execute
+     * @return list of the results of the commands, in order
      * @throws InterruptedException
      * @throws IOException
      *
-     * @see #execute(String)
+     * @see #executeBatch(List, BatchPolicy)
      */
-    public TS3Result execute(String command, TS3Map arguments)
+    public List<TS3Result> executeBatch(List<String> commands)
             throws InterruptedException, IOException {
-        if(arguments == null || arguments.isEmpty())
-            return execute(command);
-        return execute(command + " " + arguments.toString());
+        return executeBatch(commands, BatchPolicy.CONTINUE);
+    }
+
+    /**
+     * Executes the given commands as a batch. No other command is executed
+     * in between the commands of the batch.
+     * <p>
+     * With {@link BatchPolicy#CONTINUE}, all the commands are sent in a single
+     * write and the results are collected afterwards, saving a round trip
+     * per command. With {@link BatchPolicy#STOP_ON_ERROR}, the commands are
+     * sent one at a time, since the server would otherwise execute the
+     * commands following a failed one, and the returned list ends with the
+     * result of the failed command.
+     *
+     * @param commands Commands to execute
+     * @param policy   Policy to apply when a command returns an error
+     * @return list of the results of the commands, in order
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public List<TS3Result> executeBatch(List<String> commands,
+            BatchPolicy policy) throws InterruptedException, IOException {
+        TS3Command[] batch = new TS3Command[commands.size()];
+
+        for(int i = 0; i < batch.length; i++) {
+            String command = commands.get(i);
+            if(command.isEmpty()) {
+                throw new IllegalArgumentException("Empty command in batch");
+            }
+
+            batch[i] = TS3Command.raw(command);
+        }
+
+        return executeBatch(policy, batch);
+    }
+
+    /**
+     * Executes the given commands as a batch.
+     *
+     * @param policy   Policy to apply when a command returns an error
+     * @param commands Commands to execute
+     * @return list of the results of the commands, in order
+     * @throws InterruptedException
+     * @throws IOException
+     *
+     * @see #executeBatch(List, BatchPolicy)
+     */
+    public List<TS3Result> executeBatch(BatchPolicy policy,
+            TS3Command... commands) throws InterruptedException, IOException {
+        List<TS3Result> results = new ArrayList<TS3Result>(commands.length);
+        if(commands.length == 0) return results;
+
+        TS3Metrics metrics = this.metrics;
+        boolean measured = metrics != TS3Metrics.NONE;
+        long queued = measured ? System.nanoTime() : 0;
+
+        // Hold on to the mutex for the whole batch
+        commandMutex.acquire();
+
+        try {
+            if(encoder == null) throw new IOException("Not connected");
+
+            long sent = measured ? System.nanoTime() : 0;
+            long wait = sent - queued;
+
+            if(policy == BatchPolicy.CONTINUE) {
+                long[] sizes = new long[commands.length];
+                TS3InputThread.Slot[] slots =
+                        new TS3InputThread.Slot[commands.length];
+
+                // Send all of the commands with a single flush
+                for(int i = 0; i < commands.length; i++) {
+                    slots[i] = inputThread.expect();
+                    long bytes = encoder.getByteCount();
+                    commands[i].encode(encoder);
+                    encoder.endLine();
+                    sizes[i] = encoder.getByteCount() - bytes;
+                }
+                encoder.flush();
+
+                logger.debug("Sent batch of {} commands", commands.length);
+
+                for(int i = 0; measured && i < commands.length; i++) {
+                    metrics.commandSent(commands[i].getName(), sizes[i]);
+                }
+
+                // The responses arrive in the same order as the commands
+                for(int i = 0; i < commands.length; i++) {
+                    String[] response = slots[i].await();
+                    if(measured) {
+                        measure(metrics, commands[i], wait,
+                                System.nanoTime() - sent, sizes[i], response);
+                    }
+                    results.add(new TS3Result(response));
+                }
+            } else {
+                for(TS3Command command : commands) {
+                    long bytes = encoder.getByteCount();
+                    TS3InputThread.Slot slot = inputThread.expect();
+                    command.encode(encoder);
+                    encoder.endLine();
+                    encoder.flush();
+                    logger.debug("Sent: {}", command);
+
+                    if(measured) {
+                        metrics.commandSent(command.getName(),
+                                encoder.getByteCount() - bytes);
+                    }
+
+                    String[] response = slot.await();
+                    if(measured) {
+                        long now = System.nanoTime();
+                        measure(metrics, command, wait, now - sent,
+                                encoder.getByteCount() - bytes, response);
+                        wait = 0;
+                        sent = now;
+                    }
+
+                    TS3Result result = new TS3Result(response);
+                    results.add(result);
+
+                    // Stop at the first failure
+                    if(result.hasError()) break;
+                }
+            }
+        } finally {
+            commandMutex.release();
+        }
+
+        logger.debug("Recv: {} results", results.size());
+
+        return results;
     }
 
     /**
@@ -294,58 +1078,154 @@ public class TS3ServerQueryClient {
      * @return True if all the notifications were successfully registered.
      */
     public boolean registerNotifications(boolean usePolling) {
-        boolean allSuccessful = true;
-
-        // Add in the events for text messages
-        ArrayList<String> events = new ArrayList<String>(5);
-        events.add("textserver");
-        events.add("textchannel");
-        events.add("textprivate");
+        return registerNotifications(usePolling, usePolling);
+    }
 
-        // If we're not using polling, then register the server and channel
-        // notifications
-        if(!usePolling) {
-            events.add("server");
-            events.add("channel");
-        }
+    /**
+     * Registers the TS3 notifications for receiving text messages and basic
+     * user notifications, and starts the event thread. If
+     * {@code spawnPolling} is false, the polling thread is not spawned even
+     * though {@code usePolling} is true. This is the case when the polling is
+     * driven externally by calling {@link TS3PollingThread#poll()}, as done by
+     * the {@link TS3FleetManager}.
+     *
+     * @param usePolling   Whether or not polling is used in place of the
+     *                     "server" and "channel" notifications
+     * @param spawnPolling Whether or not to spawn a polling thread
+     * @return True if all the notifications were successfully registered.
+     * @see #registerNotifications(boolean)
+     */
+    protected boolean registerNotifications(boolean usePolling,
+            boolean spawnPolling) {
+        boolean allSuccessful = true;
 
-        // Register events
-        for(String event : events) {
-            TS3Map arguments = new TS3Map();
-            arguments.add("event", event);
+        // Register every event in a single flight
+        List<TS3Command> commands = notificationCommands(usePolling);
+        try {
+            List<TS3Result> results = executeBatch(BatchPolicy.CONTINUE,
+                    commands.toArray(new TS3Command[commands.size()]));
 
-            try {
-                TS3Result result;
+            for(int i = 0; i < results.size(); i++) {
+                if(!results.get(i).hasError()) continue;
 
-                // Handle the channel event differently
-                if(event.equalsIgnoreCase("channel")) {
-                    // Get our current channel id by calling "whoami"
-                    result = execute("whoami");
-                    String channelId = result.getFirst()
-                            .get("client_channel_id");
+                // Fall back to the channel of the query client
+                if(!usePolling && i == results.size() - 1) {
+                    TS3Result result = execute("whoami");
+                    int channelId = result.getFirst()
+                            .getInteger("client_channel_id").intValue();
 
-                    // Add in the id to the command arguments
-                    arguments.add("id", channelId);
+                    result = execute(TS3Commands.serverNotifyRegister(
+                            "channel", channelId));
+                    if(!result.hasError()) continue;
                 }
 
-                // Execute the command
-                result = execute("servernotifyregister", arguments);
-                if(result.hasError()) allSuccessful = false;
-            } catch(Exception e) {
                 allSuccessful = false;
             }
+        } catch(Exception e) {
+            allSuccessful = false;
         }
 
-        // Start our polling thread if requested
-        if(usePolling) {
-            pollingThread = new TS3PollingThread(this);
-            pollingThread.start();
+        // Start our polling thread once needed, if requested
+        if(usePolling && spawnPolling) requestPolling();
+
+        return allSuccessful;
+    }
+
+    /**
+     * Returns the commands registering the text message notifications and,
+     * if polling is not used, the "server" and "channel" notifications. The
+     * "channel" notification is last and registered for every channel.
+     *
+     * @param usePolling Whether or not polling is used in place of the
+     *                   "server" and "channel" notifications
+     * @return the commands registering the notifications
+     */
+    private static List<TS3Command> notificationCommands(
+            boolean usePolling) {
+        List<TS3Command> commands = new ArrayList<TS3Command>(5);
+        commands.add(TS3Commands.serverNotifyRegister("textserver"));
+        commands.add(TS3Commands.serverNotifyRegister("textchannel"));
+        commands.add(TS3Commands.serverNotifyRegister("textprivate"));
+
+        if(!usePolling) {
+            commands.add(TS3Commands.serverNotifyRegister("server"));
+            commands.add(TS3Commands.serverNotifyRegister("channel", 0));
         }
 
-        // Start the event thread
-        eventThread.start();
+        return commands;
+    }
+
+    /**
+     * Requests the polling thread, which is spawned right away if a
+     * listener or a server state needs it, or else by the first call to
+     * {@link #addEventListener(TS3EventListener)}.
+     */
+    private synchronized void requestPolling() {
+        pollingRequested = true;
+        startPolling();
+    }
 
-        return allSuccessful;
+    /**
+     * Spawns the polling thread if it was requested and is now needed.
+     */
+    private synchronized void startPolling() {
+        if(!pollingRequested || pollingWorker != null) return;
+        if(!eventThread.hasListeners() && serverState == null
+                && resultCache == null) {
+            return;
+        }
+
+        pollingThread = new TS3PollingThread(this);
+        pollingWorker = spawn(pollingThread);
+    }
+
+    /**
+     * Spawns the event thread, unless it already runs or this client is not
+     * connected. Called by the event thread when its first event is queued.
+     */
+    synchronized void startEventThread() {
+        if(eventWorker == null && connected) eventWorker = spawn(eventThread);
+    }
+
+    /**
+     * Starts a thread from the thread factory running the specified task.
+     * The input, event and polling threads still extend {@code Thread} for
+     * compatibility, but are run as tasks of the threads from the factory.
+     *
+     * @param task task to run
+     * @return the started thread
+     */
+    private Thread spawn(Runnable task) {
+        Thread thread = threadFactory.newThread(task);
+        thread.start();
+
+        return thread;
+    }
+
+    /**
+     * Policy applied when a command of a batch returns an error.
+     *
+     * @see TS3ServerQueryClient#executeBatch(List, BatchPolicy)
+     */
+    public static enum BatchPolicy {
+        /** Execute every command of the batch, regardless of errors. */
+        CONTINUE,
+        /** Stop at the first command returning an error. */
+        STOP_ON_ERROR
+    }
+
+    /**
+     * A read-only command in flight, shared by the callers executing it.
+     */
+    private static class Flight {
+        /** Released once the result or error is available. */
+        private CountDownLatch done = new CountDownLatch(1);
+
+        /** Result of the command. */
+        private volatile TS3Result result;
+
+        /** Error that occurred while executing the command. */
+        private volatile IOException error;
     }
 
 }
@@ -0,0 +1,885 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Live in-memory mirror of the state of a Teamspeak 3 virtual server: its
+ * clients, channels, and server groups. Read-only questions, such as which
+ * clients are in a channel, can then be answered without touching the
+ * network.
+ * <p>
+ * The mirror is maintained by the client it is attached to through
+ * {@link TS3ServerQueryClient#setServerState}. When polling, the clients are
+ * rebuilt from the {@code clientlist} of every poll, while the channels and
+ * server groups are refreshed every {@value #DEFAULT_REFRESH_POLLS} polls.
+ * Otherwise, the clients are updated from the enter, leave, and move
+ * notifications of the server.
+ * <p>
+ * Every update publishes a new immutable {@link Snapshot}, so readers, such
+ * as event listeners, always see a consistent view of the server. Lookups by
+ * client id and client unique id are constant time, and listing the clients
+ * of a channel or server group takes time proportional to the clients
+ * listed. The clients and their indexes are held in sharded maps, so a
+ * notification only copies the shards holding the client it changes rather
+ * than every index.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3ServerState {
+
+    /** Default number of polls between refreshes of channels and groups. */
+    public static final int DEFAULT_REFRESH_POLLS = 20;
+
+    /** Command listing the clients along with their unique ids and groups. */
+    static final TS3Command CLIENT_LIST = TS3Commands.clientList(true, false,
+            false, true);
+
+    /** Number of polls between refreshes of channels and server groups. */
+    private int refreshPolls;
+
+    /** Latest snapshot of the server state. */
+    private volatile Snapshot snapshot = new Snapshot();
+
+    /**
+     * Constructs an empty server state refreshing the channels and server
+     * groups every {@value #DEFAULT_REFRESH_POLLS} polls.
+     */
+    public TS3ServerState() {
+        this(DEFAULT_REFRESH_POLLS);
+    }
+
+    /**
+     * Constructs an empty server state refreshing the channels and server
+     * groups every {@code refreshPolls} polls.
+     *
+     * @param refreshPolls number of polls between refreshes of the channels
+     *                     and server groups
+     */
+    public TS3ServerState(int refreshPolls) {
+        this.refreshPolls = refreshPolls;
+    }
+
+    /**
+     * Returns the number of polls between refreshes of the channels and
+     * server groups.
+     *
+     * @return the number of polls between refreshes
+     */
+    public int getRefreshPolls() {
+        return refreshPolls;
+    }
+
+    /**
+     * Returns the latest snapshot of the server state. The snapshot never
+     * changes, so several lookups made on it are consistent with each other.
+     *
+     * @return the latest snapshot of the server state
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the client with the specified id, or {@code null} if there is
+     * no such client.
+     *
+     * @param clientId id of the client
+     * @return the client with the specified id
+     */
+    public Client getClient(int clientId) {
+        return snapshot.getClient(clientId);
+    }
+
+    /**
+     * Returns the first client with the specified unique id, or {@code null}
+     * if there is no such client.
+     *
+     * @param uid unique id of the client
+     * @return the client with the specified unique id
+     */
+    public Client getClientByUid(String uid) {
+        return snapshot.getClientByUid(uid);
+    }
+
+    /**
+     * Returns the channel with the specified id, or {@code null} if there is
+     * no such channel.
+     *
+     * @param channelId id of the channel
+     * @return the channel with the specified id
+     */
+    public Channel getChannel(int channelId) {
+        return snapshot.getChannel(channelId);
+    }
+
+    /**
+     * Returns the clients in the specified channel.
+     *
+     * @param channelId id of the channel
+     * @return the clients in the specified channel
+     */
+    public List<Client> getClientsInChannel(int channelId) {
+        return snapshot.getClientsInChannel(channelId);
+    }
+
+    /**
+     * Returns the clients in the specified server group.
+     *
+     * @param groupId id of the server group
+     * @return the clients in the specified server group
+     */
+    public List<Client> getClientsInServerGroup(int groupId) {
+        return snapshot.getClientsInServerGroup(groupId);
+    }
+
+    /**
+     * Refreshes the whole state by executing {@code clientlist},
+     * {@code channellist}, and {@code servergrouplist}.
+     *
+     * @param client server query client to execute the commands with
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public void refresh(TS3ServerQueryClient client)
+            throws InterruptedException, IOException {
+        refreshStructure(client);
+
+        TS3Result result = client.execute(CLIENT_LIST);
+        if(!result.hasError()) updateClients(result.getItems());
+    }
+
+    /**
+     * Refreshes the channels and server groups by executing
+     * {@code channellist} and {@code servergrouplist}.
+     *
+     * @param client server query client to execute the commands with
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public void refreshStructure(TS3ServerQueryClient client)
+            throws InterruptedException, IOException {
+        TS3Result result = client.execute("channellist");
+        if(!result.hasError()) updateChannels(result.getItems());
+
+        result = client.execute("servergrouplist");
+        if(!result.hasError()) updateServerGroups(result.getItems());
+    }
+
+    /**
+     * Replaces the clients with the items of a {@code clientlist -uid
+     * -groups} response. Clients that did not change are carried over from
+     * the previous snapshot.
+     *
+     * @param items items of the {@code clientlist} response
+     */
+    public synchronized void updateClients(List<TS3Map> items) {
+        Snapshot previous = snapshot;
+        Map<Integer, Client> clients = new HashMap<Integer, Client>(
+                items.size() * 2);
+        Map<String, Map<Integer, Client>> byUid =
+                new HashMap<String, Map<Integer, Client>>(items.size() * 2);
+        Map<Integer, Map<Integer, Client>> byChannel =
+                new HashMap<Integer, Map<Integer, Client>>();
+        Map<Integer, Map<Integer, Client>> byGroup =
+                new HashMap<Integer, Map<Integer, Client>>();
+
+        for(TS3Map item : items) {
+            Client client = new Client(item);
+
+            // Keep the previous instance if nothing changed
+            Client old = previous.clients.get(client.id);
+            if(client.equals(old)) client = old;
+
+            clients.put(client.id, client);
+            index(byUid, client.uid, client);
+            index(byChannel, client.channelId, client);
+
+            for(int group : client.serverGroups) {
+                index(byGroup, group, client);
+            }
+        }
+
+        Snapshot next = new Snapshot(previous);
+        next.clients = TS3ShardedMap.copyOf(clients);
+        next.clientsByUid = shard(byUid);
+        next.clientsByChannel = shard(byChannel);
+        next.clientsByGroup = shard(byGroup);
+
+        snapshot = next;
+    }
+
+    /**
+     * Adds a client, or replaces the client with the same id, from an item
+     * of a {@code notifycliententerview} notification.
+     *
+     * @param id           id of the client
+     * @param databaseId   database id of the client
+     * @param channelId    id of the channel the client entered
+     * @param nickname     nickname of the client
+     * @param uid          unique id of the client
+     * @param serverGroups comma separated ids of the server groups of the
+     *                     client, or {@code null}
+     */
+    public synchronized void clientEntered(int id, int databaseId,
+            int channelId, String nickname, String uid, String serverGroups) {
+        Snapshot next = new Snapshot(snapshot);
+
+        Client previous = next.clients.get(id);
+        if(previous != null) remove(next, previous);
+        add(next, new Client(id, databaseId, channelId, nickname, uid,
+                parseGroups(serverGroups)));
+
+        snapshot = next;
+    }
+
+    /**
+     * Removes a client after a {@code notifyclientleftview} notification.
+     *
+     * @param id id of the client
+     * @return the removed client, or {@code null} if it was unknown
+     */
+    public synchronized Client clientLeft(int id) {
+        Client client = snapshot.clients.get(id);
+        if(client == null) return null;
+
+        Snapshot next = new Snapshot(snapshot);
+        remove(next, client);
+
+        snapshot = next;
+        return client;
+    }
+
+    /**
+     * Moves a client to another channel after a {@code notifyclientmoved}
+     * notification.
+     *
+     * @param id        id of the client
+     * @param channelId id of the channel the client moved to
+     * @return the client before the move, or {@code null} if it was unknown
+     */
+    public synchronized Client clientMoved(int id, int channelId) {
+        Client client = snapshot.clients.get(id);
+        if(client == null) return null;
+
+        Snapshot next = new Snapshot(snapshot);
+        remove(next, client);
+        add(next, new Client(client.id, client.databaseId, channelId,
+                client.nickname, client.uid, client.serverGroups));
+
+        snapshot = next;
+        return client;
+    }
+
+    /**
+     * Adds a client to the clients and indexes of the specified snapshot,
+     * copying only the shards holding the client.
+     *
+     * @param next   snapshot being built
+     * @param client client to add
+     */
+    private static void add(Snapshot next, Client client) {
+        next.clients = next.clients.with(client.id, client);
+        next.clientsByUid = add(next.clientsByUid, client.uid, client);
+        next.clientsByChannel = add(next.clientsByChannel, client.channelId,
+                client);
+
+        for(int group : client.serverGroups) {
+            next.clientsByGroup = add(next.clientsByGroup, group, client);
+        }
+    }
+
+    /**
+     * Removes a client from the clients and indexes of the specified
+     * snapshot, copying only the shards holding the client.
+     *
+     * @param next   snapshot being built
+     * @param client client to remove
+     */
+    private static void remove(Snapshot next, Client client) {
+        next.clients = next.clients.without(client.id);
+        next.clientsByUid = remove(next.clientsByUid, client.uid, client);
+        next.clientsByChannel = remove(next.clientsByChannel,
+                client.channelId, client);
+
+        for(int group : client.serverGroups) {
+            next.clientsByGroup = remove(next.clientsByGroup, group, client);
+        }
+    }
+
+    /**
+     * Replaces the channels with the items of a {@code channellist}
+     * response.
+     *
+     * @param items items of the {@code channellist} response
+     */
+    public synchronized void updateChannels(List<TS3Map> items) {
+        Snapshot next = new Snapshot(snapshot);
+
+        next.channels = new HashMap<Integer, Channel>(items.size() * 2);
+        for(TS3Map item : items) {
+            Channel channel = new Channel(item);
+            next.channels.put(channel.id, channel);
+        }
+
+        snapshot = next;
+    }
+
+    /**
+     * Replaces the server groups with the items of a {@code servergrouplist}
+     * response.
+     *
+     * @param items items of the {@code servergrouplist} response
+     */
+    public synchronized void updateServerGroups(List<TS3Map> items) {
+        Snapshot next = new Snapshot(snapshot);
+
+        next.groups = new HashMap<Integer, ServerGroup>(items.size() * 2);
+        for(TS3Map item : items) {
+            ServerGroup group = new ServerGroup(item);
+            next.groups.put(group.id, group);
+        }
+
+        snapshot = next;
+    }
+
+    /**
+     * Adds the specified client to the clients mapped to the specified key,
+     * while building a full index.
+     *
+     * @param index  index to add the client to
+     * @param key    key of the clients
+     * @param client client to add
+     */
+    private static <K> void index(Map<K, Map<Integer, Client>> index, K key,
+            Client client) {
+        if(key == null) return;
+
+        Map<Integer, Client> clients = index.get(key);
+        if(clients == null) {
+            clients = new HashMap<Integer, Client>(4);
+            index.put(key, clients);
+        }
+
+        clients.put(client.id, client);
+    }
+
+    /**
+     * Returns a sharded copy of a full index.
+     *
+     * @param index index to copy
+     * @return the sharded index
+     */
+    private static <K> TS3ShardedMap<K, TS3ShardedMap<Integer, Client>> shard(
+            Map<K, Map<Integer, Client>> index) {
+        Map<K, TS3ShardedMap<Integer, Client>> sharded =
+                new HashMap<K, TS3ShardedMap<Integer, Client>>(
+                index.size() * 2);
+        for(Map.Entry<K, Map<Integer, Client>> entry : index.entrySet()) {
+            sharded.put(entry.getKey(),
+                    TS3ShardedMap.copyOf(entry.getValue()));
+        }
+
+        return TS3ShardedMap.copyOf(sharded);
+    }
+
+    /**
+     * Returns the specified index with the client added to the clients
+     * mapped to the specified key.
+     *
+     * @param index  index to add the client to
+     * @param key    key of the clients
+     * @param client client to add
+     * @return the index with the client added
+     */
+    private static <K> TS3ShardedMap<K, TS3ShardedMap<Integer, Client>> add(
+            TS3ShardedMap<K, TS3ShardedMap<Integer, Client>> index, K key,
+            Client client) {
+        if(key == null) return index;
+
+        TS3ShardedMap<Integer, Client> clients = index.get(key);
+        if(clients == null) clients = new TS3ShardedMap<Integer, Client>();
+
+        return index.with(key, clients.with(client.id, client));
+    }
+
+    /**
+     * Returns the specified index with the client removed from the clients
+     * mapped to the specified key. The key is removed along with its last
+     * client.
+     *
+     * @param index  index to remove the client from
+     * @param key    key of the clients
+     * @param client client to remove
+     * @return the index with the client removed
+     */
+    private static <K> TS3ShardedMap<K, TS3ShardedMap<Integer, Client>>
+            remove(TS3ShardedMap<K, TS3ShardedMap<Integer, Client>> index,
+            K key, Client client) {
+        TS3ShardedMap<Integer, Client> clients = index.get(key);
+        if(clients == null) return index;
+
+        clients = clients.without(client.id);
+        return clients.isEmpty() ? index.without(key)
+                : index.with(key, clients);
+    }
+
+    /**
+     * Returns the integer value of the specified key, or the default value
+     * if there is no such integer.
+     *
+     * @param item         map to read from
+     * @param key          key of the value
+     * @param defaultValue value returned if there is no integer
+     * @return the integer value of the key
+     */
+    private static int getInt(TS3Map item, String key, int defaultValue) {
+        Integer value = item.getInteger(key);
+        return value == null ? defaultValue : value.intValue();
+    }
+
+    /**
+     * Parses a comma separated list of server group ids. Ids that are not
+     * integers are read as 0.
+     *
+     * @param groups comma separated ids, or {@code null}
+     * @return the server group ids
+     */
+    private static int[] parseGroups(String groups) {
+        if(groups == null || groups.length() == 0) return new int[0];
+
+        String[] split = groups.split(",");
+        int[] ids = new int[split.length];
+        for(int i = 0; i < split.length; i++) {
+            try {
+                ids[i] = Integer.parseInt(split[i].trim());
+            } catch(NumberFormatException e) {
+                ids[i] = 0;
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Immutable snapshot of the server state.
+     */
+    public static class Snapshot {
+        /** Clients mapped by id. */
+        private TS3ShardedMap<Integer, Client> clients;
+
+        /** Clients mapped by id, mapped by unique id. */
+        private TS3ShardedMap<String, TS3ShardedMap<Integer, Client>>
+                clientsByUid;
+
+        /** Clients mapped by id, mapped by channel id. */
+        private TS3ShardedMap<Integer, TS3ShardedMap<Integer, Client>>
+                clientsByChannel;
+
+        /** Clients mapped by id, mapped by server group id. */
+        private TS3ShardedMap<Integer, TS3ShardedMap<Integer, Client>>
+                clientsByGroup;
+
+        /** Channels mapped by id. */
+        private Map<Integer, Channel> channels;
+
+        /** Server groups mapped by id. */
+        private Map<Integer, ServerGroup> groups;
+
+        /**
+         * Constructs an empty snapshot.
+         */
+        Snapshot() {
+            clients = new TS3ShardedMap<Integer, Client>();
+            clientsByUid =
+                    new TS3ShardedMap<String, TS3ShardedMap<Integer, Client>>();
+            clientsByChannel = new TS3ShardedMap<Integer,
+                    TS3ShardedMap<Integer, Client>>();
+            clientsByGroup = new TS3ShardedMap<Integer,
+                    TS3ShardedMap<Integer, Client>>();
+            channels = Collections.emptyMap();
+            groups = Collections.emptyMap();
+        }
+
+        /**
+         * Constructs a snapshot sharing the maps of the specified snapshot.
+         * @param other snapshot to copy
+         */
+        Snapshot(Snapshot other) {
+            clients = other.clients;
+            clientsByUid = other.clientsByUid;
+            clientsByChannel = other.clientsByChannel;
+            clientsByGroup = other.clientsByGroup;
+            channels = other.channels;
+            groups = other.groups;
+        }
+
+        /**
+         * Returns all of the clients, mapped by id.
+         * @return all of the clients, mapped by id
+         */
+        public Map<Integer, Client> getClients() {
+            return Collections.unmodifiableMap(clients);
+        }
+
+        /**
+         * Returns all of the channels, mapped by id.
+         * @return all of the channels, mapped by id
+         */
+        public Map<Integer, Channel> getChannels() {
+            return Collections.unmodifiableMap(channels);
+        }
+
+        /**
+         * Returns all of the server groups, mapped by id.
+         * @return all of the server groups, mapped by id
+         */
+        public Map<Integer, ServerGroup> getServerGroups() {
+            return Collections.unmodifiableMap(groups);
+        }
+
+        /**
+         * Returns the client with the specified id, or {@code null}.
+         * @param clientId id of the client
+         * @return the client with the specified id
+         */
+        public Client getClient(int clientId) {
+            return clients.get(clientId);
+        }
+
+        /**
+         * Returns the first client with the specified unique id, or
+         * {@code null}.
+         *
+         * @param uid unique id of the client
+         * @return the client with the specified unique id
+         */
+        public Client getClientByUid(String uid) {
+            TS3ShardedMap<Integer, Client> clients = clientsByUid.get(uid);
+            if(clients == null) return null;
+
+            Iterator<Client> it = clients.values().iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+
+        /**
+         * Returns all of the clients connected with the specified unique id.
+         * @param uid unique id of the clients
+         * @return the clients with the specified unique id
+         */
+        public List<Client> getClientsByUid(String uid) {
+            return unmodifiable(clientsByUid.get(uid));
+        }
+
+        /**
+         * Returns the channel with the specified id, or {@code null}.
+         * @param channelId id of the channel
+         * @return the channel with the specified id
+         */
+        public Channel getChannel(int channelId) {
+            return channels.get(channelId);
+        }
+
+        /**
+         * Returns the clients in the specified channel.
+         * @param channelId id of the channel
+         * @return the clients in the specified channel
+         */
+        public List<Client> getClientsInChannel(int channelId) {
+            return unmodifiable(clientsByChannel.get(channelId));
+        }
+
+        /**
+         * Returns the server group with the specified id, or {@code null}.
+         * @param groupId id of the server group
+         * @return the server group with the specified id
+         */
+        public ServerGroup getServerGroup(int groupId) {
+            return groups.get(groupId);
+        }
+
+        /**
+         * Returns the clients in the specified server group.
+         * @param groupId id of the server group
+         * @return the clients in the specified server group
+         */
+        public List<Client> getClientsInServerGroup(int groupId) {
+            return unmodifiable(clientsByGroup.get(groupId));
+        }
+
+        /**
+         * Returns an unmodifiable list of the specified clients, or an empty
+         * list if they are {@code null}.
+         *
+         * @param clients clients mapped by id
+         * @return an unmodifiable list of the clients
+         */
+        private static List<Client> unmodifiable(
+                TS3ShardedMap<Integer, Client> clients) {
+            if(clients == null) return Collections.emptyList();
+            return Collections.unmodifiableList(
+                    new ArrayList<Client>(clients.values()));
+        }
+    }
+
+    /**
+     * Immutable information about a client.
+     */
+    public static class Client {
+        /** Id of the client. */
+        private int id;
+
+        /** Database id of the client. */
+        private int databaseId;
+
+        /** Id of the channel the client is in. */
+        private int channelId;
+
+        /** Nickname of the client. */
+        private String nickname;
+
+        /** Unique id of the client. */
+        private String uid;
+
+        /** Ids of the server groups of the client. */
+        private int[] serverGroups;
+
+        /**
+         * Constructs a client from an item of a {@code clientlist} response.
+         * @param item item of the {@code clientlist} response
+         */
+        Client(TS3Map item) {
+            id = getInt(item, "clid", 0);
+            databaseId = getInt(item, "client_database_id", 0);
+            channelId = getInt(item, "cid", 0);
+            nickname = item.get("client_nickname");
+            uid = item.get("client_unique_identifier");
+
+            serverGroups = parseGroups(item.get("client_servergroups"));
+        }
+
+        /**
+         * Constructs a client from its fields.
+         *
+         * @param id           id of the client
+         * @param databaseId   database id of the client
+         * @param channelId    id of the channel the client is in
+         * @param nickname     nickname of the client
+         * @param uid          unique id of the client
+         * @param serverGroups ids of the server groups of the client
+         */
+        Client(int id, int databaseId, int channelId, String nickname,
+                String uid, int[] serverGroups) {
+            this.id = id;
+            this.databaseId = databaseId;
+            this.channelId = channelId;
+            this.nickname = nickname;
+            this.uid = uid;
+            this.serverGroups = serverGroups;
+        }
+
+        /**
+         * Returns the id of the client.
+         * @return the id of the client
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the database id of the client.
+         * @return the database id of the client
+         */
+        public int getDatabaseId() {
+            return databaseId;
+        }
+
+        /**
+         * Returns the id of the channel the client is in.
+         * @return the id of the channel the client is in
+         */
+        public int getChannelId() {
+            return channelId;
+        }
+
+        /**
+         * Returns the nickname of the client.
+         * @return the nickname of the client
+         */
+        public String getNickname() {
+            return nickname;
+        }
+
+        /**
+         * Returns the unique id of the client.
+         * @return the unique id of the client
+         */
+        public String getUid() {
+            return uid;
+        }
+
+        /**
+         * Returns the ids of the server groups of the client.
+         * @return the ids of the server groups of the client
+         */
+        public int[] getServerGroups() {
+            return serverGroups.clone();
+        }
+
+        /**
+         * Returns {@code true} if the client is in the specified server group.
+         * @param groupId id of the server group
+         * @return {@code true} if the client is in the server group
+         */
+        public boolean isInServerGroup(int groupId) {
+            for(int group : serverGroups) {
+                if(group == groupId) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns {@code true} if the specified object is a client with the
+         * same information.
+         *
+         * @param obj object to compare to
+         * @return {@code true} if the object is an equal client
+         */
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Client)) return false;
+
+            Client other = (Client)obj;
+            return id == other.id && databaseId == other.databaseId
+                    && channelId == other.channelId
+                    && equal(nickname, other.nickname)
+                    && equal(uid, other.uid)
+                    && Arrays.equals(serverGroups, other.serverGroups);
+        }
+
+        /**
+         * Returns a hash code of the client.
+         * @return a hash code of the client
+         */
+        public int hashCode() {
+            return id;
+        }
+
+        /**
+         * Returns {@code true} if both strings are equal or {@code null}.
+         *
+         * @param a first string
+         * @param b second string
+         * @return {@code true} if both strings are equal
+         */
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Immutable information about a channel.
+     */
+    public static class Channel {
+        /** Id of the channel. */
+        private int id;
+
+        /** Id of the parent channel, 0 for top-level channels. */
+        private int parentId;
+
+        /** Name of the channel. */
+        private String name;
+
+        /**
+         * Constructs a channel from an item of a {@code channellist}
+         * response.
+         *
+         * @param item item of the {@code channellist} response
+         */
+        Channel(TS3Map item) {
+            id = getInt(item, "cid", 0);
+            parentId = getInt(item, "pid", 0);
+            name = item.get("channel_name");
+        }
+
+        /**
+         * Returns the id of the channel.
+         * @return the id of the channel
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the id of the parent channel, 0 for top-level channels.
+         * @return the id of the parent channel
+         */
+        public int getParentId() {
+            return parentId;
+        }
+
+        /**
+         * Returns the name of the channel.
+         * @return the name of the channel
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Immutable information about a server group.
+     */
+    public static class ServerGroup {
+        /** Id of the server group. */
+        private int id;
+
+        /** Type of the server group. */
+        private int type;
+
+        /** Name of the server group. */
+        private String name;
+
+        /**
+         * Constructs a server group from an item of a
+         * {@code servergrouplist} response.
+         *
+         * @param item item of the {@code servergrouplist} response
+         */
+        ServerGroup(TS3Map item) {
+            id = getInt(item, "sgid", 0);
+            type = getInt(item, "type", 0);
+            name = item.get("name");
+        }
+
+        /**
+         * Returns the id of the server group.
+         * @return the id of the server group
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the type of the server group.
+         * @return the type of the server group
+         */
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * Returns the name of the server group.
+         * @return the name of the server group
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
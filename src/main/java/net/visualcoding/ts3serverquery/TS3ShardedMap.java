@@ -0,0 +1,257 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map split into shards by the hash of its keys. Changing a key
+ * through {@link #with(Object, Object)} or {@link #without(Object)} returns a
+ * new map sharing every shard but the one holding the key, so a change
+ * copies about the square root of the number of entries rather than the
+ * whole map.
+ * <p>
+ * The number of shards is picked from the number of entries when the map is
+ * built, and the map is rebuilt once it grew well past it. Keys must not
+ * change their hash code while in the map.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+final class TS3ShardedMap<K, V> extends AbstractMap<K, V> {
+
+    /** Shards of the entries, {@code null} for empty shards. */
+    private final Map<K, V>[] shards;
+
+    /** Number of entries. */
+    private final int size;
+
+    /** Entries, created once needed. */
+    private Set<Map.Entry<K, V>> entries;
+
+    /**
+     * Constructs an empty map.
+     */
+    TS3ShardedMap() {
+        this(TS3ShardedMap.<K, V>newShards(1), 0);
+    }
+
+    /**
+     * Constructs a map from its shards.
+     *
+     * @param shards shards of the entries
+     * @param size   number of entries
+     */
+    private TS3ShardedMap(Map<K, V>[] shards, int size) {
+        this.shards = shards;
+        this.size = size;
+    }
+
+    /**
+     * Returns a sharded copy of the specified map.
+     *
+     * @param map map to copy
+     * @return a sharded copy of the map
+     */
+    static <K, V> TS3ShardedMap<K, V> copyOf(
+            Map<? extends K, ? extends V> map) {
+        Map<K, V>[] shards = newShards(width(map.size()));
+        for(Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            int index = indexFor(entry.getKey(), shards.length);
+            if(shards[index] == null) shards[index] = new HashMap<K, V>(4);
+            shards[index].put(entry.getKey(), entry.getValue());
+        }
+
+        return new TS3ShardedMap<K, V>(shards, map.size());
+    }
+
+    /**
+     * Returns a map with the specified key mapped to the specified value,
+     * sharing every shard of this map but the one holding the key.
+     *
+     * @param key   key to map
+     * @param value value to map the key to
+     * @return a map with the key mapped to the value
+     */
+    TS3ShardedMap<K, V> with(K key, V value) {
+        int index = indexFor(key, shards.length);
+        Map<K, V> shard = shards[index];
+        boolean added = shard == null || !shard.containsKey(key);
+
+        // Pick more shards once the current ones grew too large
+        if(added && size + 1 > 4 * shards.length * shards.length) {
+            Map<K, V> all = new HashMap<K, V>(this);
+            all.put(key, value);
+            return copyOf(all);
+        }
+
+        Map<K, V> copy = shard == null ? new HashMap<K, V>(4)
+                : new HashMap<K, V>(shard);
+        copy.put(key, value);
+
+        Map<K, V>[] next = shards.clone();
+        next[index] = copy;
+        return new TS3ShardedMap<K, V>(next, added ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the specified key, sharing every shard of this
+     * map but the one holding the key.
+     *
+     * @param key key to remove
+     * @return a map without the key, or this map if it has no such key
+     */
+    TS3ShardedMap<K, V> without(Object key) {
+        int index = indexFor(key, shards.length);
+        Map<K, V> shard = shards[index];
+        if(shard == null || !shard.containsKey(key)) return this;
+
+        Map<K, V> copy = null;
+        if(shard.size() > 1) {
+            copy = new HashMap<K, V>(shard);
+            copy.remove(key);
+        }
+
+        Map<K, V>[] next = shards.clone();
+        next[index] = copy;
+        return new TS3ShardedMap<K, V>(next, size - 1);
+    }
+
+    /**
+     * Returns the value mapped to the specified key.
+     *
+     * @param key key of the value
+     * @return the value, or {@code null} if the key is not mapped
+     */
+    public V get(Object key) {
+        Map<K, V> shard = shards[indexFor(key, shards.length)];
+        return shard == null ? null : shard.get(key);
+    }
+
+    /**
+     * Returns whether the specified key is mapped.
+     *
+     * @param key key to look for
+     * @return {@code true} if the key is mapped
+     */
+    public boolean containsKey(Object key) {
+        Map<K, V> shard = shards[indexFor(key, shards.length)];
+        return shard != null && shard.containsKey(key);
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an unmodifiable view of the entries.
+     * @return the entries
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        if(entries == null) {
+            entries = new AbstractSet<Map.Entry<K, V>>() {
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        return entries;
+    }
+
+    /**
+     * Returns the number of shards for the specified number of entries, the
+     * smallest power of two whose square is at least that number.
+     *
+     * @param size number of entries
+     * @return the number of shards
+     */
+    private static int width(int size) {
+        int width = 1;
+        while(width * width < size) width <<= 1;
+        return width;
+    }
+
+    /**
+     * Returns the index of the shard of the specified key.
+     *
+     * @param key   key of the entry
+     * @param width number of shards, a power of two
+     * @return the index of the shard
+     */
+    private static int indexFor(Object key, int width) {
+        if(key == null) return 0;
+
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (width - 1);
+    }
+
+    /**
+     * Returns an array of empty shards.
+     *
+     * @param width number of shards
+     * @return the array of shards
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] newShards(int width) {
+        return new Map[width];
+    }
+
+    /**
+     * Iterator over the entries of every shard.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        /** Index of the next shard. */
+        private int next = 0;
+
+        /** Iterator over the entries of the current shard. */
+        private Iterator<Map.Entry<K, V>> current =
+                Collections.<Map.Entry<K, V>>emptySet().iterator();
+
+        /**
+         * Returns whether an entry is left.
+         * @return {@code true} if an entry is left
+         */
+        public boolean hasNext() {
+            while(!current.hasNext() && next < shards.length) {
+                Map<K, V> shard = shards[next++];
+                if(shard != null) {
+                    current = Collections.unmodifiableMap(shard).entrySet()
+                            .iterator();
+                }
+            }
+
+            return current.hasNext();
+        }
+
+        /**
+         * Returns the next entry.
+         * @return the next entry
+         */
+        public Map.Entry<K, V> next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            return current.next();
+        }
+
+        /**
+         * Not supported, the map is immutable.
+         */
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar representation of a TS3 Server Query response, suited for large
+ * list responses such as {@code clientlist}, {@code clientdblist}, or
+ * {@code channellist}. Rather than one {@link TS3Map} per row, the response
+ * is stored as one shared schema of keys and one array per column. Columns
+ * whose values are all integers are stored as {@code int} arrays, the others
+ * as {@code String} arrays.
+ * <p>
+ * Rows are read with a {@link Cursor}:
+ * <pre>
+ * {@code
+ * TS3Table table = client.executeTable("clientlist");
+ * int clid = table.getColumn("clid");
+ * int name = table.getColumn("client_nickname");
+ *
+ * TS3Table.Cursor cursor = table.cursor();
+ * while(cursor.next()) {
+ *     System.out.println(cursor.getInt(clid) + " " + cursor.getString(name));
+ * }
+ * }
+ * </pre>
+ * {@link #getItems()} is still supported, but builds the maps on first use.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3Table extends TS3Result {
+
+    /**
+     * Value stored for switches, such as {@code -x}, compared by reference
+     * to tell them apart from rows without a value.
+     */
+    private static final String SWITCH = new String("-");
+
+    /** Columns of the table, in the order their keys first appeared. */
+    private List<Column> columns = new ArrayList<Column>();
+
+    /** Column indices mapped by key. */
+    private Map<String, Integer> columnIndex = new HashMap<String, Integer>();
+
+    /** Number of rows in the table. */
+    private int rows = 0;
+
+    /** Items built from the columns, on first use. */
+    private List<TS3Map> items = null;
+
+    /**
+     * Constructs a table with the responses received from the Teamspeak 3
+     * Server.
+     *
+     * @param result Array of responses received from the Teamspeak 3 Server
+     */
+    public TS3Table(String[] result) {
+        for(int i = 0; i < result.length - 1; i++) parseLine(result[i]);
+
+        // Make every column as long as the table
+        for(Column column : columns) column.fill(rows);
+
+        parseError(result[result.length - 1]);
+    }
+
+    /**
+     * Returns the number of rows in this table.
+     * @return the number of rows in this table
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns in this table.
+     * @return the number of columns in this table
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * Returns the index of the column with the specified key, or -1 if there
+     * is no such column.
+     *
+     * @param key key of the column
+     * @return the index of the column, or -1
+     */
+    public int getColumn(String key) {
+        Integer index = columnIndex.get(key);
+        return index == null ? -1 : index.intValue();
+    }
+
+    /**
+     * Returns the key of the column at the specified index.
+     * @param column index of the column
+     * @return the key of the column
+     */
+    public String getKey(int column) {
+        return columns.get(column).key;
+    }
+
+    /**
+     * Returns {@code true} if the column at the specified index is stored as
+     * integers.
+     *
+     * @param column index of the column
+     * @return {@code true} if the column is stored as integers
+     */
+    public boolean isIntColumn(int column) {
+        return columns.get(column).ints != null;
+    }
+
+    /**
+     * Returns a cursor positioned before the first row of this table.
+     * @return a cursor positioned before the first row
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Returns the rows of this table as maps. The maps are built on the first
+     * call, which defeats the purpose of the columnar representation; prefer
+     * {@link #cursor()}.
+     *
+     * @return the rows of this table as maps
+     */
+    public synchronized List<TS3Map> getItems() {
+        if(items != null) return items;
+
+        List<TS3Map> list = new ArrayList<TS3Map>(rows);
+        Cursor cursor = cursor();
+
+        while(cursor.next()) {
+            TS3Map map = new TS3Map();
+
+            for(int i = 0; i < columns.size(); i++) {
+                if(cursor.isSwitch(i)) {
+                    map.add(getKey(i));
+                    continue;
+                }
+
+                String value = cursor.getString(i);
+                if(value == null) continue;
+
+                if(!map.add(getKey(i), value)) map.add(getKey(i));
+            }
+
+            list.add(map);
+        }
+
+        items = Collections.unmodifiableList(list);
+        return items;
+    }
+
+    /**
+     * Parses a line of the response, containing rows separated by pipes.
+     * @param line line of the response
+     */
+    private void parseLine(String line) {
+        int start = 0;
+        int length = line.length();
+
+        while(start <= length) {
+            int end = line.indexOf('|', start);
+            if(end == -1) end = length;
+
+            parseRow(line, start, end);
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Parses a row of the response, made of space separated entries.
+     *
+     * @param line  line of the response
+     * @param start index of the first character of the row
+     * @param end   index after the last character of the row
+     */
+    private void parseRow(String line, int start, int end) {
+        // Skip surrounding whitespace, and rows that are empty
+        while(start < end && line.charAt(start) == ' ') start++;
+        while(end > start && line.charAt(end - 1) == ' ') end--;
+        if(start == end) return;
+
+        int position = 0;
+        while(start < end) {
+            int entryEnd = line.indexOf(' ', start);
+            if(entryEnd == -1 || entryEnd > end) entryEnd = end;
+
+            if(entryEnd > start) {
+                parseEntry(line, start, entryEnd, position);
+                position++;
+            }
+
+            start = entryEnd + 1;
+        }
+
+        rows++;
+    }
+
+    /**
+     * Parses an entry of a row and stores its value in its column.
+     *
+     * @param line     line of the response
+     * @param start    index of the first character of the entry
+     * @param end      index after the last character of the entry
+     * @param position position of the entry in the row
+     */
+    private void parseEntry(String line, int start, int end, int position) {
+        int equals = line.indexOf('=', start);
+        if(equals == -1 || equals > end) equals = end;
+
+        if(equals == end) {
+            // Entries without a value are switches, keyed without the dash
+            if(line.charAt(start) == '-' && end - start > 1) start++;
+
+            findColumn(line, start, end, position).setString(rows, SWITCH);
+            return;
+        }
+
+        Column column = findColumn(line, start, equals, position);
+
+        if(!column.setInt(rows, line, equals + 1, end)) {
+            String value = line.substring(equals + 1, end);
+            if(value.indexOf('\\') != -1) value = TS3Map.unescape(value);
+
+            column.setString(rows, value);
+        }
+    }
+
+    /**
+     * Returns the column of the key in the specified range, adding it if it
+     * does not exist yet. Rows usually list their keys in the same order, so
+     * the column at the same position is checked first to avoid building the
+     * key.
+     *
+     * @param line     line of the response
+     * @param start    index of the first character of the key
+     * @param end      index after the last character of the key
+     * @param position position of the entry in the row
+     * @return the column of the key
+     */
+    private Column findColumn(String line, int start, int end,
+            int position) {
+        int length = end - start;
+
+        if(position < columns.size()) {
+            Column column = columns.get(position);
+
+            if(column.key.length() == length
+                    && line.regionMatches(start, column.key, 0, length)) {
+                return column;
+            }
+        }
+
+        String key = line.substring(start, end);
+        Integer index = columnIndex.get(key);
+        if(index != null) return columns.get(index.intValue());
+
+        Column column = new Column(key);
+        columnIndex.put(key, columns.size());
+        columns.add(column);
+
+        return column;
+    }
+
+    /**
+     * A column of the table.
+     */
+    private static class Column {
+        /** Key of the column. */
+        private String key;
+
+        /** Values of the column while all of them are integers. */
+        private int[] ints = new int[16];
+
+        /** Values of the column once one of them is not an integer. */
+        private String[] strings = null;
+
+        /** Number of rows with a value in this column. */
+        private int size = 0;
+
+        /**
+         * Constructs an empty column with the specified key.
+         * @param key key of the column
+         */
+        public Column(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Stores the integer in the specified range at the specified row,
+         * unless the range is not an integer or the column already holds
+         * strings.
+         *
+         * @param row   index of the row
+         * @param line  line of the response
+         * @param start index of the first character of the value
+         * @param end   index after the last character of the value
+         * @return {@code true} if the value was stored
+         */
+        public boolean setInt(int row, String line, int start, int end) {
+            if(ints == null || row != size || start == end) return false;
+
+            // Parse the integer, rejecting anything that would not convert
+            // back to the same string
+            boolean negative = line.charAt(start) == '-';
+            int i = negative ? start + 1 : start;
+            int digits = end - i;
+
+            if(digits < 1 || digits > 10) return false;
+            if(digits > 1 && line.charAt(i) == '0') return false;
+
+            long value = 0;
+            for(; i < end; i++) {
+                char c = line.charAt(i);
+                if(c < '0' || c > '9') return false;
+
+                value = value * 10 + (c - '0');
+            }
+
+            if(negative) value = -value;
+            if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                return false;
+            }
+
+            if(size == ints.length) {
+                int[] grown = new int[ints.length * 2];
+                System.arraycopy(ints, 0, grown, 0, size);
+                ints = grown;
+            }
+
+            ints[size++] = (int)value;
+            return true;
+        }
+
+        /**
+         * Stores the string at the specified row, converting the column to
+         * strings if needed. Rows skipped since the last value are left
+         * {@code null}.
+         *
+         * @param row   index of the row
+         * @param value value to store
+         */
+        public void setString(int row, String value) {
+            toStrings(row + 1);
+            strings[row] = value;
+            size = row + 1;
+        }
+
+        /**
+         * Makes the column as long as the specified number of rows. Rows
+         * without a value are left {@code null}, which requires the column
+         * to hold strings.
+         *
+         * @param rows number of rows
+         */
+        public void fill(int rows) {
+            if(size == rows && ints != null) {
+                // Trim the integers to the number of rows
+                if(ints.length != rows) {
+                    int[] trimmed = new int[rows];
+                    System.arraycopy(ints, 0, trimmed, 0, rows);
+                    ints = trimmed;
+                }
+
+                return;
+            }
+
+            toStrings(rows);
+            size = rows;
+
+            if(strings.length != rows) {
+                String[] trimmed = new String[rows];
+                System.arraycopy(strings, 0, trimmed, 0, rows);
+                strings = trimmed;
+            }
+        }
+
+        /**
+         * Converts the column to strings if it still holds integers, and
+         * makes sure it can hold the specified number of rows.
+         *
+         * @param capacity number of rows the column must be able to hold
+         */
+        private void toStrings(int capacity) {
+            if(strings == null) {
+                strings = new String[Math.max(capacity, 16)];
+
+                for(int i = 0; i < size; i++) {
+                    strings[i] = Integer.toString(ints[i]);
+                }
+
+                ints = null;
+            } else if(strings.length < capacity) {
+                String[] grown = new String[Math.max(capacity,
+                        strings.length * 2)];
+                System.arraycopy(strings, 0, grown, 0, size);
+                strings = grown;
+            }
+        }
+    }
+
+    /**
+     * Cursor iterating over the rows of the table.
+     */
+    public class Cursor {
+        /** Index of the current row. */
+        private int row = -1;
+
+        /**
+         * Moves to the next row.
+         * @return {@code true} if there is a next row
+         */
+        public boolean next() {
+            if(row + 1 >= rows) return false;
+
+            row++;
+            return true;
+        }
+
+        /**
+         * Returns the index of the current row.
+         * @return the index of the current row
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Returns {@code true} if the current row has a value or a switch in
+         * the specified column.
+         *
+         * @param column index of the column
+         * @return {@code true} if the row has a value in the column
+         */
+        public boolean has(int column) {
+            Column c = columns.get(column);
+            return c.ints != null || c.strings[row] != null;
+        }
+
+        /**
+         * Returns {@code true} if the current row has a switch in the
+         * specified column.
+         *
+         * @param column index of the column
+         * @return {@code true} if the row has a switch in the column
+         */
+        public boolean isSwitch(int column) {
+            Column c = columns.get(column);
+            return c.ints == null && c.strings[row] == SWITCH;
+        }
+
+        /**
+         * Returns the value of the current row in the specified column as a
+         * string, or {@code null} if the row has no value in the column or
+         * has a switch.
+         *
+         * @param column index of the column
+         * @return the value of the row in the column
+         */
+        public String getString(int column) {
+            Column c = columns.get(column);
+
+            if(c.ints != null) return Integer.toString(c.ints[row]);
+            return c.strings[row] == SWITCH ? null : c.strings[row];
+        }
+
+        /**
+         * Returns the value of the current row in the column with the
+         * specified key as a string, or {@code null} if there is no value.
+         *
+         * @param key key of the column
+         * @return the value of the row in the column
+         */
+        public String get(String key) {
+            int column = getColumn(key);
+            return column == -1 ? null : getString(column);
+        }
+
+        /**
+         * Returns the value of the current row in the specified column as an
+         * integer, or the default value if it is not an integer.
+         *
+         * @param column       index of the column
+         * @param defaultValue value returned if there is no integer
+         * @return the value of the row in the column
+         */
+        public int getInt(int column, int defaultValue) {
+            Column c = columns.get(column);
+            if(c.ints != null) return c.ints[row];
+
+            String value = c.strings[row];
+            if(value == null || value == SWITCH) return defaultValue;
+
+            try {
+                return Integer.parseInt(value);
+            } catch(NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+
+        /**
+         * Returns the value of the current row in the specified column as an
+         * integer, or 0 if it is not an integer.
+         *
+         * @param column index of the column
+         * @return the value of the row in the column
+         */
+        public int getInt(int column) {
+            return getInt(column, 0);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.visualcoding.ts3serverquery;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory used to spawn the threads of the server query client. By
+ * default, named platform threads are created. The {@link #virtual()} factory
+ * creates virtual threads instead when the running JDK supports them, which
+ * allows thousands of clients to run without the thread stacks being the
+ * limit.
+ * <p>
+ * Virtual threads are looked up through reflection so that this library
+ * still builds and runs on JDKs without them.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3ThreadFactory implements ThreadFactory {
+
+    /** Prefix of the names of the threads created by this factory. */
+    private String prefix;
+
+    /** Whether or not the threads created by this factory are daemons. */
+    private boolean daemon;
+
+    /** Number of threads created by this factory. */
+    private AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Constructs a factory creating non-daemon platform threads named
+     * {@code TS3-n}.
+     */
+    public TS3ThreadFactory() {
+        this("TS3", false);
+    }
+
+    /**
+     * Constructs a factory creating platform threads with the specified name
+     * prefix.
+     *
+     * @param prefix prefix of the names of the created threads
+     * @param daemon whether or not the created threads are daemons
+     */
+    public TS3ThreadFactory(String prefix, boolean daemon) {
+        this.prefix = prefix;
+        this.daemon = daemon;
+    }
+
+    /**
+     * Creates a new platform thread running the specified task.
+     *
+     * @param task task to run in the thread
+     * @return the created thread, not yet started
+     */
+    public Thread newThread(Runnable task) {
+        Thread thread = new Thread(task, prefix + "-"
+                + count.incrementAndGet());
+        thread.setDaemon(daemon);
+
+        return thread;
+    }
+
+    /**
+     * Returns {@code true} if the running JDK supports virtual threads.
+     * @return {@code true} if the running JDK supports virtual threads
+     */
+    public static boolean isVirtualSupported() {
+        return createVirtualFactory() != null;
+    }
+
+    /**
+     * Returns a factory creating virtual threads if the running JDK supports
+     * them, or a factory creating daemon platform threads otherwise.
+     *
+     * @return a factory creating virtual threads if they are supported
+     */
+    public static ThreadFactory virtual() {
+        ThreadFactory factory = createVirtualFactory();
+        if(factory == null) factory = new TS3ThreadFactory("TS3", true);
+
+        return factory;
+    }
+
+    /**
+     * Creates the factory of {@code Thread.ofVirtual()} through reflection.
+     * @return the virtual thread factory, or {@code null} if not supported
+     */
+    private static ThreadFactory createVirtualFactory() {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+
+            // Thread.ofVirtual().name("TS3-virtual-", 1).factory()
+            Object ofVirtual = Thread.class.getMethod("ofVirtual")
+                    .invoke(null);
+            Method name = builder.getMethod("name", String.class, long.class);
+            Object named = name.invoke(ofVirtual, "TS3-virtual-", 1L);
+
+            return (ThreadFactory)builder.getMethod("factory").invoke(named);
+        } catch(Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary mapping client unique ids to stable integer handles. Every
+ * unique id is stored once, so that the polling thread and the events it
+ * sends all share the same {@code String} instance for a given client rather
+ * than retaining a fresh copy per poll.
+ * <p>
+ * Handles are reference counted: {@link #acquire(String)} and
+ * {@link #retain(int)} take a reference, and {@link #release(int)} gives it
+ * back. A unique id is evicted once its last reference is released, and its
+ * handle is then reused, so the dictionary only holds the unique ids of the
+ * clients currently known rather than every unique id ever seen.
+ *
+ * @author Aldehir Rojas
+ * @version 1.1.0
+ */
+public class TS3UidDictionary {
+
+    /** Handle returned for {@code null} unique ids. */
+    public static final int NO_HANDLE = -1;
+
+    /** Handles mapped by unique id. */
+    private Map<String, Integer> handles = new HashMap<String, Integer>();
+
+    /** Unique ids indexed by handle, {@code null} for free handles. */
+    private List<String> uids = new ArrayList<String>();
+
+    /** Number of references to each handle. */
+    private int[] references = new int[16];
+
+    /** Stack of the handles available for reuse. */
+    private int[] free = new int[16];
+
+    /** Number of handles on the stack of free handles. */
+    private int freeCount = 0;
+
+    /**
+     * Returns the handle of the specified unique id and takes a reference
+     * to it, assigning a new handle if the unique id is not in this
+     * dictionary. Every reference must be given back through
+     * {@link #release(int)}.
+     *
+     * @param uid unique id of a client
+     * @return the handle of the unique id, or {@value #NO_HANDLE} if
+     *         {@code uid} is {@code null}
+     */
+    public synchronized int acquire(String uid) {
+        if(uid == null) return NO_HANDLE;
+
+        Integer handle = handles.get(uid);
+        if(handle == null) {
+            if(freeCount > 0) {
+                handle = free[--freeCount];
+                uids.set(handle, uid);
+            } else {
+                handle = uids.size();
+                uids.add(uid);
+
+                if(handle >= references.length) {
+                    int[] grown = new int[references.length * 2];
+                    System.arraycopy(references, 0, grown, 0,
+                            references.length);
+                    references = grown;
+                }
+            }
+
+            handles.put(uid, handle);
+        }
+
+        references[handle]++;
+        return handle.intValue();
+    }
+
+    /**
+     * Takes another reference to the specified handle. Unknown handles are
+     * ignored.
+     *
+     * @param handle handle of the unique id
+     */
+    public synchronized void retain(int handle) {
+        if(isLive(handle)) references[handle]++;
+    }
+
+    /**
+     * Gives back a reference to the specified handle, evicting its unique id
+     * once no reference is left. Unknown handles are ignored.
+     *
+     * @param handle handle of the unique id
+     */
+    public synchronized void release(int handle) {
+        if(!isLive(handle) || --references[handle] > 0) return;
+
+        handles.remove(uids.set(handle, null));
+
+        if(freeCount == free.length) {
+            int[] grown = new int[free.length * 2];
+            System.arraycopy(free, 0, grown, 0, free.length);
+            free = grown;
+        }
+        free[freeCount++] = handle;
+    }
+
+    /**
+     * Returns the unique id associated with the specified handle.
+     *
+     * @param handle handle of the unique id
+     * @return the unique id, or {@code null} if the handle is unknown
+     */
+    public synchronized String getUid(int handle) {
+        if(handle < 0 || handle >= uids.size()) return null;
+        return uids.get(handle);
+    }
+
+    /**
+     * Returns the instance of the specified unique id stored in this
+     * dictionary, or {@code uid} itself if it is not stored. No reference
+     * is taken, so interning never grows the dictionary.
+     *
+     * @param uid unique id of a client
+     * @return the stored instance equal to {@code uid}, or {@code uid}
+     */
+    public synchronized String intern(String uid) {
+        if(uid == null) return null;
+
+        Integer handle = handles.get(uid);
+        return handle == null ? uid : uids.get(handle);
+    }
+
+    /**
+     * Returns the number of unique ids in this dictionary.
+     * @return the number of unique ids in this dictionary
+     */
+    public synchronized int size() {
+        return handles.size();
+    }
+
+    /**
+     * Returns whether the specified handle is assigned to a unique id.
+     *
+     * @param handle handle of the unique id
+     * @return {@code true} if the handle is assigned
+     */
+    private boolean isLive(int handle) {
+        return handle >= 0 && handle < uids.size()
+                && uids.get(handle) != null;
+    }
+}
@@ -0,0 +1,113 @@
+package net.visualcoding.ts3serverquery;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Unit test for TS3CommandEncoder
+ */
+public class TS3CommandEncoderTest {
+
+    @Test
+    public void testEncodeCommand() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TS3CommandEncoder encoder = new TS3CommandEncoder(out);
+
+        TS3Map map = new TS3Map();
+        map.add("msg", "hello world|\\/");
+
+        encoder.writeRaw("sendtextmessage");
+        encoder.writeMap(map);
+        encoder.endLine();
+
+        // Nothing is written until the encoder is flushed
+        assertEquals(0, out.size());
+        encoder.flush();
+
+        assertEquals("sendtextmessage msg=hello\\sworld\\p\\\\\\/\n\r",
+                out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testEncodeMap() throws Exception {
+        String[] values = { "-switch", "name=value", "name=v1|name=v2" };
+
+        for(String value : values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TS3CommandEncoder encoder = new TS3CommandEncoder(out);
+
+            TS3Map map = new TS3Map(value);
+            encoder.writeMap(map);
+            encoder.flush();
+
+            assertEquals(" " + map.toString(), out.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testEncodeUnicode() throws Exception {
+        // Use a tiny buffer so the encoder has to drain in between
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TS3CommandEncoder encoder = new TS3CommandEncoder(out,
+                TS3CommandEncoder.MIN_BUFFER_SIZE);
+
+        String text = "grüße 你好 😀";
+        encoder.writeEscaped(text);
+        encoder.flush();
+
+        assertEquals(TS3Map.escape(text), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testEncodeInt() throws Exception {
+        int[] values = { 0, 7, 10, 12345, -1, Integer.MAX_VALUE,
+            Integer.MIN_VALUE };
+
+        for(int value : values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TS3CommandEncoder encoder = new TS3CommandEncoder(out,
+                    TS3CommandEncoder.MIN_BUFFER_SIZE);
+
+            encoder.writeRaw("clid=");
+            encoder.writeInt(value);
+            encoder.flush();
+
+            assertEquals("clid=" + value, out.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testEncodeTemplate() throws Exception {
+        TS3Command[] commands = {
+            TS3Commands.clientMove(5, 2),
+            TS3Commands.clientList(true, false, false, true),
+            TS3Commands.clientKick(7, TS3Commands.KickReason.Server,
+                    "bye now"),
+            TS3Commands.sendTextMessage(TS3MessageEvent.Mode.Channel, 3,
+                    "hello world")
+        };
+
+        String[] expected = {
+            "clientmove clid=5 cid=2",
+            "clientlist -uid -groups",
+            "clientkick clid=7 reasonid=5 reasonmsg=bye\\snow",
+            "sendtextmessage targetmode=2 target=3 msg=hello\\sworld"
+        };
+
+        for(int i = 0; i < commands.length; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TS3CommandEncoder encoder = new TS3CommandEncoder(out);
+
+            commands[i].encode(encoder);
+            encoder.flush();
+
+            assertEquals(expected[i], out.toString("UTF-8"));
+            assertEquals(expected[i], commands[i].toString());
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3EventJournal
+ */
+public class TS3EventJournalTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("journal", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        for(File file : TS3EventJournal.list(directory)) file.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        TS3EventJournal journal = new TS3EventJournal(directory);
+        journal.setSegmentSize(256);
+        journal.open();
+
+        for(int i = 0; i < 10; i++) {
+            journal.onClientConnected(
+                    new TS3ClientConnectedEvent("Client" + i, i, "uid" + i));
+        }
+        journal.onClientMoved(new TS3ClientMovedEvent("Mover", 3, "uid3", 1,
+                2));
+        journal.onMessage(new TS3MessageEvent("Talker", 4, null,
+                "hello wörld", TS3MessageEvent.Mode.Channel));
+        journal.close();
+
+        assertEquals(12, journal.getWritten());
+        assertTrue(TS3EventJournal.list(directory).length > 1);
+
+        final List<TS3Event> events = new ArrayList<TS3Event>();
+        long count = TS3EventJournal.replay(directory,
+                new TS3EventJournal.Handler() {
+            public void onEvent(long time, TS3Event event) {
+                events.add(event);
+            }
+        });
+
+        assertEquals(12, count);
+        assertEquals("Client0", events.get(0).getClientName());
+        assertEquals(9, events.get(9).getClientId());
+
+        TS3ClientMovedEvent moved = (TS3ClientMovedEvent) events.get(10);
+        assertEquals(1, moved.getSource());
+        assertEquals(2, moved.getDestination());
+
+        TS3MessageEvent message = (TS3MessageEvent) events.get(11);
+        assertNull(message.getClientUid());
+        assertEquals("hello wörld", message.getMessage());
+        assertEquals(TS3MessageEvent.Mode.Channel, message.getMode());
+    }
+
+    @Test
+    public void testPooledEvents() throws Exception {
+        TS3EventJournal journal = new TS3EventJournal(directory);
+        journal.open();
+
+        // A pooled event is refilled once the listeners handled it
+        TS3EventPool pool = new TS3EventPool();
+        TS3ClientMovedEvent event = pool.moved();
+        event.setClientName("First");
+        event.setDestination(2);
+        journal.onClientMoved(event);
+        pool.release(event);
+
+        event = pool.moved();
+        event.setClientName("Second");
+        event.setDestination(3);
+        journal.onClientMoved(event);
+        journal.close();
+
+        final List<TS3Event> events = new ArrayList<TS3Event>();
+        TS3EventJournal.replay(directory, new TS3EventJournal.Handler() {
+            public void onEvent(long time, TS3Event event) {
+                events.add(event);
+            }
+        });
+
+        assertEquals(2, events.size());
+        assertEquals("First", events.get(0).getClientName());
+        assertEquals(2, ((TS3ClientMovedEvent) events.get(0))
+                .getDestination());
+        assertEquals("Second", events.get(1).getClientName());
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        TS3EventJournal journal = new TS3EventJournal(directory);
+        journal.setSegmentSize(128);
+        journal.setMaxSegments(2);
+        journal.open();
+
+        for(int i = 0; i < 20; i++) {
+            journal.onClientConnected(
+                    new TS3ClientConnectedEvent("Client" + i, i, "uid" + i));
+        }
+        journal.close();
+
+        assertEquals(2, TS3EventJournal.list(directory).length);
+    }
+
+    @Test(timeout=10000)
+    public void testWriteFailure() throws Exception {
+        TS3EventJournal journal = new TS3EventJournal(directory, 2,
+                new TS3ThreadFactory());
+        journal.open();
+
+        // The first segment cannot be created without its directory
+        directory.delete();
+        journal.onClientConnected(new TS3ClientConnectedEvent("Client", 1,
+                "uid"));
+        while(!journal.isFailed()) Thread.sleep(10);
+
+        // Further events are dropped rather than filling the queue
+        for(int i = 0; i < 5; i++) {
+            journal.onClientConnected(
+                    new TS3ClientConnectedEvent("Client" + i, i, "uid" + i));
+        }
+        journal.close();
+
+        assertEquals(0, journal.getWritten());
+        assertEquals(5, journal.getDropped());
+    }
+}
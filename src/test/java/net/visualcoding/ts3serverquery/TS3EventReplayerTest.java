@@ -0,0 +1,103 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3EventReplayer
+ */
+public class TS3EventReplayerTest {
+
+    private static class Recorder implements TS3EventListener {
+        List<String> messages = new ArrayList<String>();
+
+        public void onClientMoved(TS3ClientMovedEvent event) { }
+        public void onClientConnected(TS3ClientConnectedEvent event) { }
+        public void onClientDisconnected(TS3ClientDisconnectedEvent event) { }
+
+        public void onMessage(TS3MessageEvent event) {
+            messages.add(event.getMessage());
+        }
+    }
+
+    @Test
+    public void testReplayLines() throws Exception {
+        String lines =
+            "1000 notifytextmessage targetmode=3 msg=first invokerid=1 "
+                + "invokername=A invokeruid=a\n"
+            + "1010 error id=0 msg=ok\n"
+            + "notifytextmessage targetmode=2 msg=second invokerid=2 "
+                + "invokername=B invokeruid=b\n"
+            + "1020 notifytextmessage targetmode=1 msg=third invokerid=3 "
+                + "invokername=C invokeruid=c\n";
+
+        Recorder recorder = new Recorder();
+        TS3EventReplayer replayer = new TS3EventReplayer();
+        replayer.addListener(recorder);
+        replayer.setTimeScale(10);
+
+        TS3EventReplayer.Report report = replayer.replayLines(
+                new StringReader(lines));
+
+        assertEquals(3, report.getEvents());
+        assertEquals(3, report.getInvocations(0));
+        assertSame(recorder, report.getListener(0));
+        assertEquals("first", recorder.messages.get(0));
+        assertEquals("third", recorder.messages.get(2));
+        assertTrue(report.getThroughput() > 0);
+
+        // No replay thread is left behind
+        assertFalse(replayer.getWorker().isAlive());
+    }
+
+    @Test(timeout=10000)
+    public void testReplayJournal() throws Exception {
+        File directory = File.createTempFile("journal", "");
+        directory.delete();
+
+        try {
+            TS3EventJournal journal = new TS3EventJournal(directory);
+            journal.open();
+            for(int i = 0; i < 5; i++) {
+                journal.onMessage(new TS3MessageEvent("Talker", i, null,
+                        "message" + i, TS3MessageEvent.Mode.Server));
+            }
+            journal.close();
+
+            Recorder recorder = new Recorder();
+            TS3EventReplayer replayer = new TS3EventReplayer();
+            replayer.addListener(recorder);
+            replayer.setTimeScale(0);
+
+            TS3EventReplayer.Report report = replayer.replayJournal(
+                    directory);
+            assertEquals(5, report.getEvents());
+            assertEquals(5, recorder.messages.size());
+            assertFalse(replayer.getWorker().isAlive());
+
+            // An interrupted replay stops right away
+            Thread.currentThread().interrupt();
+            try {
+                replayer.replayJournal(directory);
+                fail();
+            } catch(InterruptedException e) {
+                // Expected
+            }
+            assertTrue(recorder.messages.size() < 7);
+            assertFalse(replayer.getWorker().isAlive());
+        } finally {
+            for(File file : TS3EventJournal.list(directory)) file.delete();
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3EventThread
+ */
+public class TS3EventThreadTest {
+
+    private static class Recorder implements TS3EventListener {
+        final List<TS3Event> events = new ArrayList<TS3Event>();
+        final CountDownLatch done;
+
+        Recorder(int count) {
+            done = new CountDownLatch(count);
+        }
+
+        void record(TS3Event event) {
+            events.add(event);
+            done.countDown();
+        }
+
+        public void onClientMoved(TS3ClientMovedEvent event) {
+            record(event);
+        }
+
+        public void onClientConnected(TS3ClientConnectedEvent event) {
+            record(event);
+        }
+
+        public void onClientDisconnected(TS3ClientDisconnectedEvent event) {
+            record(event);
+        }
+
+        public void onMessage(TS3MessageEvent event) {
+            record(event);
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testServerStateDeltas() throws Exception {
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost");
+        TS3ServerState state = new TS3ServerState();
+        client.setServerState(state);
+
+        TS3EventThread thread = new TS3EventThread(client);
+        Recorder recorder = new Recorder(3);
+        thread.addListener(recorder);
+
+        // The state follows the notifications as they are decoded
+        thread.post("notifycliententerview cfid=0 ctid=5 reasonid=0 clid=7 "
+                + "client_unique_identifier=abc client_nickname=Alice "
+                + "client_database_id=3 client_servergroups=6,8");
+        assertEquals(5, state.getClient(7).getChannelId());
+        assertEquals(3, state.getClient(7).getDatabaseId());
+        assertTrue(state.getClient(7).isInServerGroup(8));
+
+        thread.post("notifyclientmoved ctid=9 reasonid=0 clid=7");
+        assertEquals(9, state.getClient(7).getChannelId());
+
+        thread.post("notifyclientleftview cfid=9 ctid=0 reasonid=8 clid=7");
+        assertNull(state.getClient(7));
+
+        Thread worker = new Thread(thread);
+        worker.start();
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        worker.interrupt();
+        worker.join();
+
+        // The events carry what the state knew before each change
+        TS3ClientMovedEvent moved = (TS3ClientMovedEvent) recorder.events
+                .get(1);
+        assertEquals(5, moved.getSource());
+        assertEquals(9, moved.getDestination());
+        assertEquals("Alice", moved.getClientName());
+
+        TS3Event left = recorder.events.get(2);
+        assertTrue(left instanceof TS3ClientDisconnectedEvent);
+        assertEquals("Alice", left.getClientName());
+        assertEquals("abc", left.getClientUid());
+    }
+
+    @Test
+    public void testDroppedEventsReleased() {
+        final List<TS3Event> released = new ArrayList<TS3Event>();
+        TS3EventPool pool = new TS3EventPool() {
+            public void release(TS3Event event) {
+                released.add(event);
+                super.release(event);
+            }
+        };
+
+        // Never started, so the second event does not fit in the queue
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost");
+        TS3EventThread thread = new TS3EventThread(client, 1);
+        thread.setEventPool(pool);
+
+        String line = "notifytextmessage targetmode=3 msg=hi invokerid=1 "
+                + "invokername=A invokeruid=a";
+        thread.post(line);
+        thread.post(line);
+
+        assertEquals(1, thread.getDroppedEvents());
+        assertEquals(1, released.size());
+        assertSame(released.get(0), pool.message());
+    }
+
+    @Test
+    public void testCacheInvalidated() {
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost");
+        TS3ResultCache cache = new TS3ResultCache();
+        client.setResultCache(cache);
+
+        TS3Result result = new TS3Result(new String[] {
+            "cid=3 client_unique_identifier=abc", "error id=0 msg=ok"});
+        cache.put(TS3Commands.clientInfo(7), result);
+        cache.put(TS3Commands.clientInfo(8), result);
+
+        // Invalidated as soon as the notification is decoded
+        TS3EventThread thread = new TS3EventThread(client, 1);
+        thread.post("notifyclientmoved ctid=9 reasonid=0 clid=7");
+        assertNull(cache.get("clientinfo clid=7"));
+
+        // Even when the event is dropped
+        thread.post("notifyclientleftview cfid=9 ctid=0 reasonid=8 clid=8");
+        assertEquals(1, thread.getDroppedEvents());
+        assertNull(cache.get("clientinfo clid=8"));
+    }
+}
@@ -0,0 +1,90 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3Event;
+import net.visualcoding.ts3serverquery.event.TS3MessageEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientConnectedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3EventWatchdog
+ */
+public class TS3EventWatchdogTest {
+
+    private static class SlowListener implements TS3EventListener {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        public void onClientMoved(TS3ClientMovedEvent event) { }
+        public void onClientConnected(TS3ClientConnectedEvent event) { }
+        public void onClientDisconnected(TS3ClientDisconnectedEvent event) { }
+
+        public void onMessage(TS3MessageEvent event) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Recorder implements TS3EventWatchdog.Handler {
+        TS3EventListener slow;
+        StackTraceElement[] stack;
+        int saturatedSize = -1;
+
+        public void onSlowListener(TS3EventListener listener, TS3Event event,
+                long elapsed, StackTraceElement[] stack) {
+            this.slow = listener;
+            this.stack = stack;
+        }
+
+        public void onQueueSaturated(int size, int capacity, long dropped) {
+            saturatedSize = size;
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testSlowListenerAndSaturation() throws Exception {
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost");
+        SlowListener listener = new SlowListener();
+        client.addEventListener(listener);
+
+        TS3EventThread thread = client.getEventThread();
+        Thread worker = new Thread(thread);
+        worker.start();
+
+        Recorder recorder = new Recorder();
+        TS3EventWatchdog watchdog = new TS3EventWatchdog(client, recorder);
+        watchdog.setListenerThreshold(50);
+        watchdog.setQueueThreshold(0.5);
+
+        // Block the listener, then fill the queue behind it
+        thread.notify(new TS3MessageEvent("a", 1, "a", "m", 1));
+        assertTrue(listener.entered.await(5, TimeUnit.SECONDS));
+        int backlog = thread.getQueueCapacity() * 4 / 5;
+        for(int i = 0; i < backlog; i++) {
+            thread.notify(new TS3MessageEvent("a", 1, "a", "m", 1));
+        }
+
+        Thread.sleep(100);
+        watchdog.check();
+        watchdog.check();
+
+        assertSame(listener, recorder.slow);
+        assertTrue(recorder.stack.length > 0);
+        assertEquals(1, watchdog.getSlowListeners());
+        assertEquals(backlog, recorder.saturatedSize);
+        assertEquals(1, watchdog.getSaturations());
+
+        listener.release.countDown();
+        worker.interrupt();
+    }
+}
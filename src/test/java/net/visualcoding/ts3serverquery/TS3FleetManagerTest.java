@@ -0,0 +1,81 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3FleetManager
+ */
+public class TS3FleetManagerTest {
+
+    @Test
+    public void testStaggering() {
+        // Four hosts split the interval in equal parts
+        assertEquals(0, TS3FleetManager.staggerDelay(0, 4, 500));
+        assertEquals(125, TS3FleetManager.staggerDelay(1, 4, 500));
+        assertEquals(250, TS3FleetManager.staggerDelay(2, 4, 500));
+        assertEquals(375, TS3FleetManager.staggerDelay(3, 4, 500));
+
+        // A single host is polled right away
+        assertEquals(0, TS3FleetManager.staggerDelay(0, 1, 500));
+    }
+
+    @Test(timeout=10000)
+    public void testRemoveOnFailedPoll() throws Exception {
+        TS3FleetManager fleet = new TS3FleetManager(20, 1);
+
+        // Hold the only I/O thread, so that no poll runs yet
+        final CountDownLatch release = new CountDownLatch(1);
+        fleet.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                release.await();
+                return null;
+            }
+        });
+
+        // Never connected, so every poll fails with an IOException
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost");
+        assertFalse(fleet.addClient(client));
+        assertEquals(1, fleet.getClients().size());
+
+        release.countDown();
+        while(!fleet.getClients().isEmpty()) Thread.sleep(10);
+
+        fleet.shutdown();
+    }
+
+    @Test(timeout=10000)
+    public void testShutdown() throws Exception {
+        TS3FleetManager fleet = new TS3FleetManager();
+        final AtomicBoolean done = new AtomicBoolean(false);
+
+        fleet.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                Thread.sleep(200);
+                done.set(true);
+                return null;
+            }
+        });
+
+        // The task in progress completes before shutdown returns
+        fleet.shutdown();
+        assertTrue(done.get());
+        assertTrue(fleet.getClients().isEmpty());
+
+        try {
+            fleet.submit(new Callable<Void>() {
+                public Void call() {
+                    return null;
+                }
+            });
+            fail("Expected the executor to be shut down");
+        } catch(RejectedExecutionException e) {
+            // Expected
+        }
+    }
+}
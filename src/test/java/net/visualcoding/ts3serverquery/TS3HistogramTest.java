@@ -0,0 +1,39 @@
+package net.visualcoding.ts3serverquery;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3Histogram
+ */
+public class TS3HistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long[] values = { 0, 1, 15, 16, 17, 1000, 123456789L,
+            Long.MAX_VALUE };
+
+        for(long value : values) {
+            int index = TS3Histogram.index(value);
+            assertTrue(value <= TS3Histogram.upperBound(index));
+            assertTrue(index == 0
+                    || value > TS3Histogram.upperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        TS3Histogram histogram = new TS3Histogram();
+        for(int i = 1; i <= 1000; i++) histogram.record(i * 1000L);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 0.001);
+
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertEquals(500000, p50, 500000 / TS3Histogram.SUB_BUCKETS);
+        assertEquals(990000, p99, 990000 / TS3Histogram.SUB_BUCKETS);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+}
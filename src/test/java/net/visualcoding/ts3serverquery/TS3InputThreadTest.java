@@ -0,0 +1,43 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3InputThread
+ */
+public class TS3InputThreadTest {
+
+    @Test(timeout=10000)
+    public void testCompletionSlots() throws Exception {
+        String input = "TS3\n\rWelcome\n\r"
+            + "virtualserver_name=A\n\rerror id=0 msg=ok\n\r"
+            + "clid=1|clid=2\n\rerror id=0 msg=ok\n\r";
+
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost");
+        TS3InputThread thread = new TS3InputThread(client,
+                new ByteArrayInputStream(input.getBytes("UTF-8")));
+
+        // Reserved before and after the responses arrive
+        TS3InputThread.Slot first = thread.expect();
+        thread.start();
+        thread.join();
+        TS3InputThread.Slot second = thread.expect();
+
+        assertArrayEquals(new String[] { "virtualserver_name=A",
+            "error id=0 msg=ok" }, first.await());
+        assertArrayEquals(new String[] { "clid=1|clid=2",
+            "error id=0 msg=ok" }, second.await());
+
+        // The stream ended, so later slots fail instead of waiting forever
+        try {
+            thread.nextResponse();
+            fail("Expected the closed stream to fail the slot");
+        } catch(IOException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3KeepAlive
+ */
+public class TS3KeepAliveTest {
+
+    private static class Recorder implements TS3KeepAlive.Handler {
+        volatile long roundTrip = -1;
+        volatile long elapsed = -1;
+
+        public void onRoundTrip(TS3ServerQueryClient client, long roundTrip) {
+            this.roundTrip = roundTrip;
+        }
+
+        public void onDead(TS3ServerQueryClient client, long elapsed) {
+            this.elapsed = elapsed;
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testProbeAndDeadline() throws Exception {
+        final ServerSocket server = new ServerSocket(0);
+
+        // Answer the first command only, like a connection gone half-open
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    Socket socket = server.accept();
+                    OutputStream out = socket.getOutputStream();
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream()));
+
+                    out.write("TS3\n\rWelcome\n\r".getBytes("UTF-8"));
+                    in.readLine();
+                    out.write("client_id=1\n\rerror id=0 msg=ok\n\r"
+                            .getBytes("UTF-8"));
+                    out.flush();
+
+                    while(in.readLine() != null) { }
+                    socket.close();
+                } catch(Exception e) {
+                    // Closed by the test
+                }
+            }
+        };
+        thread.start();
+
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost",
+                server.getLocalPort());
+        client.connect();
+
+        Recorder recorder = new Recorder();
+        final TS3KeepAlive keepAlive = new TS3KeepAlive(client, recorder);
+        keepAlive.setIdleThreshold(0);
+        keepAlive.setDeadline(50);
+
+        // The first probe is answered
+        assertTrue(keepAlive.check());
+        keepAlive.probe();
+        assertEquals(1, keepAlive.getRoundTrips().getCount());
+        assertTrue(recorder.roundTrip >= 0);
+
+        // The second one is not, so the client is declared dead
+        assertTrue(keepAlive.check());
+        Thread probe = new Thread() {
+            public void run() {
+                keepAlive.probe();
+            }
+        };
+        probe.start();
+
+        Thread.sleep(100);
+        assertFalse(keepAlive.check());
+        assertEquals(1, keepAlive.getDeaths());
+        assertTrue(recorder.elapsed >= 50);
+        assertFalse(client.isConnected());
+
+        // Disconnecting failed the pending probe
+        probe.join();
+        assertEquals(2, keepAlive.getProbes());
+        server.close();
+    }
+
+    @Test(timeout=10000)
+    public void testKeptOpen() throws Exception {
+        final ServerSocket server = new ServerSocket(0);
+
+        // Never answer, without closing the connection
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    Socket socket = server.accept();
+                    socket.getOutputStream().write("TS3\n\rWelcome\n\r"
+                            .getBytes("UTF-8"));
+
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream()));
+                    while(in.readLine() != null) { }
+                    socket.close();
+                } catch(Exception e) {
+                    // Closed by the test
+                }
+            }
+        };
+        thread.start();
+
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost",
+                server.getLocalPort());
+        client.connect();
+
+        Recorder recorder = new Recorder();
+        TS3KeepAlive keepAlive = new TS3KeepAlive(client, recorder);
+        keepAlive.setIdleThreshold(0);
+        keepAlive.setDeadline(50);
+        keepAlive.setDisconnecting(false);
+
+        // The missed probe gives up at its deadline, and is reported
+        assertTrue(keepAlive.check());
+        keepAlive.probe();
+        assertEquals(1, keepAlive.getDeaths());
+        assertTrue(recorder.elapsed >= 50);
+        assertTrue(client.isConnected());
+
+        // Checking goes on, and the next missed probe is reported too
+        assertTrue(keepAlive.check());
+        keepAlive.probe();
+        assertEquals(2, keepAlive.getDeaths());
+        assertEquals(2, keepAlive.getProbes());
+
+        client.disconnect();
+        server.close();
+    }
+}
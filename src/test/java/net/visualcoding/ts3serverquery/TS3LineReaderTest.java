@@ -0,0 +1,49 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3LineReader
+ */
+public class TS3LineReaderTest {
+
+    @Test
+    public void testReadLine() throws Exception {
+        StringBuilder longLine = new StringBuilder();
+        for(int i = 0; i < 500; i++) longLine.append("clid=").append(i);
+
+        String text = "error id=0 msg=ok\n\r"
+            + longLine + "|client_nickname=\u00e9\u00e8\n\r"
+            + "\n\r"
+            + "last";
+
+        // A tiny read buffer forces lines to span several reads
+        InputStream in = new ByteArrayInputStream(text.getBytes("UTF-8"));
+        TS3LineReader reader = new TS3LineReader(in, new byte[7]);
+
+        assertEquals("error id=0 msg=ok", reader.readLine());
+        assertEquals(longLine + "|client_nickname=\u00e9\u00e8",
+                reader.readLine());
+        assertEquals("", reader.readLine());
+        assertEquals("last", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void testBufferPool() {
+        TS3BufferPool pool = new TS3BufferPool(1024, 512, 1);
+
+        byte[] read = pool.acquireReadBuffer();
+        assertEquals(1024, read.length);
+        assertEquals(512, pool.acquireWriteBuffer().length);
+
+        pool.releaseReadBuffer(read);
+        pool.releaseReadBuffer(new byte[1024]);
+        assertSame(read, pool.acquireReadBuffer());
+        assertNotSame(read, pool.acquireReadBuffer());
+    }
+}
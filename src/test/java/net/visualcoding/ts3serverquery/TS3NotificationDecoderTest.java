@@ -0,0 +1,47 @@
+package net.visualcoding.ts3serverquery;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3NotificationDecoder
+ */
+public class TS3NotificationDecoderTest {
+
+    @Test
+    public void testFields() {
+        TS3NotificationDecoder decoder = new TS3NotificationDecoder();
+        assertTrue(decoder.reset("notifytextmessage targetmode=3 "
+                + "msg=hello\\sworld\\p\\\\ invokerid=-12 invokername=Bob "
+                + "invokeruid=abc="));
+
+        assertEquals(17, decoder.getNameLength());
+        assertEquals(3, decoder.getInt("targetmode", 0));
+        assertEquals(-12, decoder.getInt("invokerid", 0));
+        assertEquals(7, decoder.getInt("invokername", 7));
+        assertEquals(7, decoder.getInt("missing", 7));
+        assertEquals("hello world|\\", decoder.getString("msg"));
+        assertEquals("Bob", decoder.getString("invokername"));
+        assertEquals("abc=", decoder.getString("invokeruid"));
+        assertNull(decoder.getString("invoker"));
+        assertFalse(decoder.nextItem());
+    }
+
+    @Test
+    public void testItems() {
+        TS3NotificationDecoder decoder = new TS3NotificationDecoder();
+        assertTrue(decoder.reset(
+                "notifyclientmoved ctid=4 reasonid=0 clid=5|clid=6|clid=7"));
+
+        assertEquals(4, decoder.getInt("ctid", 0));
+        assertEquals(5, decoder.getInt("clid", 0));
+        assertTrue(decoder.nextItem());
+        assertEquals(6, decoder.getInt("clid", 0));
+        assertEquals(-1, decoder.getInt("ctid", -1));
+        assertTrue(decoder.nextItem());
+        assertEquals(7, decoder.getInt("clid", 0));
+        assertFalse(decoder.nextItem());
+
+        assertFalse(decoder.reset("notifyempty"));
+    }
+}
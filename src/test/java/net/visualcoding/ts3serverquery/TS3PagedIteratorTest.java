@@ -0,0 +1,166 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3PagedIterator
+ */
+public class TS3PagedIteratorTest {
+
+    /**
+     * Client serving a listing of {@code total} items, returning at most
+     * {@code cap} items per page like the server does for clientdblist.
+     */
+    private static class ListingClient extends TS3ServerQueryClient {
+        final int total;
+        final int cap;
+        final List<Integer> starts = new ArrayList<Integer>();
+
+        ListingClient(int total, int cap) {
+            super("localhost");
+            this.total = total;
+            this.cap = cap;
+        }
+
+        public TS3Result execute(String command)
+                throws InterruptedException, IOException {
+            TS3Map arguments = new TS3Map(command.split(" ", 2)[1]);
+            int start = arguments.getInteger("start").intValue();
+            int duration = arguments.getInteger("duration").intValue();
+
+            synchronized(starts) {
+                starts.add(start);
+            }
+            return page(start, Math.min(duration, cap));
+        }
+
+        TS3Result page(int start, int count) throws IOException {
+            if(start >= total) {
+                return new TS3Result(new String[] {
+                    "error id=1281 msg=database\\sempty\\sresult\\sset"
+                });
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for(int i = start; i < Math.min(start + count, total); i++) {
+                if(sb.length() > 0) sb.append('|');
+                sb.append("cldbid=").append(i);
+            }
+
+            return new TS3Result(new String[] {
+                sb.toString(), "error id=0 msg=ok"
+            });
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testPaging() {
+        // The server caps the pages below the requested size
+        ListingClient client = new ListingClient(7, 3);
+        TS3PagedIterator it = new TS3PagedIterator(client, "clientdblist",
+                null, 5, 2);
+
+        for(int i = 0; i < 7; i++) {
+            assertTrue(it.hasNext());
+            assertEquals(Integer.valueOf(i), it.next().getInteger("cldbid"));
+        }
+        assertFalse(it.hasNext());
+        assertTrue(it.getFetcher().isDaemon());
+
+        // Every page starts after the items received so far
+        assertEquals(Arrays.asList(0, 3, 6, 7), client.starts);
+    }
+
+    @Test(timeout=10000)
+    public void testUnpaged() {
+        // Longer than a page, the listing is taken as the last page
+        ListingClient client = new ListingClient(7, 7) {
+            TS3Result page(int start, int count) throws IOException {
+                return super.page(0, total);
+            }
+        };
+        TS3PagedIterator it = new TS3PagedIterator(client, "complainlist",
+                null, 5, 2);
+
+        for(int i = 0; i < 7; i++) it.next();
+        assertFalse(it.hasNext());
+        assertEquals(Arrays.asList(0), client.starts);
+
+        // Shorter than a page, the listing starting over ends it
+        client = new ListingClient(3, 3) {
+            TS3Result page(int start, int count) throws IOException {
+                return super.page(0, total);
+            }
+        };
+        it = new TS3PagedIterator(client, "complainlist", null, 5, 2);
+
+        for(int i = 0; i < 3; i++) it.next();
+        assertFalse(it.hasNext());
+        assertEquals(Arrays.asList(0, 3), client.starts);
+    }
+
+    @Test(timeout=10000)
+    public void testErrors() {
+        // An error after the first page
+        TS3PagedIterator it = new TS3PagedIterator(new ListingClient(10, 3) {
+            TS3Result page(int start, int count) throws IOException {
+                if(start == 0) return super.page(start, count);
+                return new TS3Result(new String[] {
+                    "error id=2568 msg=insufficient\\sclient\\spermissions"
+                });
+            }
+        }, "clientdblist", null, 3, 1);
+
+        for(int i = 0; i < 3; i++) it.next();
+        try {
+            it.hasNext();
+            fail();
+        } catch(IllegalStateException e) {
+            assertTrue(e.getMessage().contains("2568"));
+        }
+        assertFalse(it.hasNext());
+
+        // A runtime exception of the fetcher, with a full queue
+        it = new TS3PagedIterator(new ListingClient(10, 3) {
+            TS3Result page(int start, int count) throws IOException {
+                if(start < 6) return super.page(start, count);
+                throw new IllegalArgumentException("broken");
+            }
+        }, "clientdblist", null, 3, 1);
+
+        for(int i = 0; i < 6; i++) it.next();
+        try {
+            it.hasNext();
+            fail();
+        } catch(IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testClose() throws Exception {
+        ListingClient client = new ListingClient(1000, 3);
+        TS3PagedIterator it = new TS3PagedIterator(client, "clientdblist",
+                null, 3, 1);
+
+        // The fetcher waits for room in the queue until closed
+        assertEquals(Integer.valueOf(0), it.next().getInteger("cldbid"));
+        it.close();
+
+        Thread fetcher = it.getFetcher();
+        fetcher.join(5000);
+        assertFalse(fetcher.isAlive());
+
+        // Only the rest of the current page is left
+        assertEquals(Integer.valueOf(1), it.next().getInteger("cldbid"));
+        assertEquals(Integer.valueOf(2), it.next().getInteger("cldbid"));
+        assertFalse(it.hasNext());
+        assertTrue(client.starts.size() < 10);
+    }
+}
@@ -0,0 +1,130 @@
+package net.visualcoding.ts3serverquery;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the snapshots of TS3PollingThread
+ */
+public class TS3PollingThreadTest {
+
+    private File file;
+
+    /**
+     * Client answering every command with the same client list.
+     */
+    private static class ListingClient extends TS3ServerQueryClient {
+        ListingClient(File snapshotFile) {
+            super("localhost");
+            setSnapshotFile(snapshotFile);
+        }
+
+        public TS3Result execute(TS3Command command)
+                throws InterruptedException, IOException {
+            return new TS3Result(new String[] {
+                "clid=1 cid=5 client_nickname=Alice "
+                    + "client_unique_identifier=alice|clid=2 cid=7 "
+                    + "client_nickname=Bob client_unique_identifier=bob",
+                "error id=0 msg=ok"
+            });
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("snapshot", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    private void save(long sequence) throws Exception {
+        TS3ServerQueryClient client = new ListingClient(file);
+        TS3PollingThread thread = new TS3PollingThread(client);
+        thread.poll();
+
+        client.getEventThread().setSequence(sequence);
+        thread.saveSnapshot();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        save(41);
+
+        // Saving again replaces the snapshot through the temporary file
+        save(42);
+        assertTrue(file.isFile());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        TS3ServerQueryClient client = new ListingClient(file);
+        Map<Integer, TS3PollingThread.ClientInfo> clients =
+                new TS3PollingThread(client).loadSnapshot();
+
+        assertEquals(2, clients.size());
+        assertEquals("Alice", clients.get(1).clientName);
+        assertEquals("alice", clients.get(1).clientUid);
+        assertEquals(5, clients.get(1).channelId);
+        assertEquals(7, clients.get(2).channelId);
+        assertEquals(42, client.getEventThread().getSequence());
+
+        // The unique ids are shared through the dictionary
+        assertEquals(2, client.getUidDictionary().size());
+        assertSame(clients.get(2).clientUid,
+                client.getUidDictionary().getUid(clients.get(2).uidHandle));
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        assertNull(new TS3PollingThread(new ListingClient(file))
+                .loadSnapshot());
+        assertNull(new TS3PollingThread(new ListingClient(null))
+                .loadSnapshot());
+
+        // Without a snapshot file, nothing is saved
+        TS3PollingThread thread = new TS3PollingThread(
+                new ListingClient(null));
+        thread.poll();
+        thread.saveSnapshot();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCorrupt() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("not a snapshot".getBytes("UTF-8"));
+        out.close();
+
+        TS3ServerQueryClient client = new ListingClient(file);
+        assertNull(new TS3PollingThread(client).loadSnapshot());
+
+        // A truncated snapshot is ignored without holding any unique id
+        save(1);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 4);
+        raf.close();
+
+        client = new ListingClient(file);
+        assertNull(new TS3PollingThread(client).loadSnapshot());
+        assertEquals(0, client.getUidDictionary().size());
+        assertEquals(0, client.getEventThread().getSequence());
+
+        // So is a snapshot with an invalid number of clients
+        save(1);
+        raf = new RandomAccessFile(file, "rw");
+        raf.seek(20);
+        raf.writeInt(-1);
+        raf.close();
+
+        assertNull(new TS3PollingThread(client).loadSnapshot());
+    }
+}
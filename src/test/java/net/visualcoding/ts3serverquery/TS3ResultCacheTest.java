@@ -0,0 +1,136 @@
+package net.visualcoding.ts3serverquery;
+
+import net.visualcoding.ts3serverquery.event.TS3ClientMovedEvent;
+import net.visualcoding.ts3serverquery.event.TS3ClientDisconnectedEvent;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3ResultCache
+ */
+public class TS3ResultCacheTest {
+
+    private static TS3Result result(String uid) {
+        return new TS3Result(new String[] {
+            "cid=3 client_unique_identifier=" + uid,
+            "error id=0 msg=ok"
+        });
+    }
+
+    @Test
+    public void testReadThrough() {
+        TS3ResultCache cache = new TS3ResultCache();
+        TS3Command command = TS3Commands.clientInfo(5);
+
+        assertTrue(cache.isCached("clientinfo"));
+        assertFalse(cache.isCached("clientlist"));
+
+        assertNull(cache.get(command.toString()));
+        cache.put(command, result("uid5"));
+        assertNotNull(cache.get(command.toString()));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0001);
+
+        // Results with errors are not cached
+        TS3Command other = TS3Commands.clientInfo(6);
+        cache.put(other, new TS3Result(new String[] {
+            "error id=512 msg=invalid\\sclientID"
+        }));
+        assertNull(cache.get(other.toString()));
+    }
+
+    @Test
+    public void testEviction() {
+        TS3ResultCache cache = new TS3ResultCache(2);
+
+        cache.put(TS3Commands.clientInfo(1), result("uid1"));
+        cache.put(TS3Commands.clientInfo(2), result("uid2"));
+
+        // Access 1 so that 2 becomes the least recently used
+        assertNotNull(cache.get("clientinfo clid=1"));
+        cache.put(TS3Commands.clientInfo(3), result("uid3"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get("clientinfo clid=1"));
+        assertNull(cache.get("clientinfo clid=2"));
+        assertNotNull(cache.get("clientinfo clid=3"));
+    }
+
+    @Test
+    public void testTimeToLive() throws Exception {
+        TS3ResultCache cache = new TS3ResultCache();
+        cache.setTimeToLive("clientinfo", 1);
+
+        cache.put(TS3Commands.clientInfo(1), result("uid1"));
+        Thread.sleep(10);
+
+        assertNull(cache.get("clientinfo clid=1"));
+        assertEquals(0, cache.size());
+
+        // A time to live of 0 disables caching
+        cache.setTimeToLive("clientinfo", 0);
+        assertFalse(cache.isCached("clientinfo"));
+    }
+
+    @Test
+    public void testInvalidation() {
+        TS3ResultCache cache = new TS3ResultCache();
+
+        cache.put(TS3Commands.clientInfo(1), result("uid1"));
+        cache.put(TS3Command.raw("clientdbinfo cldbid=9"), result("uid2"));
+        cache.put(TS3Command.raw("channelinfo cid=4"), result("uid3"));
+
+        // Invalidated by client id
+        cache.onClientDisconnected(new TS3ClientDisconnectedEvent("one", 1,
+                "other"));
+        assertNull(cache.get("clientinfo clid=1"));
+
+        // Invalidated by unique id and channel
+        cache.onClientMoved(new TS3ClientMovedEvent("two", 2, "uid2", 4, 5));
+        assertNull(cache.get("clientdbinfo cldbid=9"));
+        assertNull(cache.get("channelinfo cid=4"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCopies() {
+        TS3ResultCache cache = new TS3ResultCache();
+        TS3Command command = TS3Commands.clientInfo(5);
+
+        TS3Result result = result("uid5");
+        cache.put(command, result);
+        result.getFirst().add("mine", "put");
+
+        // Neither the cached result nor later lookups see the changes
+        TS3Result first = cache.get(command.toString());
+        assertFalse(first.getFirst().contains("mine"));
+        first.getFirst().add("mine", "get");
+        first.getItems().clear();
+
+        TS3Result second = cache.get(command.toString());
+        assertNotSame(first, second);
+        assertEquals(1, second.getItems().size());
+        assertFalse(second.getFirst().contains("mine"));
+        assertEquals("uid5", second.getFirst().get("client_unique_identifier"));
+    }
+
+    @Test
+    public void testStamp() {
+        TS3ResultCache cache = new TS3ResultCache();
+        TS3Command command = TS3Commands.clientInfo(5);
+
+        // Invalidated while the command was in flight
+        long stamp = cache.getStamp();
+        cache.invalidateClient(5, null);
+        cache.put(command, result("uid5"), stamp);
+        assertNull(cache.get(command.toString()));
+
+        stamp = cache.getStamp();
+        cache.put(command, result("uid5"), stamp);
+        assertNotNull(cache.get(command.toString()));
+    }
+}
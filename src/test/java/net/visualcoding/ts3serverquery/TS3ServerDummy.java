@@ -124,7 +124,7 @@ public class TS3ServerDummy extends Thread {
                 Method method = c.getDeclaredMethod("command_" + split[0], String.class);
 
                 // Invoke method
-                method.invoke(this, split[1]);
+                method.invoke(this, split.length > 1 ? split[1] : "");
             } catch(NoSuchMethodException e) {
                 // Command not found error
                 writeError(256, "command not found");
@@ -137,6 +137,15 @@ public class TS3ServerDummy extends Thread {
         writeError();
     }
 
+    protected void command_use(String cmd) throws Exception {
+        writeError();
+    }
+
+    protected void command_whoami(String cmd) throws Exception {
+        write("virtualserver_id=1 client_id=99 client_channel_id=1");
+        writeError();
+    }
+
     protected void command_clientlist(String cmd) throws Exception {
         StringBuilder sb = new StringBuilder();
 
@@ -180,7 +189,7 @@ public class TS3ServerDummy extends Thread {
         writeError();
     }
 
-    protected void write(String line) throws Exception {
+    protected synchronized void write(String line) throws Exception {
         getWriter().writeLine(line);
     }
 
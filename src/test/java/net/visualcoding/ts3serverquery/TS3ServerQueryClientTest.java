@@ -5,8 +5,18 @@ import net.visualcoding.ts3serverquery.event.*;
 import org.junit.*;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
 
 /**
  * Unit test for TS3ServerQuery
@@ -38,6 +48,9 @@ public class TS3ServerQueryClientTest {
             TS3ServerQueryClient client = new TS3ServerQueryClient("localhost", port);
             client.connect();
 
+            TS3MetricsRecorder metrics = new TS3MetricsRecorder();
+            client.setMetrics(metrics);
+
             // Log in
             //client.execute("login user pass");
             TS3Map map = new TS3Map();
@@ -46,6 +59,27 @@ public class TS3ServerQueryClientTest {
 
             client.execute("login", map);
 
+            // Execute a batch of commands, continuing past errors
+            List<TS3Result> results = client.executeBatch(Arrays.asList(
+                    "login a b", "unknown command", "login c d"));
+            assertEquals(3, results.size());
+            assertFalse(results.get(0).hasError());
+            assertTrue(results.get(1).hasError());
+            assertFalse(results.get(2).hasError());
+
+            // Execute the same batch, stopping at the first error
+            results = client.executeBatch(Arrays.asList("login a b",
+                    "unknown command", "login c d"),
+                    TS3ServerQueryClient.BatchPolicy.STOP_ON_ERROR);
+            assertEquals(2, results.size());
+            assertTrue(results.get(1).hasError());
+
+            // Every executed command was measured
+            assertEquals(4, metrics.getRoundTrip("login").getCount());
+            assertEquals(Long.valueOf(4),
+                    metrics.getErrorCounts("login").get(0));
+            assertTrue(metrics.getBytesOut() > 0);
+
             // Add an event listener
             client.addEventListener(new EventListener(server));
 
@@ -74,6 +108,244 @@ public class TS3ServerQueryClientTest {
         assertTrue( true );
     }
 
+    @Test(timeout=10000)
+    public void testBootstrap() throws Exception {
+        final int port = 14513;
+
+        TS3ServerDummy server = new TS3ServerDummy(port);
+        server.start();
+        Thread.sleep(200);
+
+        // Log in, select the server and register in a single flight
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost",
+                port);
+        client.addEventListener(new EventListener(server));
+        assertTrue(client.connect("user", "password", 1, true));
+        assertEquals(Integer.valueOf(99),
+                client.getWhoAmI().getInteger("client_id"));
+
+        for(String event : new String[] {"textserver", "textchannel",
+                "textprivate"}) {
+            assertTrue(server.isEventRegistered(event));
+        }
+
+        // The event and polling threads start once needed
+        assertTrue(server.semEvents.tryAcquire(10, TimeUnit.SECONDS));
+        assertTrue(server.semMessages.tryAcquire(10, TimeUnit.SECONDS));
+
+        client.disconnect();
+    }
+
+    @Test(timeout=20000)
+    public void testReconnect() throws Exception {
+        final int port = 14514;
+
+        TS3ServerDummy server = new TS3ServerDummy(port);
+        server.start();
+        Thread.sleep(200);
+
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost",
+                port);
+        EventListener listener = new EventListener(server);
+        client.addEventListener(listener);
+        assertTrue(client.connect("user", "password", 1, true));
+        assertTrue(server.semEvents.tryAcquire(10, TimeUnit.SECONDS));
+        client.disconnect();
+
+        // The event and polling threads are spawned again once reconnected
+        server = new TS3ServerDummy(port + 1);
+        server.start();
+        Thread.sleep(200);
+
+        listener.server = server;
+        client.setPort(port + 1);
+        assertTrue(client.connect("user", "password", 1, true));
+        assertTrue(server.semEvents.tryAcquire(10, TimeUnit.SECONDS));
+        client.disconnect();
+    }
+
+    @Test(timeout=10000)
+    public void testLateServerState() throws Exception {
+        final int port = 14516;
+
+        TS3ServerDummy server = new TS3ServerDummy(port);
+        server.start();
+        Thread.sleep(200);
+
+        // A state set after connecting, without listeners, is still polled
+        TS3ServerQueryClient client = new TS3ServerQueryClient("localhost",
+                port);
+        assertTrue(client.connect("user", "password", 1, true));
+
+        TS3ServerState state = new TS3ServerState();
+        client.setServerState(state);
+        while(state.getSnapshot().getClients().isEmpty()) Thread.sleep(10);
+
+        client.disconnect();
+    }
+
+    @Test(timeout=10000)
+    public void testCoalescing() throws Exception {
+        HoldingServer server = new HoldingServer();
+        server.start();
+
+        final TS3ServerQueryClient client = new TS3ServerQueryClient(
+                "localhost", server.getPort());
+        client.connect();
+        client.setCoalescing(true);
+
+        // Identical reads share the round trip of the first one
+        final List<TS3Result> results = Collections.synchronizedList(
+                new ArrayList<TS3Result>());
+        List<Thread> readers = new ArrayList<Thread>();
+        for(int i = 0; i < 4; i++) {
+            Thread reader = new Thread() {
+                public void run() {
+                    try {
+                        results.add(client.execute(
+                                TS3Commands.clientInfo(1)));
+                    } catch(Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            reader.start();
+            readers.add(reader);
+        }
+
+        assertTrue(server.held.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        server.release.countDown();
+        for(Thread reader : readers) reader.join();
+
+        assertEquals(1, server.count("clientinfo"));
+        assertEquals(4, results.size());
+
+        // Every caller has its own copy of the result
+        results.get(0).getFirst().add("mine", "changed");
+        for(int i = 1; i < results.size(); i++) {
+            assertNotSame(results.get(0), results.get(i));
+            assertFalse(results.get(i).getFirst().contains("mine"));
+            assertEquals("Alice",
+                    results.get(i).getFirst().get("client_nickname"));
+        }
+
+        // Writes are never coalesced
+        server.hold("clientkick");
+        Thread writer = new Thread() {
+            public void run() {
+                try {
+                    client.execute(TS3Command.raw("clientkick clid=1"));
+                } catch(Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        writer.start();
+
+        assertTrue(server.held.await(5, TimeUnit.SECONDS));
+        server.release.countDown();
+        assertFalse(client.execute(TS3Command.raw("clientkick clid=1"))
+                .hasError());
+        writer.join();
+
+        assertEquals(2, server.count("clientkick"));
+
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    public void testReadOnly() {
+        for(String name : new String[] {"clientlist", "clientinfo",
+                "clientdbinfo", "channelinfo", "whoami", "serverinfo"}) {
+            assertTrue(name, TS3Commands.isReadOnly(name));
+        }
+
+        for(String name : new String[] {"login", "use", "clientkick",
+                "clientmove", "clientedit", "sendtextmessage",
+                "servernotifyregister", "unknown"}) {
+            assertFalse(name, TS3Commands.isReadOnly(name));
+        }
+    }
+
+    /**
+     * Server answering every command, except that the response to the
+     * first command with the held name waits until released.
+     */
+    private static class HoldingServer extends Thread {
+        final ServerSocket socket;
+        final List<String> lines = Collections.synchronizedList(
+                new ArrayList<String>());
+
+        volatile String holding = "clientinfo";
+        volatile CountDownLatch held = new CountDownLatch(1);
+        volatile CountDownLatch release = new CountDownLatch(1);
+
+        HoldingServer() throws IOException {
+            socket = new ServerSocket(0);
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        void hold(String name) {
+            held = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+            holding = name;
+        }
+
+        int count(String name) {
+            int count = 0;
+            synchronized(lines) {
+                for(String line : lines) {
+                    if(line.startsWith(name + " ")) count++;
+                }
+            }
+            return count;
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+
+        public void run() {
+            try {
+                Socket client = socket.accept();
+                OutputStream out = client.getOutputStream();
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(client.getInputStream()));
+
+                out.write("TS3\n\rWelcome\n\r".getBytes("UTF-8"));
+                out.flush();
+
+                String line;
+                while((line = in.readLine()) != null) {
+                    line = line.trim();
+                    if(line.isEmpty()) continue;
+                    lines.add(line);
+
+                    if(holding != null && line.startsWith(holding + " ")) {
+                        holding = null;
+                        held.countDown();
+                        release.await();
+                    }
+
+                    if(line.startsWith("clientinfo ")) {
+                        out.write("client_nickname=Alice\n\r"
+                                .getBytes("UTF-8"));
+                    }
+                    out.write("error id=0 msg=ok\n\r".getBytes("UTF-8"));
+                    out.flush();
+                }
+                client.close();
+            } catch(Exception e) {
+                // Closed by the test
+            }
+        }
+    }
+
     private class EventListener implements TS3EventListener {
         TS3ServerDummy server;
 
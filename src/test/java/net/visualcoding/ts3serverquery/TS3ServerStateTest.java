@@ -0,0 +1,118 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3ServerState
+ */
+public class TS3ServerStateTest {
+
+    private static List<TS3Map> items(String... items) {
+        List<TS3Map> list = new ArrayList<TS3Map>();
+        for(String item : items) list.add(new TS3Map(item));
+        return list;
+    }
+
+    @Test
+    public void testRebuild() {
+        TS3ServerState state = new TS3ServerState();
+        state.updateClients(items(
+                "clid=1 cid=5 client_database_id=10 client_nickname=Alice "
+                + "client_unique_identifier=alice client_servergroups=6,8",
+                "clid=2 cid=5 client_database_id=20 client_nickname=Bob "
+                + "client_unique_identifier=bob client_servergroups=8"));
+
+        TS3ServerState.Client alice = state.getClient(1);
+        assertEquals("Alice", alice.getNickname());
+        assertEquals(10, alice.getDatabaseId());
+        assertSame(alice, state.getClientByUid("alice"));
+        assertEquals(2, state.getClientsInChannel(5).size());
+        assertEquals(2, state.getClientsInServerGroup(8).size());
+        assertEquals(1, state.getClientsInServerGroup(6).size());
+
+        // Unchanged clients are carried over, gone ones are dropped
+        TS3ServerState.Snapshot before = state.getSnapshot();
+        state.updateClients(items(
+                "clid=1 cid=5 client_database_id=10 client_nickname=Alice "
+                + "client_unique_identifier=alice client_servergroups=6,8",
+                "clid=3 cid=7 client_database_id=30 client_nickname=Carol "
+                + "client_unique_identifier=carol client_servergroups=8"));
+
+        assertSame(alice, state.getClient(1));
+        assertNull(state.getClient(2));
+        assertNull(state.getClientByUid("bob"));
+        assertEquals(1, state.getClientsInChannel(5).size());
+        assertEquals(7, state.getClient(3).getChannelId());
+
+        // Earlier snapshots never change
+        assertNotNull(before.getClient(2));
+        assertNull(before.getClient(3));
+    }
+
+    @Test
+    public void testDeltas() {
+        TS3ServerState state = new TS3ServerState();
+        state.clientEntered(1, 10, 5, "Alice", "a=", "6,8");
+        state.clientEntered(2, 20, 5, "Bob", "b=", null);
+
+        assertEquals("Alice", state.getClientByUid("a=").getNickname());
+        assertEquals(2, state.getClientsInChannel(5).size());
+        assertTrue(state.getClient(1).isInServerGroup(6));
+        assertEquals(0, state.getClient(2).getServerGroups().length);
+
+        TS3ServerState.Snapshot before = state.getSnapshot();
+        TS3ServerState.Client moved = state.clientMoved(1, 7);
+        assertEquals(5, moved.getChannelId());
+        assertEquals(7, state.getClient(1).getChannelId());
+        assertEquals("Alice", state.getClient(1).getNickname());
+        assertEquals(1, state.getClientsInChannel(5).size());
+        assertEquals(1, state.getClientsInChannel(7).size());
+        assertEquals(1, state.getClientsInServerGroup(8).size());
+        assertEquals(5, before.getClient(1).getChannelId());
+
+        TS3ServerState.Client left = state.clientLeft(2);
+        assertEquals("Bob", left.getNickname());
+        assertNull(state.getClient(2));
+        assertNull(state.getClientByUid("b="));
+        assertTrue(state.getClientsInChannel(5).isEmpty());
+
+        // Unknown clients are ignored
+        assertNull(state.clientLeft(2));
+        assertNull(state.clientMoved(9, 5));
+        assertNull(state.getClient(9));
+
+        // A poll rebuilds the clients from scratch
+        state.updateClients(items("clid=2 cid=5 client_nickname=Bob "
+                + "client_unique_identifier=bob"));
+        assertNull(state.getClient(1));
+        assertEquals("Bob", state.getClient(2).getNickname());
+    }
+
+    @Test
+    public void testManyDeltas() {
+        TS3ServerState state = new TS3ServerState();
+        for(int i = 1; i <= 500; i++) {
+            state.clientEntered(i, i, i % 10, "c" + i, "u" + i, "8");
+        }
+        TS3ServerState.Snapshot before = state.getSnapshot();
+
+        for(int i = 1; i <= 500; i += 2) state.clientLeft(i);
+        for(int i = 2; i <= 500; i += 2) state.clientMoved(i, 99);
+
+        assertEquals(250, state.getSnapshot().getClients().size());
+        assertEquals(250, state.getClientsInChannel(99).size());
+        assertEquals(250, state.getClientsInServerGroup(8).size());
+        assertTrue(state.getClientsInChannel(1).isEmpty());
+        assertNull(state.getClientByUid("u1"));
+        assertEquals(99, state.getClientByUid("u2").getChannelId());
+
+        // Earlier snapshots never change
+        assertEquals(500, before.getClients().size());
+        assertEquals(50, before.getClientsInChannel(1).size());
+        assertEquals(500, before.getClientsInServerGroup(8).size());
+    }
+}
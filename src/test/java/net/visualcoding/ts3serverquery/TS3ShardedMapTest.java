@@ -0,0 +1,55 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3ShardedMap
+ */
+public class TS3ShardedMapTest {
+
+    @Test
+    public void testChanges() {
+        TS3ShardedMap<Integer, String> map =
+                new TS3ShardedMap<Integer, String>();
+        Map<Integer, String> expected = new HashMap<Integer, String>();
+
+        // Grow past several rebuilds, keeping every earlier map intact
+        TS3ShardedMap<Integer, String> half = null;
+        for(int i = 0; i < 1000; i++) {
+            map = map.with(i, "v" + i);
+            expected.put(i, "v" + i);
+            if(i == 499) half = map;
+        }
+
+        assertEquals(expected, map);
+        assertEquals(500, half.size());
+        assertNull(half.get(500));
+
+        for(int i = 0; i < 1000; i += 2) {
+            map = map.without(i);
+            expected.remove(i);
+        }
+        map = map.with(1, "x");
+        expected.put(1, "x");
+
+        assertEquals(expected, map);
+        assertEquals(500, map.size());
+        assertSame(map, map.without(0));
+        assertEquals("v0", half.get(0));
+    }
+
+    @Test
+    public void testCopyOf() {
+        Map<String, Integer> source = new HashMap<String, Integer>();
+        for(int i = 0; i < 100; i++) source.put("k" + i, i);
+
+        TS3ShardedMap<String, Integer> map = TS3ShardedMap.copyOf(source);
+        assertEquals(source, map);
+        assertTrue(map.containsKey("k42"));
+        assertFalse(map.containsKey("k100"));
+    }
+}
@@ -0,0 +1,147 @@
+package net.visualcoding.ts3serverquery;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+/**
+ * Unit test for TS3Table
+ */
+public class TS3TableTest {
+
+    private static final String[] CLIENT_LIST = {
+        "clid=1 cid=5 client_nickname=serveradmin\\sfrom\\s127.0.0.1 "
+            + "client_type=1|clid=2 cid=7 client_nickname=Aldehir "
+            + "client_type=0",
+        "clid=3 cid=007 client_nickname=idle client_type=0 client_away",
+        "error id=0 msg=ok"
+    };
+
+    @Test
+    public void testColumns() {
+        TS3Table table = new TS3Table(CLIENT_LIST);
+
+        assertFalse(table.hasError());
+        assertEquals("ok", table.getErrorMessage());
+        assertEquals(3, table.getRowCount());
+        assertEquals(5, table.getColumnCount());
+
+        // Integers are stored as such, unless they would not round trip
+        assertTrue(table.isIntColumn(table.getColumn("clid")));
+        assertTrue(table.isIntColumn(table.getColumn("client_type")));
+        assertFalse(table.isIntColumn(table.getColumn("cid")));
+        assertFalse(table.isIntColumn(table.getColumn("client_nickname")));
+        assertEquals(-1, table.getColumn("none"));
+    }
+
+    @Test
+    public void testCursor() {
+        TS3Table table = new TS3Table(CLIENT_LIST);
+
+        int clid = table.getColumn("clid");
+        int cid = table.getColumn("cid");
+        int away = table.getColumn("client_away");
+
+        TS3Table.Cursor cursor = table.cursor();
+
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.getInt(clid));
+        assertEquals(5, cursor.getInt(cid));
+        assertEquals("serveradmin from 127.0.0.1",
+                cursor.get("client_nickname"));
+        assertFalse(cursor.has(away));
+
+        assertTrue(cursor.next());
+        assertEquals("Aldehir", cursor.get("client_nickname"));
+
+        assertTrue(cursor.next());
+        assertEquals("007", cursor.getString(cid));
+        assertEquals(7, cursor.getInt(cid));
+        assertNull(cursor.getString(away));
+
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testItems() {
+        TS3Table table = new TS3Table(CLIENT_LIST);
+        TS3Result result = new TS3Result(CLIENT_LIST);
+
+        List<TS3Map> items = table.getItems();
+        assertEquals(result.getItems().size(), items.size());
+
+        for(int i = 0; i < items.size(); i++) {
+            TS3Map expected = result.getItems().get(i);
+            TS3Map actual = items.get(i);
+
+            assertEquals(expected.get("clid"), actual.get("clid"));
+            assertEquals(expected.get("cid"), actual.get("cid"));
+            assertEquals(expected.get("client_nickname"),
+                    actual.get("client_nickname"));
+        }
+
+        assertEquals("serveradmin from 127.0.0.1",
+                table.getFirst().get("client_nickname"));
+    }
+
+    @Test
+    public void testSwitches() {
+        String[] response = {"-x clid=1|clid=2", "error id=0 msg=ok"};
+        TS3Table table = new TS3Table(response);
+        TS3Result result = new TS3Result(response);
+
+        int x = table.getColumn("x");
+        TS3Table.Cursor cursor = table.cursor();
+        assertTrue(cursor.next());
+        assertTrue(cursor.has(x));
+        assertTrue(cursor.isSwitch(x));
+        assertNull(cursor.getString(x));
+        assertTrue(cursor.next());
+        assertFalse(cursor.has(x));
+        assertFalse(cursor.isSwitch(x));
+
+        // Switches are kept as key-only entries, like in a TS3Result
+        List<TS3Map> items = table.getItems();
+        assertEquals(result.getItems().size(), items.size());
+        assertTrue(result.getFirst().isSwitch("x"));
+        assertTrue(items.get(0).isSwitch("x"));
+        assertEquals(result.getFirst().toString(), items.get(0).toString());
+        assertEquals(result.getItems().get(1).toString(),
+                items.get(1).toString());
+    }
+
+    @Test
+    public void testEmptyValue() {
+        // The empty value ends the line
+        TS3Table table = new TS3Table(new String[] {
+            "clid=2 client_away_message=7|clid=1 client_away_message=",
+            "error id=0 msg=ok"
+        });
+
+        int message = table.getColumn("client_away_message");
+        assertFalse(table.isIntColumn(message));
+
+        TS3Table.Cursor cursor = table.cursor();
+        assertTrue(cursor.next());
+        assertEquals(7, cursor.getInt(message));
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.getInt(table.getColumn("clid")));
+        assertEquals("", cursor.getString(message));
+        assertEquals(-1, cursor.getInt(message, -1));
+    }
+
+    @Test
+    public void testError() {
+        TS3Table table = new TS3Table(new String[] {
+            "error id=1281 msg=database\\sempty\\sresult\\sset"
+        });
+
+        assertTrue(table.hasError());
+        assertEquals(1281, table.getErrorCode());
+        assertEquals("database empty result set", table.getErrorMessage());
+        assertEquals(0, table.getRowCount());
+        assertNull(table.getFirst());
+    }
+
+}
@@ -0,0 +1,54 @@
+package net.visualcoding.ts3serverquery;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3ThreadFactory
+ */
+public class TS3ThreadFactoryTest {
+
+    private static final Runnable NOTHING = new Runnable() {
+        public void run() { }
+    };
+
+    @Test
+    public void testNaming() {
+        TS3ThreadFactory factory = new TS3ThreadFactory();
+
+        Thread first = factory.newThread(NOTHING);
+        Thread second = factory.newThread(NOTHING);
+        assertEquals("TS3-1", first.getName());
+        assertEquals("TS3-2", second.getName());
+        assertFalse(first.isDaemon());
+
+        // Every factory numbers its own threads
+        Thread other = new TS3ThreadFactory("TS3-fleet", true)
+            .newThread(NOTHING);
+        assertEquals("TS3-fleet-1", other.getName());
+        assertTrue(other.isDaemon());
+    }
+
+    @Test
+    public void testVirtual() throws Exception {
+        ThreadFactory factory = TS3ThreadFactory.virtual();
+        Thread thread = factory.newThread(NOTHING);
+
+        // Virtual threads are always daemons, and so is the fallback
+        assertTrue(thread.isDaemon());
+
+        if(TS3ThreadFactory.isVirtualSupported()) {
+            assertTrue(thread.getName().startsWith("TS3-virtual-"));
+            assertEquals(Boolean.TRUE,
+                    Thread.class.getMethod("isVirtual").invoke(thread));
+        } else {
+            assertTrue(factory instanceof TS3ThreadFactory);
+            assertEquals("TS3-1", thread.getName());
+        }
+
+        thread.start();
+        thread.join();
+    }
+}
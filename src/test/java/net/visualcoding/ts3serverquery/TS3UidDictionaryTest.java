@@ -0,0 +1,72 @@
+package net.visualcoding.ts3serverquery;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for TS3UidDictionary
+ */
+public class TS3UidDictionaryTest {
+
+    @Test
+    public void testSharing() {
+        TS3UidDictionary dictionary = new TS3UidDictionary();
+
+        String uid = new String("abc=");
+        int handle = dictionary.acquire(uid);
+        assertEquals(handle, dictionary.acquire(new String("abc=")));
+        assertSame(uid, dictionary.getUid(handle));
+        assertSame(uid, dictionary.intern(new String("abc=")));
+        assertEquals(1, dictionary.size());
+
+        assertEquals(TS3UidDictionary.NO_HANDLE, dictionary.acquire(null));
+        assertNull(dictionary.getUid(TS3UidDictionary.NO_HANDLE));
+        assertNull(dictionary.intern(null));
+    }
+
+    @Test
+    public void testEviction() {
+        TS3UidDictionary dictionary = new TS3UidDictionary();
+
+        int first = dictionary.acquire("first");
+        dictionary.retain(first);
+        int second = dictionary.acquire("second");
+
+        // Evicted once every reference was released
+        dictionary.release(first);
+        assertEquals("first", dictionary.getUid(first));
+        dictionary.release(first);
+        assertNull(dictionary.getUid(first));
+        assertEquals(1, dictionary.size());
+
+        // Releasing or retaining a free handle has no effect
+        dictionary.release(first);
+        dictionary.retain(first);
+        assertNull(dictionary.getUid(first));
+
+        // Free handles are reused
+        assertEquals(first, dictionary.acquire("third"));
+        assertEquals("third", dictionary.getUid(first));
+        assertEquals("second", dictionary.getUid(second));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void testBounded() {
+        TS3UidDictionary dictionary = new TS3UidDictionary();
+
+        // Interning never adds unique ids
+        String uid = new String("unknown");
+        assertSame(uid, dictionary.intern(uid));
+        assertEquals(0, dictionary.size());
+
+        // Clients coming and going do not grow the dictionary
+        for(int i = 0; i < 1000; i++) {
+            int handle = dictionary.acquire("client" + i);
+            assertTrue(handle < 2);
+            dictionary.acquire("other");
+            dictionary.release(handle);
+        }
+        assertEquals(1, dictionary.size());
+    }
+}